@@ -47,4 +47,5 @@ public final class Constants {
 
 	public static final String ATTRIBUTE_PANEL = "panel";
 	public static final String ATTRIBUTE_MODEL = "model";
+	public static final String ATTRIBUTE_SKETCH_ENCODED = "sketchEncoded";
 }
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.gisfaces.component;
+
+import java.util.Arrays;
+
+/**
+ * Graphic hashes class. A compact table of encoded graphic row hashes, held as
+ * parallel arrays of graphic IDs sorted for binary search and row hashes.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+final class GraphicHashes {
+	/** Graphic IDs sorted alphabetically. */
+	private final String[] ids;
+
+	/** Encoded row hashes aligned to the graphic IDs. */
+	private final long[] hashes;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param ids    Graphic IDs sorted alphabetically.
+	 * @param hashes Encoded row hashes aligned to the graphic IDs.
+	 */
+	private GraphicHashes(String[] ids, long[] hashes) {
+		super();
+		this.ids = ids;
+		this.hashes = hashes;
+	}
+
+	/**
+	 * Method to build a graphic hash table.
+	 * 
+	 * @param ids    Graphic IDs in encoding order.
+	 * @param hashes Encoded row hashes in encoding order.
+	 * @return Graphic hash table, or null if any graphic ID is missing or
+	 *         duplicated.
+	 */
+	static GraphicHashes valueOf(String[] ids, long[] hashes) {
+		String[] sorted = ids.clone();
+		for (String id : sorted) {
+			if (id == null) {
+				return null;
+			}
+		}
+		Arrays.sort(sorted);
+
+		for (int i = 1; i < sorted.length; i++) {
+			if (sorted[i].equals(sorted[i - 1])) {
+				return null;
+			}
+		}
+
+		long[] aligned = new long[hashes.length];
+		for (int i = 0; i < ids.length; i++) {
+			aligned[Arrays.binarySearch(sorted, ids[i])] = hashes[i];
+		}
+
+		return new GraphicHashes(sorted, aligned);
+	}
+
+	/**
+	 * Method to get the number of graphics.
+	 * 
+	 * @return Number of graphics.
+	 */
+	int size() {
+		return this.ids.length;
+	}
+
+	/**
+	 * Method to find a graphic ID.
+	 * 
+	 * @param id Graphic ID.
+	 * @return Table index, or a negative value if not found.
+	 */
+	int indexOf(String id) {
+		return Arrays.binarySearch(this.ids, id);
+	}
+
+	/**
+	 * Method to get a graphic ID.
+	 * 
+	 * @param index Table index.
+	 * @return Graphic ID.
+	 */
+	String getId(int index) {
+		return this.ids[index];
+	}
+
+	/**
+	 * Method to get an encoded row hash.
+	 * 
+	 * @param index Table index.
+	 * @return Encoded row hash.
+	 */
+	long getHash(int index) {
+		return this.hashes[index];
+	}
+}
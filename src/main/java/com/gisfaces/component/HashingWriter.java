@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.gisfaces.component;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Hashing writer class. Calculates the FNV-1a hash of all characters written,
+ * optionally forwarding them to a target writer, so serialized JSON can be
+ * fingerprinted without buffering it.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+final class HashingWriter extends Writer {
+	/** Target writer, or null to only hash. */
+	private final Writer writer;
+
+	/** Hash of the characters written since the last reset. */
+	private long hash;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param writer Target writer, or null to only hash.
+	 */
+	HashingWriter(Writer writer) {
+		super();
+		this.writer = writer;
+		this.reset();
+	}
+
+	/**
+	 * Method to reset the hash.
+	 */
+	void reset() {
+		this.hash = LayerFingerprint.FNV_OFFSET_BASIS;
+	}
+
+	/**
+	 * Method to get the hash of the characters written since the last reset.
+	 * 
+	 * @return 64 bit hash.
+	 */
+	long getHash() {
+		return this.hash;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#write(int)
+	 */
+	@Override
+	public void write(int c) throws IOException {
+		this.hash = (this.hash ^ (char) c) * LayerFingerprint.FNV_PRIME;
+		if (this.writer != null) {
+			this.writer.write(c);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#write(char[], int, int)
+	 */
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		long h = this.hash;
+		for (int i = off; i < off + len; i++) {
+			h = (h ^ cbuf[i]) * LayerFingerprint.FNV_PRIME;
+		}
+		this.hash = h;
+		if (this.writer != null) {
+			this.writer.write(cbuf, off, len);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#write(java.lang.String, int, int)
+	 */
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		long h = this.hash;
+		for (int i = off; i < off + len; i++) {
+			h = (h ^ str.charAt(i)) * LayerFingerprint.FNV_PRIME;
+		}
+		this.hash = h;
+		if (this.writer != null) {
+			this.writer.write(str, off, len);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.writer != null) {
+			this.writer.flush();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		// The target writer is owned by the caller.
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.component;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Layer fingerprint class. A compact record of the last encoded state of a map
+ * layer, consisting of the layer type, index and a hash of each encoded JSON
+ * property value. Used to encode only changed layer properties on postback.
+ * The graphic hashes of graphics layers are held transiently, so they stay out
+ * of the serialized view state, and a restored fingerprint without them
+ * replaces all graphics.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class LayerFingerprint implements Serializable {
+	/** Serial Version UID. */
+	private static final long serialVersionUID = 2251431874902870126L;
+
+	/** FNV-1a 64 bit offset basis. */
+	static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/** FNV-1a 64 bit prime. */
+	static final long FNV_PRIME = 0x100000001b3L;
+
+	/** Layer type. */
+	private final String type;
+
+	/** Layer index. */
+	private final int index;
+
+	/** Encoded property names sorted alphabetically. */
+	private final String[] names;
+
+	/** Encoded property value hashes. */
+	private final long[] hashes;
+
+	/** Encoded graphic hashes, for graphics layers. */
+	private transient GraphicHashes graphics;
+
+	/** Remote graphics version token, for remote graphics layers. */
+	private String graphicsVersion;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param type   Layer type.
+	 * @param index  Layer index.
+	 * @param names  Encoded property names sorted alphabetically.
+	 * @param hashes Encoded property value hashes.
+	 */
+	public LayerFingerprint(String type, int index, String[] names, long[] hashes) {
+		super();
+		this.type = type;
+		this.index = index;
+		this.names = names;
+		this.hashes = hashes;
+	}
+
+	/**
+	 * Method to get the layer type.
+	 * 
+	 * @return Layer type.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Method to get the layer index.
+	 * 
+	 * @return Layer index.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Method to get the encoded property names.
+	 * 
+	 * @return Encoded property names sorted alphabetically.
+	 */
+	public String[] getNames() {
+		return names.clone();
+	}
+
+	/**
+	 * Method to get the encoded graphic hashes.
+	 * 
+	 * @return Encoded graphic hashes, or null if not available.
+	 */
+	GraphicHashes getGraphics() {
+		return graphics;
+	}
+
+	/**
+	 * Method to set the encoded graphic hashes.
+	 * 
+	 * @param graphics Encoded graphic hashes.
+	 */
+	void setGraphics(GraphicHashes graphics) {
+		this.graphics = graphics;
+	}
+
+	/**
+	 * Method to get the remote graphics version token.
+	 * 
+	 * @return Remote graphics version token, or null if not available.
+	 */
+	public String getGraphicsVersion() {
+		return graphicsVersion;
+	}
+
+	/**
+	 * Method to set the remote graphics version token.
+	 * 
+	 * @param graphicsVersion Remote graphics version token.
+	 */
+	public void setGraphicsVersion(String graphicsVersion) {
+		this.graphicsVersion = graphicsVersion;
+	}
+
+	/**
+	 * Method to determine if a property value differs from this fingerprint.
+	 * 
+	 * @param name Property name.
+	 * @param hash Property value hash.
+	 * @return <code>true</code> if the property is new or changed,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isChanged(String name, long hash) {
+		int i = Arrays.binarySearch(this.names, name);
+		return ((i < 0) || (this.hashes[i] != hash));
+	}
+
+	/**
+	 * Method to calculate the FNV-1a hash of a character sequence range.
+	 * 
+	 * @param s     Character sequence.
+	 * @param start Start index, inclusive.
+	 * @param end   End index, exclusive.
+	 * @return 64 bit hash.
+	 */
+	public static long hash(CharSequence s, int start, int end) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = start; i < end; i++) {
+			hash ^= s.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
@@ -37,12 +37,15 @@ import com.gisfaces.event.MapSelectEvent;
 import com.gisfaces.model.geometry.Extent;
 import com.gisfaces.model.geometry.Geometry;
 import com.gisfaces.model.geometry.GeometryFactory;
+import com.gisfaces.model.geometry.GeometryGeneralizer;
+import com.gisfaces.model.geometry.Point;
 import com.gisfaces.model.geometry.SpatialReference;
 import com.gisfaces.model.graphic.Graphic;
 import com.gisfaces.model.layer.CSVLayer;
 import com.gisfaces.model.layer.FeatureLayer;
 import com.gisfaces.model.layer.GeoJSONLayer;
 import com.gisfaces.model.layer.GeoRSSLayer;
+import com.gisfaces.model.layer.GraphicsHitTester;
 import com.gisfaces.model.layer.GraphicsLayer;
 import com.gisfaces.model.layer.ImageryLayer;
 import com.gisfaces.model.layer.IntegratedMeshLayer;
@@ -62,17 +65,27 @@ import com.gisfaces.model.map.Basemap;
 import com.gisfaces.model.map.Configuration;
 import com.gisfaces.model.map.MapDimension;
 import com.gisfaces.model.map.MapModel;
+import com.gisfaces.servlet.GraphicsRegistry;
+import com.gisfaces.servlet.GraphicsServlet;
 import com.gisfaces.utilities.ComponentUtilities;
 import com.gisfaces.utilities.StringUtilities;
+import com.gisfaces.utilities.json.JSONBeanSerializer;
+import com.gisfaces.utilities.json.JSONBeanWriter;
 import com.gisfaces.utilities.json.JSONException;
 import com.gisfaces.utilities.json.JSONObject;
-import com.gisfaces.utilities.json.JSONVisitor;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
 import javax.faces.application.ResourceDependencies;
 import javax.faces.application.ResourceDependency;
 import javax.faces.component.FacesComponent;
@@ -84,6 +97,7 @@ import javax.faces.component.behavior.ClientBehaviorHolder;
 import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.faces.context.ResponseWriter;
+import javax.servlet.http.HttpSession;
 
 /**
  * GIS map custom component using the ESRI ArcGIS JavaScript API.
@@ -93,6 +107,21 @@ import javax.faces.context.ResponseWriter;
 @FacesComponent("com.gisfaces.component.Map")
 @ResourceDependencies({ @ResourceDependency(library = "javax.faces", name = "jsf.js", target = "head") })
 public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
+	/**
+	 * Component state keys.
+	 */
+	enum PropertyKeys {
+		layerFingerprints, viewKey
+	}
+
+	/** Graphics layer properties which are not encoded as layer properties. */
+	private static final String[] GRAPHICS_LAYER_EXCLUDES = { "aggregated", "aggregationAttributes", "aggregationCellSize", "aggregationMaxZoom",
+			"aggregationRamp", "clusterMaxZoom", "clusterRadius", "clustered", "coordinatePrecision", "cullingBuffer", "culled", "generalizationTolerance",
+			"generalized", "graphics", "pageSize", "quantizationTolerance", "quantized", "remote", "version" };
+
+	/** Map click graphics hit test tolerance in pixels. */
+	private static final double HIT_TOLERANCE = 5;
+
 	/**
 	 * Constructor.
 	 */
@@ -197,6 +226,17 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 					// Get the request parameters.
 					String latitude = params.get("gisfaces.latitude");
 					String longitude = params.get("gisfaces.longitude");
+					String zoom = params.get("gisfaces.zoom");
+
+					// Hit test the graphics layers once for all listeners.
+					MapModel model = (MapModel) ComponentUtilities.getObjectAttribute(this, Constants.ATTRIBUTE_MODEL);
+					Map<String, List<Graphic>> hits = null;
+					if (model != null) {
+						double z = ((zoom != null) && !zoom.isEmpty()) ? Double.parseDouble(zoom) : model.getViewpoint().getZoom();
+						double tolerance = GeometryGeneralizer.calculateTolerance((int) Math.max(Math.floor(z), 0), HIT_TOLERANCE);
+						Point point = new Point(Double.parseDouble(latitude), Double.parseDouble(longitude));
+						hits = new GraphicsHitTester(tolerance, model.getViewpoint().getExtent(), z).hitTest(model.getLayers(), point);
+					}
 
 					// Send an event to all registered listeners.
 					for (ClientBehavior behavior : behaviors) {
@@ -204,6 +244,7 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 						MapClickEvent event = new MapClickEvent(this, behavior);
 						event.setLatitude(Double.parseDouble(latitude));
 						event.setLongitude(Double.parseDouble(longitude));
+						event.setHits(hits);
 
 						// Send the event.
 						queueEvent(event);
@@ -227,6 +268,17 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 					model.getViewpoint().setLatitude(Double.parseDouble(latitude));
 					model.getViewpoint().setLongitude(Double.parseDouble(longitude));
 					model.getViewpoint().setZoom(Double.parseDouble(zoom));
+
+					// Save the view extent for graphics culling.
+					if ((wkid != null) && (xmin != null) && (ymin != null) && (xmax != null) && (ymax != null)) {
+						Extent extent = new Extent();
+						extent.setSpatialReference(new SpatialReference(Integer.parseInt(wkid)));
+						extent.setXmin(Double.parseDouble(xmin));
+						extent.setYmin(Double.parseDouble(ymin));
+						extent.setXmax(Double.parseDouble(xmax));
+						extent.setYmax(Double.parseDouble(ymax));
+						model.getViewpoint().setExtent(extent);
+					}
 				}
 
 				// Check for registered event listeners.
@@ -350,14 +402,13 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 					String graphicId = params.get("gisfaces.graphicId");
 					String geometryType = params.get("gisfaces.geometryType");
 					String geometryJson = params.get("gisfaces.geometryJson");
+					String geometryEncoded = params.get("gisfaces.geometryEncoded");
 
 					try {
-						// Create a JSON object from the geometry JSON parameters.
-						JSONObject jo = new JSONObject(geometryJson);
-						jo.put("type", geometryType);
-
-						// Create the graphic geometry.
-						Geometry geometry = new GeometryFactory().create(jo);
+						// Create the graphic geometry directly from the encoded or JSON geometry parameters.
+						Geometry geometry = ((geometryEncoded != null) && !geometryEncoded.isEmpty())
+								? new GeometryFactory().createEncoded(geometryEncoded, geometryType)
+								: new GeometryFactory().create(geometryJson, geometryType);
 
 						// Send an event to all registered listeners.
 						for (ClientBehavior behavior : behaviors) {
@@ -383,14 +434,13 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 					String graphicId = params.get("gisfaces.graphicId");
 					String geometryType = params.get("gisfaces.geometryType");
 					String geometryJson = params.get("gisfaces.geometryJson");
+					String geometryEncoded = params.get("gisfaces.geometryEncoded");
 
 					try {
-						// Create a JSON object from the geometry JSON parameters.
-						JSONObject jo = new JSONObject(geometryJson);
-						jo.put("type", geometryType);
-
-						// Create the graphic geometry.
-						Geometry geometry = new GeometryFactory().create(jo);
+						// Create the graphic geometry directly from the encoded or JSON geometry parameters.
+						Geometry geometry = ((geometryEncoded != null) && !geometryEncoded.isEmpty())
+								? new GeometryFactory().createEncoded(geometryEncoded, geometryType)
+								: new GeometryFactory().create(geometryJson, geometryType);
 
 						// Send an event to all registered listeners.
 						for (ClientBehavior behavior : behaviors) {
@@ -609,7 +659,8 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 	}
 
 	/**
-	 * Method to encode all map layers.
+	 * Method to encode all map layers. Ajax postbacks only encode the layers and
+	 * layer properties which changed since the previous render of this view.
 	 * 
 	 * @param context   FacesContext
 	 * @param component UIComponent
@@ -618,11 +669,68 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 	 * @throws IOException
 	 */
 	private void encodeMapLayers(FacesContext context, UIComponent component, ResponseWriter writer, MapModel model) throws IOException {
+		// Get the layer fingerprints of the previous render, if applicable.
+		Map<String, LayerFingerprint> saved = this.getLayerFingerprints();
+		Map<String, LayerFingerprint> previous = null;
+		if (context.isPostback() && context.getPartialViewContext().isAjaxRequest()) {
+			previous = saved;
+		}
+
+		// Build the layer fingerprints of this render.
+		Map<String, LayerFingerprint> current = new HashMap<String, LayerFingerprint>();
+
 		// Encode map layer removals.
-		this.encodeMapLayerRemovals(context, component, writer, model);
+		this.encodeMapLayerRemovals(context, component, writer, model, previous);
 
 		// Encode map layer inserts and updates.
-		this.encodeMapLayerUpdates(context, component, writer, model);
+		this.encodeMapLayerUpdates(context, component, writer, model, previous, current);
+
+		// Release the remote graphics of removed, replaced or no longer remote layers, including on full renders.
+		this.releaseRemoteGraphics(context, saved, current);
+
+		// Save the layer fingerprints in the view state.
+		this.setLayerFingerprints(current);
+	}
+
+	/**
+	 * Method to release the remote graphics snapshots registered by the previous
+	 * render of this view which are no longer encoded, so they are not retained in
+	 * the session.
+	 * 
+	 * @param context  FacesContext
+	 * @param previous Layer fingerprints of the previous render, or null.
+	 * @param current  Layer fingerprints of this render.
+	 */
+	private void releaseRemoteGraphics(FacesContext context, Map<String, LayerFingerprint> previous, Map<String, LayerFingerprint> current) {
+		if (previous != null) {
+			GraphicsRegistry registry = null;
+			for (Map.Entry<String, LayerFingerprint> entry : previous.entrySet()) {
+				LayerFingerprint fingerprint = current.get(entry.getKey());
+				if ((entry.getValue().getGraphicsVersion() != null) && ((fingerprint == null) || (fingerprint.getGraphicsVersion() == null))) {
+					if (registry == null) {
+						registry = GraphicsRegistry.getInstance((HttpSession) context.getExternalContext().getSession(true));
+					}
+					registry.unregister(this.getGraphicsToken(entry.getKey()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to get the remote graphics snapshot token of a layer. Tokens are
+	 * scoped to a random key saved in the view state, so separate views of the
+	 * same map never share snapshots.
+	 * 
+	 * @param layerId Layer ID.
+	 * @return Snapshot token.
+	 */
+	private String getGraphicsToken(String layerId) {
+		String key = (String) this.getStateHelper().get(PropertyKeys.viewKey);
+		if (key == null) {
+			key = UUID.randomUUID().toString();
+			this.getStateHelper().put(PropertyKeys.viewKey, key);
+		}
+		return String.format("%s:%s", key, layerId);
 	}
 
 	/**
@@ -632,20 +740,29 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 	 * @param component UIComponent
 	 * @param writer    ResponseWriter
 	 * @param model     MapModel
+	 * @param previous  Layer fingerprints of the previous render, or null.
 	 * @throws IOException
 	 */
-	private void encodeMapLayerRemovals(FacesContext context, UIComponent component, ResponseWriter writer, MapModel model) throws IOException {
+	private void encodeMapLayerRemovals(FacesContext context, UIComponent component, ResponseWriter writer, MapModel model,
+			Map<String, LayerFingerprint> previous) throws IOException {
 		if (model != null) {
 			// Build a list of the currently specified layer IDs.
 			List<String> ids = new ArrayList<String>();
+			Set<String> removed = (previous != null) ? new HashSet<String>(previous.keySet()) : null;
 			if (model.getLayers() != null) {
 				for (Layer layer : model.getLayers()) {
 					ids.add(String.format("'%s'", layer.getId()));
+
+					if (removed != null) {
+						removed.remove(layer.getId());
+					}
 				}
 			}
 
 			// Synchronize the layers for possible removals.
-			writer.write(String.format("com.gisfaces.syncLayers([%s]);", String.join(",", ids)));
+			if ((removed == null) || !removed.isEmpty()) {
+				writer.write(String.format("com.gisfaces.syncLayers([%s]);", String.join(",", ids)));
+			}
 		}
 	}
 
@@ -656,9 +773,12 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 	 * @param component UIComponent
 	 * @param writer    ResponseWriter
 	 * @param model     MapModel
+	 * @param previous  Layer fingerprints of the previous render, or null.
+	 * @param current   Layer fingerprints of this render.
 	 * @throws IOException
 	 */
-	private void encodeMapLayerUpdates(FacesContext context, UIComponent component, ResponseWriter writer, MapModel model) throws IOException {
+	private void encodeMapLayerUpdates(FacesContext context, UIComponent component, ResponseWriter writer, MapModel model,
+			Map<String, LayerFingerprint> previous, Map<String, LayerFingerprint> current) throws IOException {
 		if ((model != null) && (model.getLayers() != null)) {
 			// Process all defined layers.
 			List<Layer> layers = model.getLayers();
@@ -667,39 +787,16 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 				Layer layer = layers.get(i);
 
 				if (layer instanceof CSVLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((CSVLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.CSV.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.CSV, layer, i, previous, current);
 				} else if (layer instanceof FeatureLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((FeatureLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.FEATURE.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.FEATURE, layer, i, previous, current);
 				} else if (layer instanceof GeoJSONLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((GeoJSONLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.GEOJSON.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.GEOJSON, layer, i, previous, current);
 				} else if (layer instanceof GeoRSSLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((GeoRSSLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.GEO_RSS.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.GEO_RSS, layer, i, previous, current);
 				} else if (layer instanceof GraphicsLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((GraphicsLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					// Remove the graphics and manually add.
-					jo.remove("graphics");
-
-					// Add/update the layer.
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.GRAPHICS.toString(), jo, i, false));
+					// Add/update the layer without the graphics, which are manually added.
+					this.encodeProcessLayer(writer, LayerType.GRAPHICS, layer, i, previous, current, GRAPHICS_LAYER_EXCLUDES);
 
 					if (!context.isPostback()) {
 						// Enable sketch widget.
@@ -710,124 +807,435 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 
 					// Process layer graphics only when visible.
 					if (((GraphicsLayer) layer).getVisible()) {
-						// Remove all existing graphics.
-						writer.write(String.format("com.gisfaces.removeAllGraphics('%s');", layer.getId()));
-
-						// Add defined graphics.
-						if (((GraphicsLayer) layer).getGraphics() != null) {
-							for (Graphic g : ((GraphicsLayer) layer).getGraphics()) {
-								JSONObject gjo = new JSONObject(g, true);
-								this.sanitizeJsonObject(gjo);
-								writer.write(String.format("com.gisfaces.addGraphic('%s', com.gisfaces.createGraphic(%s));", layer.getId(), gjo));
+						// Cull graphics outside of the view extent, if enabled. Remote graphics are served
+						// whole, as a view dependent selection would force a reload on every pan.
+						Extent view = ((GraphicsLayer) layer).isRemote() ? null : model.getViewpoint().getExtent();
+						List<Graphic> graphics = ((GraphicsLayer) layer).getVisibleGraphics(view, model.getViewpoint().getZoom());
+
+						// Round graphic coordinates to the layer coordinate precision, if specified.
+						if (((GraphicsLayer) layer).getCoordinatePrecision() != null) {
+							graphics = ((GraphicsLayer) layer).getRoundedGraphics(graphics);
+						}
+
+						if (((GraphicsLayer) layer).isRemote()) {
+							this.encodeRemoteGraphics(context, writer, (GraphicsLayer) layer, graphics, model.getViewpoint().getZoom(), previous, current);
+						} else {
+							// Quantize graphic coordinates for the current zoom level, if enabled.
+							if (((GraphicsLayer) layer).isQuantized()) {
+								graphics = ((GraphicsLayer) layer).getQuantizedGraphics(graphics, model.getViewpoint().getZoom());
 							}
+
+							this.encodeGraphics(writer, (GraphicsLayer) layer, graphics, previous, current);
 						}
 					}
 				} else if (layer instanceof ImageryLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((ImageryLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.IMAGERY.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.IMAGERY, layer, i, previous, current);
 				} else if (layer instanceof IntegratedMeshLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((IntegratedMeshLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.INTEGRATED_MESH.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.INTEGRATED_MESH, layer, i, previous, current);
 				} else if (layer instanceof KMLLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((KMLLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.KML.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.KML, layer, i, previous, current);
 				} else if (layer instanceof MapImageLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((MapImageLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
 					if (((MapImageLayer) layer).getSublayers().isEmpty()) {
 						// Remove the sublayers key if not explicitly specified.
-						jo.remove("sublayers");
+						this.encodeProcessLayer(writer, LayerType.MAP_IMAGE, layer, i, previous, current, "sublayers");
+					} else {
+						this.encodeProcessLayer(writer, LayerType.MAP_IMAGE, layer, i, previous, current);
 					}
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.MAP_IMAGE.toString(), jo, i, false));
 				} else if (layer instanceof PointCloudLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((PointCloudLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
 					// Opacity is not supported on point cloud layers.
-					jo.remove("opacity");
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.POINT_CLOUD.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.POINT_CLOUD, layer, i, previous, current, "opacity");
 				} else if (layer instanceof PortalLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((PortalLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.PORTAL.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.PORTAL, layer, i, previous, current);
 				} else if (layer instanceof SceneLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((SceneLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.SCENE.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.SCENE, layer, i, previous, current);
 				} else if (layer instanceof StreamLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((StreamLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.STREAM.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.STREAM, layer, i, previous, current);
 				} else if (layer instanceof TileLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((TileLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.TILE.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.TILE, layer, i, previous, current);
 				} else if (layer instanceof VectorTileLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((VectorTileLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.VECTOR_TILE.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.VECTOR_TILE, layer, i, previous, current);
 				} else if (layer instanceof WMSLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((WMSLayer) layer, true);
-					this.sanitizeJsonObject(jo);
-
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.WMS.toString(), jo, i, false));
+					this.encodeProcessLayer(writer, LayerType.WMS, layer, i, previous, current);
 				} else if (layer instanceof WMTSLayer) {
-					// Build a JSON object from the layer.
-					JSONObject jo = new JSONObject((WMTSLayer) layer, true);
-					this.sanitizeJsonObject(jo);
+					this.encodeProcessLayer(writer, LayerType.WMTS, layer, i, previous, current);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to encode a layer insert or update. Each layer JSON property is
+	 * serialized and fingerprinted separately. Layers found in the previous
+	 * fingerprints only encode the changed properties, and are skipped entirely
+	 * when nothing changed. Properties which are no longer specified are encoded
+	 * by name only, and reset to their defaults by the client.
+	 * 
+	 * @param writer   ResponseWriter
+	 * @param type     LayerType
+	 * @param layer    Layer
+	 * @param index    Layer index.
+	 * @param previous Layer fingerprints of the previous render, or null.
+	 * @param current  Layer fingerprints of this render.
+	 * @param excludes Layer property names to omit.
+	 * @throws IOException
+	 */
+	private void encodeProcessLayer(ResponseWriter writer, LayerType type, Layer layer, int index, Map<String, LayerFingerprint> previous,
+			Map<String, LayerFingerprint> current, String... excludes) throws IOException {
+		try {
+			JSONBeanSerializer serializer = JSONBeanSerializer.forClass(layer.getClass());
+			List<String> exclusions = Arrays.asList(excludes);
+
+			// Serialize the layer properties into a single buffer.
+			StringWriter buffer = new StringWriter();
+			JSONBeanWriter jbw = new JSONBeanWriter(buffer);
+			String[] names = new String[serializer.length()];
+			long[] hashes = new long[serializer.length()];
+			int[] offsets = new int[serializer.length() + 1];
+			int n = 0;
+
+			for (int i = 0; i < serializer.length(); i++) {
+				String name = serializer.getName(i);
+				Object value = serializer.getValue(layer, i);
+
+				// Omit null and excluded properties.
+				if (!JSONObject.NULL.equals(value) && !exclusions.contains(name)) {
+					offsets[n] = buffer.getBuffer().length();
+					jbw.writeValue(value);
+					names[n] = name;
+					hashes[n] = LayerFingerprint.hash(buffer.getBuffer(), offsets[n], buffer.getBuffer().length());
+					n++;
+				}
+			}
+			offsets[n] = buffer.getBuffer().length();
+
+			// Save the layer fingerprint.
+			LayerFingerprint fingerprint = new LayerFingerprint(type.toString(), index, Arrays.copyOf(names, n), Arrays.copyOf(hashes, n));
+			current.put(layer.getId(), fingerprint);
+
+			// Compare against the previous layer fingerprint.
+			LayerFingerprint last = (previous != null) ? previous.get(layer.getId()) : null;
+			boolean reset = (last != null) && !last.getType().equals(fingerprint.getType());
+			boolean full = (last == null) || reset;
+
+			// Build the list of properties to encode.
+			List<Integer> properties = new ArrayList<Integer>();
+			for (int i = 0; i < n; i++) {
+				if (full || "id".equals(names[i]) || last.isChanged(names[i], hashes[i])) {
+					properties.add(i);
+				}
+			}
 
-					writer.write(String.format("com.gisfaces.processLayer('%s', %s, %d, %b);", LayerType.WMTS.toString(), jo, i, false));
+			// Build the list of properties which are no longer encoded.
+			List<String> cleared = new ArrayList<String>();
+			if (!full) {
+				for (String name : last.getNames()) {
+					if (Arrays.binarySearch(fingerprint.getNames(), name) < 0) {
+						cleared.add(name);
+					}
 				}
 			}
+
+			// Skip unchanged layers.
+			if (!full && (properties.size() <= 1) && cleared.isEmpty() && (last.getIndex() == index)) {
+				return;
+			}
+
+			// Encode the layer properties.
+			String text = buffer.toString();
+			writer.write("com.gisfaces.processLayer('");
+			writer.write(type.toString());
+			writer.write("', {");
+			for (int i = 0; i < properties.size(); i++) {
+				int p = properties.get(i);
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(JSONObject.quote(names[p]));
+				writer.write(':');
+				writer.write(text, offsets[p], offsets[p + 1] - offsets[p]);
+			}
+			writer.write("}, ");
+			writer.write(Integer.toString(index));
+			writer.write(reset ? ", true" : ", false");
+
+			// Encode the cleared property names, which are reset to their defaults.
+			if (!cleared.isEmpty()) {
+				writer.write(", [");
+				for (int i = 0; i < cleared.size(); i++) {
+					if (i > 0) {
+						writer.write(',');
+					}
+					writer.write(JSONObject.quote(cleared.get(i)));
+				}
+				writer.write(']');
+			}
+			writer.write(");");
+		} catch (JSONException e) {
+			throw new IllegalArgumentException("An error occurred processing JSON nodes.", e);
 		}
 	}
 
 	/**
-	 * Method to sanitize the JSON object before usage.
+	 * Method to encode the graphics of a graphics layer. Graphics are keyed by
+	 * graphic ID and compared against the graphic hashes of the previous render,
+	 * so only added, updated and removed graphics are encoded as a single batch.
+	 * Each graphic is encoded as a row of values sharing one list of property
+	 * names, and each row is hashed as it is serialized rather than buffered.
+	 * All graphics are replaced when there is no previous render, or when any
+	 * graphic ID is missing or duplicated.
 	 * 
-	 * @param jo JSONObject.
+	 * @param writer   ResponseWriter
+	 * @param layer    GraphicsLayer
+	 * @param graphics Graphics to encode.
+	 * @param previous Layer fingerprints of the previous render, or null.
+	 * @param current  Layer fingerprints of this render.
+	 * @throws IOException
 	 */
-	private void sanitizeJsonObject(JSONObject jo) {
+	private void encodeGraphics(ResponseWriter writer, GraphicsLayer layer, List<Graphic> graphics, Map<String, LayerFingerprint> previous,
+			Map<String, LayerFingerprint> current) throws IOException {
 		try {
-			JSONVisitor visitor = new JSONVisitor(jo);
-			visitor.visit(new JSONVisitor.Filter() {
-				@Override
-				public void accept(JSONObject jo, String key) {
-					if (jo.isNull(key) || "class".equals(key)) {
-						jo.remove(key);
+			// Get the graphic hashes of the previous render, if applicable.
+			LayerFingerprint last = (previous != null) ? previous.get(layer.getId()) : null;
+			LayerFingerprint fingerprint = current.get(layer.getId());
+			GraphicHashes hashes = null;
+			if ((last != null) && (fingerprint != null) && last.getType().equals(fingerprint.getType())) {
+				hashes = last.getGraphics();
+			}
+
+			// Build the property names shared by all graphics.
+			String[] keys = this.getGraphicKeys(graphics);
+			String[] ids = new String[graphics.size()];
+			long[] rows = new long[graphics.size()];
+
+			if (hashes == null) {
+				// Stream all graphics as additions, hashing each row as it is written.
+				HashingWriter hw = new HashingWriter(writer);
+				JSONBeanWriter jbw = new JSONBeanWriter(hw);
+				this.encodeGraphicsStart(writer, layer, keys);
+				for (int i = 0; i < graphics.size(); i++) {
+					if (i > 0) {
+						writer.write(',');
 					}
+					hw.reset();
+					jbw.writeRow(graphics.get(i), keys);
+					ids[i] = graphics.get(i).getId();
+					rows[i] = hw.getHash();
 				}
-			});
+				writer.write("], [], [], true);");
+
+				// Save the graphic hashes, which cannot be used when not keyed.
+				if (fingerprint != null) {
+					fingerprint.setGraphics(GraphicHashes.valueOf(ids, rows));
+				}
+				return;
+			}
+
+			// Hash each graphic row without retaining the serialized text.
+			HashingWriter hw = new HashingWriter(null);
+			JSONBeanWriter jbw = new JSONBeanWriter(hw);
+			for (int i = 0; i < graphics.size(); i++) {
+				hw.reset();
+				jbw.writeRow(graphics.get(i), keys);
+				ids[i] = graphics.get(i).getId();
+				rows[i] = hw.getHash();
+			}
+
+			// Save the graphic hashes, which cannot be used when not keyed.
+			GraphicHashes graphicHashes = GraphicHashes.valueOf(ids, rows);
+			if (fingerprint != null) {
+				fingerprint.setGraphics(graphicHashes);
+			}
+
+			// Fall back to replacing all graphics if not keyed.
+			boolean reset = (graphicHashes == null);
+
+			// Build the lists of added and updated graphics.
+			List<Integer> adds = new ArrayList<Integer>();
+			List<Integer> updates = new ArrayList<Integer>();
+			for (int i = 0; i < graphics.size(); i++) {
+				int index = reset ? -1 : hashes.indexOf(ids[i]);
+				if (index < 0) {
+					adds.add(i);
+				} else if (hashes.getHash(index) != rows[i]) {
+					updates.add(i);
+				}
+			}
+
+			// Build the list of removed graphics.
+			List<String> removes = new ArrayList<String>();
+			if (!reset) {
+				for (int i = 0; i < hashes.size(); i++) {
+					if (graphicHashes.indexOf(hashes.getId(i)) < 0) {
+						removes.add(hashes.getId(i));
+					}
+				}
+			}
+
+			// Skip unchanged graphics.
+			if (!reset && adds.isEmpty() && updates.isEmpty() && removes.isEmpty()) {
+				return;
+			}
+
+			// Encode the graphic changes, serializing only the added and updated rows.
+			jbw = new JSONBeanWriter(writer);
+			this.encodeGraphicsStart(writer, layer, keys);
+			this.encodeGraphicRange(writer, jbw, graphics, keys, adds);
+			writer.write("], [");
+			this.encodeGraphicRange(writer, jbw, graphics, keys, updates);
+			writer.write("], [");
+			for (int i = 0; i < removes.size(); i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(JSONObject.quote(removes.get(i)));
+			}
+			writer.write(reset ? "], true);" : "], false);");
 		} catch (JSONException e) {
 			throw new IllegalArgumentException("An error occurred processing JSON nodes.", e);
 		}
 	}
 
+	/**
+	 * Method to encode the graphics of a remote graphics layer. The graphics are
+	 * registered in the session graphics registry, and only the endpoint URL and
+	 * version token are encoded. The client fetches the graphics in pages, and
+	 * only when the version token changes.
+	 * 
+	 * @param context  FacesContext
+	 * @param writer   ResponseWriter
+	 * @param layer    GraphicsLayer
+	 * @param graphics Graphics to encode.
+	 * @param zoom     View zoom level.
+	 * @param previous Layer fingerprints of the previous render, or null.
+	 * @param current  Layer fingerprints of this render.
+	 * @throws IOException
+	 */
+	private void encodeRemoteGraphics(FacesContext context, ResponseWriter writer, GraphicsLayer layer, List<Graphic> graphics, double zoom,
+			Map<String, LayerFingerprint> previous, Map<String, LayerFingerprint> current) throws IOException {
+		ExternalContext external = context.getExternalContext();
+
+		// Build a version token from the layer graphics and the settings deriving the encoded graphics. The
+		// encoded graphics are not hashed, as clusters, cells and rounded graphics may be new copies.
+		boolean zoomed = layer.isClustered() || layer.isGeneralized() || (layer.isAggregated() && (zoom <= layer.getAggregationMaxZoom()));
+		long hash = layer.calculateGraphicsToken();
+		hash = (hash * 31) + (layer.isAggregated() ? 1 : 0) + (layer.isClustered() ? 2 : 0) + (layer.isGeneralized() ? 4 : 0);
+		hash = (hash * 31) + (zoomed ? (long) Math.max(Math.floor(zoom), 0) + 1 : 0);
+		hash = (hash * 31) + ((layer.getCoordinatePrecision() != null) ? layer.getCoordinatePrecision() + 1 : 0);
+		String version = Long.toHexString(hash);
+
+		// Get the remote graphics version of the previous render, if applicable.
+		LayerFingerprint last = (previous != null) ? previous.get(layer.getId()) : null;
+		LayerFingerprint fingerprint = current.get(layer.getId());
+		if (fingerprint != null) {
+			fingerprint.setGraphicsVersion(version);
+		}
+
+		// Skip unchanged graphics.
+		if ((last != null) && (fingerprint != null) && last.getType().equals(fingerprint.getType()) && version.equals(last.getGraphicsVersion())) {
+			return;
+		}
+
+		// Register the graphics snapshot.
+		String token = this.getGraphicsToken(layer.getId());
+		GraphicsRegistry.getInstance((HttpSession) external.getSession(true)).register(token, version, graphics);
+
+		// Encode the graphics endpoint.
+		String url = external.encodeResourceURL(
+				String.format("%s%s?token=%s", external.getRequestContextPath(), GraphicsServlet.PATH, URLEncoder.encode(token, "UTF-8")));
+		writer.write("com.gisfaces.loadGraphics(");
+		writer.write(JSONObject.quote(String.valueOf(layer.getId())));
+		writer.write(", ");
+		writer.write(JSONObject.quote(url));
+		writer.write(", ");
+		writer.write(JSONObject.quote(version));
+		writer.write(", ");
+		writer.write(Integer.toString(layer.getPageSize()));
+		writer.write(");");
+	}
+
+	/**
+	 * Method to get the sorted property names of all graphic classes in use.
+	 * 
+	 * @param graphics Graphics.
+	 * @return Shared graphic property names.
+	 */
+	private String[] getGraphicKeys(List<Graphic> graphics) {
+		Set<Class<?>> classes = new HashSet<Class<?>>();
+		Set<String> keys = new TreeSet<String>();
+
+		for (Graphic g : graphics) {
+			if ((g != null) && classes.add(g.getClass())) {
+				JSONBeanSerializer serializer = JSONBeanSerializer.forClass(g.getClass());
+				for (int i = 0; i < serializer.length(); i++) {
+					keys.add(serializer.getName(i));
+				}
+			}
+		}
+
+		return keys.toArray(new String[keys.size()]);
+	}
+
+	/**
+	 * Method to encode the start of a graphics update, up to the added graphics.
+	 * 
+	 * @param writer ResponseWriter
+	 * @param layer  GraphicsLayer
+	 * @param keys   Shared graphic property names.
+	 * @throws IOException
+	 */
+	private void encodeGraphicsStart(ResponseWriter writer, GraphicsLayer layer, String[] keys) throws IOException {
+		writer.write("com.gisfaces.updateGraphics(");
+		writer.write(JSONObject.quote(String.valueOf(layer.getId())));
+		writer.write(", [");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writer.write(JSONObject.quote(keys[i]));
+		}
+		writer.write("], [");
+	}
+
+	/**
+	 * Method to encode a comma separated list of graphic rows.
+	 * 
+	 * @param writer   ResponseWriter
+	 * @param jbw      JSONBeanWriter targeting the response writer.
+	 * @param graphics Graphics.
+	 * @param keys     Shared graphic property names.
+	 * @param indexes  Graphic indexes to encode.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void encodeGraphicRange(ResponseWriter writer, JSONBeanWriter jbw, List<Graphic> graphics, String[] keys, List<Integer> indexes)
+			throws IOException, JSONException {
+		for (int i = 0; i < indexes.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			jbw.writeRow(graphics.get(indexes.get(i)), keys);
+		}
+	}
+
+	/**
+	 * Method to get the layer fingerprints saved in the view state.
+	 * 
+	 * @return Layer fingerprints by layer ID, or null if not available.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, LayerFingerprint> getLayerFingerprints() {
+		return (Map<String, LayerFingerprint>) this.getStateHelper().get(PropertyKeys.layerFingerprints);
+	}
+
+	/**
+	 * Method to save the layer fingerprints in the view state.
+	 * 
+	 * @param fingerprints Layer fingerprints by layer ID.
+	 */
+	private void setLayerFingerprints(Map<String, LayerFingerprint> fingerprints) {
+		this.getStateHelper().put(PropertyKeys.layerFingerprints, fingerprints);
+	}
+
 	/**
 	 * Method to encode the function which generates a JSF map basemap AJAX event.
 	 * 
@@ -888,6 +1296,7 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 			List<ClientBehaviorContext.Parameter> parameters = new ArrayList<ClientBehaviorContext.Parameter>();
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.latitude", "e.mapPoint.latitude"));
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.longitude", "e.mapPoint.longitude"));
+			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.zoom", "com.gisfaces.view.zoom"));
 
 			// Generate an event for registered listeners.
 			for (ClientBehavior behavior : behaviors) {
@@ -1120,7 +1529,17 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 			writer.write("var layerId = e.graphic.layer.id || '';");
 			writer.write("var graphicId = e.graphic.id || '';");
 			writer.write("var geometryType = e.graphic.geometry.type;");
-			writer.write("var geometryJson = JSON.stringify(com.gisfaces.convertGeometryToGeographicUnits(e.graphic.geometry));");
+			writer.write("var geometry = com.gisfaces.convertGeometryToGeographicUnits(e.graphic.geometry);");
+
+			// Send paths and rings in the compact encoded polyline format, if enabled and possible. The format rounds
+			// coordinates to six decimal places, so exact JSON coordinates are sent by default.
+			if (ComponentUtilities.getBooleanAttribute(this, Constants.ATTRIBUTE_SKETCH_ENCODED, false)) {
+				writer.write("var geometryEncoded = com.gisfaces.encodeGeometry(geometry) || '';");
+				writer.write("var geometryJson = geometryEncoded ? '' : JSON.stringify(geometry);");
+			} else {
+				writer.write("var geometryEncoded = '';");
+				writer.write("var geometryJson = JSON.stringify(geometry);");
+			}
 
 			// Add parameters for decode.
 			List<ClientBehaviorContext.Parameter> parameters = new ArrayList<ClientBehaviorContext.Parameter>();
@@ -1128,6 +1547,7 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.graphicId", "graphicId"));
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.geometryType", "geometryType"));
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.geometryJson", "geometryJson"));
+			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.geometryEncoded", "geometryEncoded"));
 
 			// Generate an event for registered listeners.
 			for (ClientBehavior behavior : behaviors) {
@@ -1172,7 +1592,17 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 			writer.write("var layerId = item.get('layer.id') || '';");
 			writer.write("var graphicId = item.id || '';");
 			writer.write("var geometryType = item.geometry.type;");
-			writer.write("var geometryJson = JSON.stringify(com.gisfaces.convertGeometryToGeographicUnits(item.geometry));");
+			writer.write("var geometry = com.gisfaces.convertGeometryToGeographicUnits(item.geometry);");
+
+			// Send paths and rings in the compact encoded polyline format, if enabled and possible. The format rounds
+			// coordinates to six decimal places, so exact JSON coordinates are sent by default.
+			if (ComponentUtilities.getBooleanAttribute(this, Constants.ATTRIBUTE_SKETCH_ENCODED, false)) {
+				writer.write("var geometryEncoded = com.gisfaces.encodeGeometry(geometry) || '';");
+				writer.write("var geometryJson = geometryEncoded ? '' : JSON.stringify(geometry);");
+			} else {
+				writer.write("var geometryEncoded = '';");
+				writer.write("var geometryJson = JSON.stringify(geometry);");
+			}
 
 			// Add parameters for decode.
 			List<ClientBehaviorContext.Parameter> parameters = new ArrayList<ClientBehaviorContext.Parameter>();
@@ -1180,6 +1610,7 @@ public class UIMap extends UIComponentBase implements ClientBehaviorHolder {
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.graphicId", "graphicId"));
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.geometryType", "geometryType"));
 			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.geometryJson", "geometryJson"));
+			parameters.add(new ClientBehaviorContext.Parameter("gisfaces.geometryEncoded", "geometryEncoded"));
 
 			// Generate an event for registered listeners.
 			for (ClientBehavior behavior : behaviors) {
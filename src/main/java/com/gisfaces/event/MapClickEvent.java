@@ -24,6 +24,11 @@
 
 package com.gisfaces.event;
 
+import com.gisfaces.model.graphic.Graphic;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import javax.faces.component.UIComponent;
 import javax.faces.component.behavior.Behavior;
 import javax.faces.event.AjaxBehaviorEvent;
@@ -45,6 +50,9 @@ public class MapClickEvent extends AjaxBehaviorEvent {
 	/** Map longitude. */
 	private double longitude;
 
+	/** Hit graphics by graphics layer ID, with the top layer first. */
+	private Map<String, List<Graphic>> hits;
+
 	/**
 	 * Constructor.
 	 * 
@@ -113,4 +121,39 @@ public class MapClickEvent extends AjaxBehaviorEvent {
 	public void setLongitude(double longitude) {
 		this.longitude = longitude;
 	}
+
+	/**
+	 * Method to get the hit graphics by graphics layer ID, with the top layer
+	 * first.
+	 * 
+	 * @return Map of layer IDs to lists of Graphic objects.
+	 */
+	public Map<String, List<Graphic>> getHits() {
+		return (hits != null) ? hits : Collections.<String, List<Graphic>> emptyMap();
+	}
+
+	/**
+	 * Method to set the hit graphics by graphics layer ID.
+	 * 
+	 * @param hits
+	 */
+	public void setHits(Map<String, List<Graphic>> hits) {
+		this.hits = hits;
+	}
+
+	/**
+	 * Method to get the hit graphics of all graphics layers, with the top layer
+	 * first.
+	 * 
+	 * @return List of Graphic objects.
+	 */
+	public List<Graphic> getGraphics() {
+		List<Graphic> graphics = new ArrayList<Graphic>();
+
+		for (List<Graphic> list : this.getHits().values()) {
+			graphics.addAll(list);
+		}
+
+		return graphics;
+	}
 }
@@ -214,21 +214,68 @@ public class Extent implements Geometry, Serializable {
 	/**
 	 * Method to get the extent points.
 	 * 
-	 * @return List
+	 * @return List, or <code>null</code> if the extent is not set.
 	 */
 	public List<Point> getPoints() {
 		List<Point> points = null;
 
-		if ((this.xmin != 0) && (this.ymin != 0) && (this.xmax != 0) && (this.ymax != 0)) {
+		if (!this.isUnset()) {
 			points = new ArrayList<Point>();
 
-			points.add(new Point(ymin, xmin));
-			points.add(new Point(ymax, xmax));
+			points.add(this.point(ymin, xmin));
+			points.add(this.point(ymax, xmax));
 		}
 
 		return points;
 	}
 
+	/**
+	 * Method to determine if the extent bounds are not set. A default extent has
+	 * all bounds at zero, while an extent with any bound at zero is valid.
+	 * 
+	 * @return <code>true</code> if not set, <code>false</code> otherwise.
+	 */
+	private boolean isUnset() {
+		return (this.xmin == 0) && (this.ymin == 0) && (this.xmax == 0) && (this.ymax == 0);
+	}
+
+	/**
+	 * Method to expand the extent in place to include a point.
+	 * 
+	 * @param x X-point.
+	 * @param y Y-point.
+	 * @return this.
+	 */
+	public Extent expand(double x, double y) {
+		if (x < this.xmin) {
+			this.xmin = x;
+		}
+		if (x > this.xmax) {
+			this.xmax = x;
+		}
+		if (y < this.ymin) {
+			this.ymin = y;
+		}
+		if (y > this.ymax) {
+			this.ymax = y;
+		}
+		return this;
+	}
+
+	/**
+	 * Method to expand the extent in place to include another extent.
+	 * 
+	 * @param e Extent.
+	 * @return this.
+	 */
+	public Extent expand(Extent e) {
+		if (e != null) {
+			this.expand(e.xmin, e.ymin);
+			this.expand(e.xmax, e.ymax);
+		}
+		return this;
+	}
+
 	/**
 	 * Method to get the center point.
 	 * 
@@ -238,7 +285,22 @@ public class Extent implements Geometry, Serializable {
 		double x = (this.xmin + this.xmax) / 2;
 		double y = (this.ymin + this.ymax) / 2;
 
-		return new Point(y, x);
+		return this.point(y, x);
+	}
+
+	/**
+	 * Method to create a point in the spatial reference of the extent.
+	 * 
+	 * @param y Y-point.
+	 * @param x X-point.
+	 * @return Point
+	 */
+	private Point point(double y, double x) {
+		Point p = new Point(y, x);
+		if (this.spatialReference != null) {
+			p.setSpatialReference(new SpatialReference(this.spatialReference.getWkid()));
+		}
+		return p;
 	}
 
 	/**
@@ -276,6 +338,98 @@ public class Extent implements Geometry, Serializable {
 		this.ymax -= dy;
 	}
 
+	/**
+	 * Method to determine if this extent intersects another extent. Touching
+	 * extents are considered intersecting. An extent with a minimum X-point
+	 * greater than its maximum X-point is considered to cross the antimeridian.
+	 * 
+	 * @param e Extent.
+	 * @return <code>true</code> if the extents intersect, <code>false</code>
+	 *         otherwise.
+	 */
+	public boolean intersects(Extent e) {
+		if ((e == null) || (e.ymin > this.ymax) || (e.ymax < this.ymin)) {
+			return false;
+		}
+
+		if (this.xmin > this.xmax) {
+			// This extent crosses the antimeridian.
+			return (e.xmax >= this.xmin) || (e.xmin <= this.xmax);
+		}
+
+		return (e.xmin <= this.xmax) && (e.xmax >= this.xmin);
+	}
+
+	/**
+	 * Method to project the extent to another spatial reference.
+	 * 
+	 * @param wkid Target spatial reference well-known ID.
+	 * @return Projected extent.
+	 * @see GeometryProjector
+	 */
+	public Extent project(int wkid) {
+		int from = (this.spatialReference != null) ? this.spatialReference.getWkid() : SpatialReference.WKID_WGS84;
+		return new GeometryProjector(from, wkid).project(this);
+	}
+
+	/**
+	 * Method to calculate the envelope of a geometry.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Extent bounding the geometry, or <code>null</code> if the geometry
+	 *         has no coordinates.
+	 */
+	public static final Extent envelope(Geometry geometry) {
+		Extent e = null;
+
+		if (geometry instanceof Point) {
+			Point p = (Point) geometry;
+			if ((p.getLatitude() != null) && (p.getLongitude() != null)) {
+				e = new Extent(GeometryProjector.getWkid(p), p.getLongitude(), p.getLatitude(), p.getLongitude(), p.getLatitude());
+			}
+		} else if (geometry instanceof Extent) {
+			e = (Extent) geometry;
+		} else if (geometry instanceof Polygon) {
+			e = Extent.envelope(((Polygon) geometry).getCoordinates(), ((Polygon) geometry).getSpatialReference());
+		} else if (geometry instanceof Polyline) {
+			e = Extent.envelope(((Polyline) geometry).getCoordinates(), ((Polyline) geometry).getSpatialReference());
+		} else if (geometry instanceof QuantizedGeometry) {
+			e = Extent.envelope(((QuantizedGeometry) geometry).getGeometry());
+		}
+
+		return e;
+	}
+
+	/**
+	 * Method to calculate the envelope of a geometry in a spatial reference. The
+	 * envelope is projected from the geometry spatial reference, which is exact
+	 * between WGS84 and Web Mercator as each axis is projected independently.
+	 * Envelopes in an unsupported spatial reference are returned unprojected.
+	 * 
+	 * @param geometry Geometry.
+	 * @param wkid     Spatial reference well-known ID.
+	 * @return Extent bounding the geometry, or <code>null</code> if the geometry
+	 *         has no coordinates.
+	 */
+	public static final Extent envelope(Geometry geometry, int wkid) {
+		Extent e = Extent.envelope(geometry);
+		return (e != null) ? (Extent) GeometryProjector.project(e, wkid) : null;
+	}
+
+	/**
+	 * Method to calculate the envelope of polygon rings or polyline paths. The
+	 * bounds are cached by the immutable packed coordinates.
+	 * 
+	 * @param coordinates      Packed coordinates.
+	 * @param spatialReference Spatial reference, or <code>null</code> for WGS84.
+	 * @return Extent bounding all coordinates, or <code>null</code> if empty.
+	 */
+	private static Extent envelope(PackedCoordinates coordinates, SpatialReference spatialReference) {
+		double[] bounds = (coordinates != null) ? coordinates.getBounds() : null;
+		int wkid = (spatialReference != null) ? spatialReference.getWkid() : SpatialReference.WKID_WGS84;
+		return (bounds != null) ? new Extent(wkid, bounds[0], bounds[1], bounds[2], bounds[3]) : null;
+	}
+
 	/**
 	 * Method to calculate the union of a set of points.
 	 * 
@@ -304,32 +458,26 @@ public class Extent implements Geometry, Serializable {
 	}
 
 	/**
-	 * Method to calculate the union of the extents.
+	 * Method to calculate the union of the extents. Extents that are not set are
+	 * ignored.
 	 * 
 	 * @param e1 Extent.
 	 * @param e2 Extent.
-	 * @return Extent bounding all specified points.
+	 * @return Extent bounding both extents, or <code>null</code> if neither is
+	 *         set.
 	 */
 	public static final Extent union(Extent e1, Extent e2) {
-		Extent e = null;
-
-		List<Point> points = new ArrayList<Point>();
-
-		// Get the points from the first extent.
-		if ((e1 != null) && (e1.getPoints() != null)) {
-			points.addAll(e1.getPoints());
-		}
-
-		// Get the points from the second extent.
-		if ((e2 != null) && (e2.getPoints() != null)) {
-			points.addAll(e2.getPoints());
-		}
-
-		// Build the extent.
-		if (!points.isEmpty()) {
-			e = Extent.union(points);
+		boolean b1 = (e1 != null) && !e1.isUnset();
+		boolean b2 = (e2 != null) && !e2.isUnset();
+
+		if (b1 && b2) {
+			return new Extent(e1.xmin, e1.ymin, e1.xmax, e1.ymax).expand(e2);
+		} else if (b1) {
+			return new Extent(e1.xmin, e1.ymin, e1.xmax, e1.ymax);
+		} else if (b2) {
+			return new Extent(e2.xmin, e2.ymin, e2.xmax, e2.ymax);
 		}
 
-		return e;
+		return null;
 	}
 }
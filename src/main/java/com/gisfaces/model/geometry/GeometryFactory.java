@@ -27,6 +27,7 @@ package com.gisfaces.model.geometry;
 import com.gisfaces.utilities.json.JSONArray;
 import com.gisfaces.utilities.json.JSONException;
 import com.gisfaces.utilities.json.JSONObject;
+import com.gisfaces.utilities.json.JSONTokener;
 
 /**
  * Geometry factory class.
@@ -34,6 +35,11 @@ import com.gisfaces.utilities.json.JSONObject;
  * @author Chris Duncan (cduncan@gisfaces.com)
  */
 public class GeometryFactory {
+	/** Coordinate factor of the encoded polyline format. */
+	public static final double ENCODED_POLYLINE_FACTOR = 1e6;
+
+	/** Part separator of the encoded polyline format. */
+	public static final char ENCODED_POLYLINE_SEPARATOR = ',';
 	/**
 	 * Constructor.
 	 */
@@ -68,6 +74,346 @@ public class GeometryFactory {
 		return geometry;
 	}
 
+	/**
+	 * Factory method to create a geometry object directly from geometry JSON
+	 * text. Coordinates are read into packed arrays without building an
+	 * intermediate JSON object tree.
+	 * 
+	 * @param json Geometry JSON text.
+	 * @param type Geometry type, or <code>null</code> to use the JSON type.
+	 * @return Geometry
+	 * @throws JSONException
+	 */
+	public Geometry create(String json, String type) throws JSONException {
+		return ((json == null) ? null : this.create(new JSONTokener(json), type));
+	}
+
+	/**
+	 * Factory method to create a geometry object by reading one geometry JSON
+	 * object from a tokener. Members other than the geometry type and
+	 * coordinates are skipped.
+	 * 
+	 * @param x    JSONTokener
+	 * @param type Geometry type, or <code>null</code> to use the JSON type.
+	 * @return Geometry
+	 * @throws JSONException
+	 */
+	public Geometry create(JSONTokener x, String type) throws JSONException {
+		StringBuilder sb = new StringBuilder(32);
+		String jsonType = null;
+		double longitude = Double.NaN;
+		double latitude = Double.NaN;
+		PackedCoordinates paths = null;
+		PackedCoordinates rings = null;
+
+		if (x.nextClean() != '{') {
+			throw x.syntaxError("A JSONObject text must begin with '{'");
+		}
+
+		char c = x.nextClean();
+		while (c != '}') {
+			if ((c != '"') && (c != '\'')) {
+				throw x.syntaxError("Expected a quoted key");
+			}
+			String key = x.nextString(c);
+			if (x.nextClean() != ':') {
+				throw x.syntaxError("Expected a ':' after a key");
+			}
+
+			if ("type".equals(key)) {
+				char q = x.nextClean();
+				if ((q != '"') && (q != '\'')) {
+					throw x.syntaxError("Expected a quoted geometry type");
+				}
+				jsonType = x.nextString(q);
+			} else if ("x".equals(key)) {
+				longitude = this.nextNumber(x, sb);
+			} else if ("y".equals(key)) {
+				latitude = this.nextNumber(x, sb);
+			} else if ("paths".equals(key)) {
+				paths = this.nextCoordinates(x, sb);
+			} else if ("rings".equals(key)) {
+				rings = this.nextCoordinates(x, sb);
+			} else {
+				this.skipValue(x);
+			}
+
+			c = x.nextClean();
+			if (c == ',') {
+				c = x.nextClean();
+			} else if (c != '}') {
+				throw x.syntaxError("Expected a ',' or '}'");
+			}
+		}
+
+		if (type == null) {
+			type = jsonType;
+		}
+
+		if (GeometryType.POINT.toString().equals(type)) {
+			if (Double.isNaN(longitude) || Double.isNaN(latitude)) {
+				throw new JSONException("Point geometry requires 'x' and 'y' values.");
+			}
+			Point p = new Point();
+			p.setLongitude(longitude);
+			p.setLatitude(latitude);
+			return p;
+		} else if (GeometryType.POLYLINE.toString().equals(type)) {
+			if (paths == null) {
+				throw new JSONException("Polyline geometry requires 'paths' coordinates.");
+			}
+			Polyline p = new Polyline();
+			p.setCoordinates(paths);
+			return p;
+		} else if (GeometryType.POLYGON.toString().equals(type)) {
+			if (rings == null) {
+				throw new JSONException("Polygon geometry requires 'rings' coordinates.");
+			}
+			Polygon p = new Polygon();
+			p.setCoordinates(rings);
+			return p;
+		} else {
+			throw new JSONException(String.format("Unsupported geometry type '%s'.", type));
+		}
+	}
+
+	/**
+	 * Factory method to create a polyline or polygon geometry from the encoded
+	 * polyline format. Each path or ring is encoded with the polyline algorithm
+	 * as latitude/longitude deltas at six decimal places, and parts are
+	 * separated by commas.
+	 * 
+	 * @param encoded Encoded paths or rings.
+	 * @param type    Polyline or polygon geometry type.
+	 * @return Geometry
+	 * @throws JSONException
+	 */
+	public Geometry createEncoded(String encoded, String type) throws JSONException {
+		if (encoded == null) {
+			return null;
+		}
+
+		PackedCoordinates.Builder builder = new PackedCoordinates.Builder(false, encoded.length() / 4, 1);
+		int length = encoded.length();
+		int index = 0;
+
+		while (index <= length) {
+			builder.startPart();
+			long x = 0;
+			long y = 0;
+
+			while ((index < length) && (encoded.charAt(index) != ENCODED_POLYLINE_SEPARATOR)) {
+				// Read the latitude and longitude deltas as zigzag encoded base 64 varints.
+				long dy = 0;
+				long dx = 0;
+				for (int v = 0; v < 2; v++) {
+					long result = 0;
+					int shift = 0;
+					int b;
+					do {
+						if (index >= length) {
+							throw new JSONException("Truncated encoded polyline.");
+						}
+						b = encoded.charAt(index++) - 63;
+						if ((b < 0) || (b > 63)) {
+							throw new JSONException(String.format("Invalid encoded polyline character at %s.", index - 1));
+						}
+						result |= (long) (b & 0x1f) << shift;
+						shift += 5;
+					} while ((b >= 0x20) && (shift < 64));
+					long delta = ((result & 1) != 0) ? ~(result >>> 1) : (result >>> 1);
+					if (v == 0) {
+						dy = delta;
+					} else {
+						dx = delta;
+					}
+				}
+
+				y += dy;
+				x += dx;
+				builder.add(x / ENCODED_POLYLINE_FACTOR, y / ENCODED_POLYLINE_FACTOR);
+			}
+
+			// Skip the part separator.
+			index++;
+		}
+
+		if (GeometryType.POLYLINE.toString().equals(type)) {
+			Polyline p = new Polyline();
+			p.setCoordinates(builder.build());
+			return p;
+		} else if (GeometryType.POLYGON.toString().equals(type)) {
+			Polygon p = new Polygon();
+			p.setCoordinates(builder.build());
+			return p;
+		} else {
+			throw new JSONException(String.format("Unsupported encoded geometry type '%s'.", type));
+		}
+	}
+
+	/**
+	 * Method to read a number from a tokener. A JSON null is read as NaN.
+	 * 
+	 * @param x  JSONTokener
+	 * @param sb Reusable token buffer.
+	 * @return Number value.
+	 * @throws JSONException
+	 */
+	private double nextNumber(JSONTokener x, StringBuilder sb) throws JSONException {
+		sb.setLength(0);
+		char c = x.nextClean();
+		while ((c > ' ') && (",:]}".indexOf(c) < 0)) {
+			sb.append(c);
+			c = x.next();
+		}
+		x.back();
+
+		if (sb.length() == 0) {
+			throw x.syntaxError("Missing value");
+		}
+		if ((sb.length() == 4) && "null".contentEquals(sb)) {
+			return Double.NaN;
+		}
+
+		try {
+			return Double.parseDouble(sb.toString());
+		} catch (NumberFormatException e) {
+			throw x.syntaxError(String.format("Expected a number and instead saw '%s'", sb));
+		}
+	}
+
+	/**
+	 * Method to read nested arrays of parts and points from a tokener into
+	 * packed coordinates. Parts may have different lengths. Z-values are kept
+	 * only if every point has one.
+	 * 
+	 * @param x  JSONTokener
+	 * @param sb Reusable token buffer.
+	 * @return PackedCoordinates
+	 * @throws JSONException
+	 */
+	private PackedCoordinates nextCoordinates(JSONTokener x, StringBuilder sb) throws JSONException {
+		PackedCoordinates.Builder builder = new PackedCoordinates.Builder(true);
+		boolean z = true;
+		int count = 0;
+
+		this.nextClean(x, '[');
+		char c = x.nextClean();
+		while (c != ']') {
+			if (c != '[') {
+				throw x.syntaxError("Expected a '[' to start a part");
+			}
+			builder.startPart();
+
+			c = x.nextClean();
+			while (c != ']') {
+				if (c != '[') {
+					throw x.syntaxError("Expected a '[' to start a point");
+				}
+				double px = this.nextNumber(x, sb);
+				this.nextClean(x, ',');
+				double py = this.nextNumber(x, sb);
+				double pz = Double.NaN;
+
+				// Read the optional Z-value and skip any further values.
+				int n = 2;
+				c = x.nextClean();
+				while (c == ',') {
+					double v = this.nextNumber(x, sb);
+					if (n++ == 2) {
+						pz = v;
+					}
+					c = x.nextClean();
+				}
+				if (c != ']') {
+					throw x.syntaxError("Expected a ',' or ']'");
+				}
+
+				builder.add(px, py, pz);
+				z &= (n > 2);
+				count++;
+
+				c = this.nextSeparator(x);
+			}
+
+			c = this.nextSeparator(x);
+		}
+
+		PackedCoordinates coordinates = builder.build();
+		return ((z && (count > 0)) ? coordinates : coordinates.withoutZ());
+	}
+
+	/**
+	 * Method to skip whitespace and consume an expected character.
+	 * 
+	 * @param x        JSONTokener
+	 * @param expected Expected character.
+	 * @throws JSONException
+	 */
+	private void nextClean(JSONTokener x, char expected) throws JSONException {
+		char c = x.nextClean();
+		if (c != expected) {
+			throw x.syntaxError("Expected '" + expected + "' and instead saw '" + c + "'");
+		}
+	}
+
+	/**
+	 * Method to read the separator after an array element, returning the first
+	 * character of the next element or the closing bracket.
+	 * 
+	 * @param x JSONTokener
+	 * @return Next character.
+	 * @throws JSONException
+	 */
+	private char nextSeparator(JSONTokener x) throws JSONException {
+		char c = x.nextClean();
+		if (c == ',') {
+			return x.nextClean();
+		} else if (c != ']') {
+			throw x.syntaxError("Expected a ',' or ']'");
+		}
+		return c;
+	}
+
+	/**
+	 * Method to skip one JSON value without building it.
+	 * 
+	 * @param x JSONTokener
+	 * @throws JSONException
+	 */
+	private void skipValue(JSONTokener x) throws JSONException {
+		int depth = 0;
+		do {
+			char c = x.nextClean();
+			switch (c) {
+			case 0:
+				throw x.syntaxError("Unexpected end of value");
+			case '"':
+			case '\'':
+				x.nextString(c);
+				break;
+			case '{':
+			case '[':
+				depth++;
+				break;
+			case '}':
+			case ']':
+				depth--;
+				break;
+			case ',':
+			case ':':
+				break;
+			default:
+				// Skip an unquoted literal.
+				while ((c > ' ') && (",:]}".indexOf(c) < 0)) {
+					c = x.next();
+				}
+				x.back();
+				break;
+			}
+		} while (depth > 0);
+	}
+
 	/**
 	 * Factory method to create a point geometry object.
 	 * 
@@ -94,7 +440,7 @@ public class GeometryFactory {
 		JSONArray paths = jo.getJSONArray("paths");
 
 		Polyline p = new Polyline();
-		p.setPaths(this.convertArray(paths));
+		p.setCoordinates(this.convertArray(paths));
 
 		return p;
 	}
@@ -110,38 +456,42 @@ public class GeometryFactory {
 		JSONArray rings = jo.getJSONArray("rings");
 
 		Polygon p = new Polygon();
-		p.setRings(this.convertArray(rings));
+		p.setCoordinates(this.convertArray(rings));
 
 		return p;
 	}
 
 	/**
-	 * Method to convert a JSONArray to a primitive multi-dimensional array.
+	 * Method to convert a JSONArray of parts to packed coordinates. Parts may have
+	 * different lengths. Z-values are kept only if every point has one.
 	 * 
 	 * @param source JSONArray
-	 * @return Double[][][]
+	 * @return PackedCoordinates
 	 * @throws JSONException
 	 */
-	private Double[][][] convertArray(JSONArray source) throws JSONException {
-		Double[][][] target = null;
-
+	private PackedCoordinates convertArray(JSONArray source) throws JSONException {
+		// Count the points and check for Z-values.
+		int count = 0;
+		boolean z = true;
 		for (int i = 0; i < source.length(); i++) {
-			JSONArray outer = source.getJSONArray(i);
-			for (int j = 0; j < outer.length(); j++) {
-				JSONArray inner = outer.getJSONArray(j);
-				for (int k = 0; k < inner.length(); k++) {
-					Double d = inner.getDouble(k);
-
-					if (target == null) {
-						// Initialize the multi-dimensional array with known dimensions.
-						target = new Double[source.length()][outer.length()][inner.length()];
-					}
+			JSONArray part = source.getJSONArray(i);
+			count += part.length();
+			for (int j = 0; j < part.length(); j++) {
+				z &= (part.getJSONArray(j).length() > 2);
+			}
+		}
+		z &= (count > 0);
 
-					target[i][j][k] = d;
-				}
+		PackedCoordinates.Builder builder = new PackedCoordinates.Builder(z, count, source.length());
+		for (int i = 0; i < source.length(); i++) {
+			JSONArray part = source.getJSONArray(i);
+			builder.startPart();
+			for (int j = 0; j < part.length(); j++) {
+				JSONArray c = part.getJSONArray(j);
+				builder.add(c.getDouble(0), c.getDouble(1), z ? c.getDouble(2) : Double.NaN);
 			}
 		}
 
-		return target;
+		return builder.build();
 	}
 }
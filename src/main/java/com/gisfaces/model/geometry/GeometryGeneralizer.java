@@ -0,0 +1,316 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.geometry;
+
+import com.gisfaces.utilities.GISUtilities;
+import java.util.Arrays;
+
+/**
+ * Geometry generalizer class. Simplifies polyline paths and polygon rings
+ * using the Douglas-Peucker algorithm within a distance tolerance in
+ * geographic units. Geometries in Web Mercator are simplified within the
+ * tolerance converted to meters at the equator, which is the same number of
+ * pixels at every latitude.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class GeometryGeneralizer {
+	/** Meters per pixel at a scale of one, assuming 96 DPI displays. */
+	private static final double METERS_PER_PIXEL = 0.0254 / 96;
+
+	/** Meters per degree of longitude at the equator. */
+	private static final double METERS_PER_DEGREE = 111319.49079327357;
+
+	/** Distance tolerance in geographic units. */
+	private final double tolerance;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param tolerance Distance tolerance in geographic units.
+	 */
+	public GeometryGeneralizer(double tolerance) {
+		super();
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Method to calculate the distance tolerance in geographic units matching a
+	 * number of pixels at a zoom level.
+	 * 
+	 * @param zoom   Zoom level.
+	 * @param pixels Number of pixels.
+	 * @return Distance tolerance in geographic units.
+	 */
+	public static double calculateTolerance(int zoom, double pixels) {
+		return (pixels * GISUtilities.calculateScale(zoom) * METERS_PER_PIXEL) / METERS_PER_DEGREE;
+	}
+
+	/**
+	 * Method to generalize a geometry. Geometries other than polylines and
+	 * polygons are returned unchanged.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Generalized geometry, or the same geometry if unchanged.
+	 */
+	public Geometry generalize(Geometry geometry) {
+		if (GeometryProjector.isWebMercator(GeometryProjector.getWkid(geometry))) {
+			return new GeometryGeneralizer(this.tolerance * METERS_PER_DEGREE).simplify(geometry);
+		}
+		return this.simplify(geometry);
+	}
+
+	/**
+	 * Method to simplify a polyline or polygon geometry within the tolerance.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Simplified geometry, or the same geometry if unchanged.
+	 */
+	private Geometry simplify(Geometry geometry) {
+		if ((geometry instanceof Polyline) && (((Polyline) geometry).getCoordinates() != null)) {
+			PackedCoordinates paths = this.simplify(((Polyline) geometry).getCoordinates(), 2);
+			if (paths != ((Polyline) geometry).getCoordinates()) {
+				Polyline p = new Polyline();
+				p.setCoordinates(paths);
+				p.setSpatialReference(((Polyline) geometry).getSpatialReference());
+				return p;
+			}
+		} else if ((geometry instanceof Polygon) && (((Polygon) geometry).getCoordinates() != null)) {
+			PackedCoordinates rings = this.simplify(((Polygon) geometry).getCoordinates(), 4);
+			if (rings != ((Polygon) geometry).getCoordinates()) {
+				Polygon p = new Polygon();
+				p.setCoordinates(rings);
+				p.setSpatialReference(((Polygon) geometry).getSpatialReference());
+				return p;
+			}
+		}
+
+		return geometry;
+	}
+
+	/**
+	 * Method to simplify coordinate parts. Parts that would simplify below the
+	 * minimum number of coordinates are dropped when their envelope is within the
+	 * tolerance, and otherwise kept at their minimum size. Parts with missing
+	 * coordinate values are kept unchanged.
+	 * 
+	 * @param coordinates Packed coordinates.
+	 * @param minPoints   Minimum number of coordinates per part.
+	 * @return Simplified coordinates, or the same coordinates if unchanged.
+	 */
+	private PackedCoordinates simplify(PackedCoordinates coordinates, int minPoints) {
+		boolean[] keep = new boolean[coordinates.getPointCount()];
+		boolean[] dropped = new boolean[coordinates.getPartCount()];
+		int kept = 0;
+		int parts = 0;
+
+		for (int p = 0; p < coordinates.getPartCount(); p++) {
+			int start = coordinates.getPartStart(p);
+			int end = coordinates.getPartEnd(p);
+
+			if (!GeometryGeneralizer.isValid(coordinates, start, end) || ((end - start) <= minPoints)) {
+				Arrays.fill(keep, start, end, true);
+			} else if (this.simplify(coordinates, start, end, keep) < minPoints) {
+				if (this.isSmall(coordinates, start, end)) {
+					// Drop parts which are smaller than the tolerance.
+					Arrays.fill(keep, start, end, false);
+					dropped[p] = true;
+				} else {
+					GeometryGeneralizer.sample(start, end, minPoints, keep);
+				}
+			}
+		}
+
+		// Count the remaining points and parts.
+		for (int p = 0; p < coordinates.getPartCount(); p++) {
+			if (!dropped[p]) {
+				parts++;
+				for (int i = coordinates.getPartStart(p); i < coordinates.getPartEnd(p); i++) {
+					if (keep[i]) {
+						kept++;
+					}
+				}
+			}
+		}
+
+		// Keep at least one part.
+		if ((kept == coordinates.getPointCount()) || (parts == 0)) {
+			return coordinates;
+		}
+
+		PackedCoordinates.Builder builder = new PackedCoordinates.Builder(coordinates.hasZ(), kept, parts);
+		for (int p = 0; p < coordinates.getPartCount(); p++) {
+			if (!dropped[p]) {
+				builder.startPart();
+				for (int i = coordinates.getPartStart(p); i < coordinates.getPartEnd(p); i++) {
+					if (keep[i]) {
+						builder.add(coordinates.getX(i), coordinates.getY(i), coordinates.getZ(i));
+					}
+				}
+			}
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Method to simplify a coordinate part with the Douglas-Peucker algorithm.
+	 * 
+	 * @param c     Packed coordinates.
+	 * @param start Index of the first point, inclusive.
+	 * @param end   Index of the last point, exclusive.
+	 * @param keep  Points to keep.
+	 * @return Number of points kept.
+	 */
+	private int simplify(PackedCoordinates c, int start, int end, boolean[] keep) {
+		keep[start] = true;
+		keep[end - 1] = true;
+		int count = 2;
+
+		double t2 = this.tolerance * this.tolerance;
+		int[] stack = new int[2 * (end - start)];
+		int top = 0;
+		stack[top++] = start;
+		stack[top++] = end - 1;
+
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+
+			double max = -1;
+			int index = -1;
+			for (int i = first + 1; i < last; i++) {
+				double d = GeometryGeneralizer.distanceSquared(c.getX(i), c.getY(i), c.getX(first), c.getY(first), c.getX(last), c.getY(last));
+				if (d > max) {
+					max = d;
+					index = i;
+				}
+			}
+
+			if ((index > 0) && (max > t2)) {
+				keep[index] = true;
+				count++;
+				stack[top++] = first;
+				stack[top++] = index;
+				stack[top++] = index;
+				stack[top++] = last;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Method to determine if the envelope of a part is within the tolerance.
+	 * 
+	 * @param c     Packed coordinates.
+	 * @param start Index of the first point, inclusive.
+	 * @param end   Index of the last point, exclusive.
+	 * @return <code>true</code> if small, <code>false</code> otherwise.
+	 */
+	private boolean isSmall(PackedCoordinates c, int start, int end) {
+		double xmin = Double.POSITIVE_INFINITY;
+		double ymin = Double.POSITIVE_INFINITY;
+		double xmax = Double.NEGATIVE_INFINITY;
+		double ymax = Double.NEGATIVE_INFINITY;
+
+		for (int i = start; i < end; i++) {
+			xmin = Math.min(xmin, c.getX(i));
+			ymin = Math.min(ymin, c.getY(i));
+			xmax = Math.max(xmax, c.getX(i));
+			ymax = Math.max(ymax, c.getY(i));
+		}
+
+		return ((xmax - xmin) <= this.tolerance) && ((ymax - ymin) <= this.tolerance);
+	}
+
+	/**
+	 * Method to sample a part down to evenly spaced points, keeping the first and
+	 * last points.
+	 * 
+	 * @param start Index of the first point, inclusive.
+	 * @param end   Index of the last point, exclusive.
+	 * @param count Number of points.
+	 * @param keep  Points to keep.
+	 */
+	private static void sample(int start, int end, int count, boolean[] keep) {
+		Arrays.fill(keep, start, end, false);
+		for (int i = 0; i < count; i++) {
+			keep[start + (int) (((long) i * (end - start - 1)) / (count - 1))] = true;
+		}
+	}
+
+	/**
+	 * Method to determine if all coordinate values of a part are present.
+	 * 
+	 * @param c     Packed coordinates.
+	 * @param start Index of the first point, inclusive.
+	 * @param end   Index of the last point, exclusive.
+	 * @return <code>true</code> if valid, <code>false</code> otherwise.
+	 */
+	private static boolean isValid(PackedCoordinates c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (Double.isNaN(c.getX(i)) || Double.isNaN(c.getY(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Method to calculate the squared distance from a point to a segment.
+	 * 
+	 * @param px Point X-value.
+	 * @param py Point Y-value.
+	 * @param ax Segment start X-value.
+	 * @param ay Segment start Y-value.
+	 * @param bx Segment end X-value.
+	 * @param by Segment end Y-value.
+	 * @return Squared distance.
+	 */
+	private static double distanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+		double x = ax;
+		double y = ay;
+		double dx = bx - x;
+		double dy = by - y;
+
+		if ((dx != 0) || (dy != 0)) {
+			double t = (((px - x) * dx) + ((py - y) * dy)) / ((dx * dx) + (dy * dy));
+			if (t > 1) {
+				x = bx;
+				y = by;
+			} else if (t > 0) {
+				x += dx * t;
+				y += dy * t;
+			}
+		}
+
+		dx = px - x;
+		dy = py - y;
+
+		return (dx * dx) + (dy * dy);
+	}
+}
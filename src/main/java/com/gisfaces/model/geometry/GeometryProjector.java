@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.geometry;
+
+/**
+ * Geometry projector class. Projects coordinates between geographic WGS84
+ * (4326) and Web Mercator (3857 or 102100) spatial references on the server.
+ * Coordinate buffers are projected in place in a single pass, and projected
+ * X/Y-values of points are held in the longitude and latitude values.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class GeometryProjector {
+	/** Web Mercator sphere radius in meters. */
+	private static final double RADIUS = 6378137.0;
+
+	/** Maximum latitude of the square Web Mercator extent. */
+	private static final double MAX_LATITUDE = 85.0511287798066;
+
+	/** Radians per degree. */
+	private static final double RADIANS = Math.PI / 180;
+
+	/** Degrees per radian. */
+	private static final double DEGREES = 180 / Math.PI;
+
+	/** Source spatial reference well-known ID. */
+	private final int fromWkid;
+
+	/** Target spatial reference well-known ID. */
+	private final int toWkid;
+
+	/** Indicator that the source spatial reference is Web Mercator. */
+	private final boolean fromMercator;
+
+	/** Indicator that the target spatial reference is Web Mercator. */
+	private final boolean toMercator;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fromWkid Source spatial reference well-known ID.
+	 * @param toWkid   Target spatial reference well-known ID.
+	 */
+	public GeometryProjector(int fromWkid, int toWkid) {
+		super();
+
+		if (!GeometryProjector.isSupported(fromWkid) || !GeometryProjector.isSupported(toWkid)) {
+			throw new IllegalArgumentException(String.format("Unsupported projection from '%s' to '%s'.", fromWkid, toWkid));
+		}
+
+		this.fromWkid = fromWkid;
+		this.toWkid = toWkid;
+		this.fromMercator = GeometryProjector.isWebMercator(fromWkid);
+		this.toMercator = GeometryProjector.isWebMercator(toWkid);
+	}
+
+	/**
+	 * Method to determine if a spatial reference is supported.
+	 * 
+	 * @param wkid Spatial reference well-known ID.
+	 * @return <code>true</code> if supported, <code>false</code> otherwise.
+	 */
+	public static boolean isSupported(int wkid) {
+		return (wkid == SpatialReference.WKID_WGS84) || GeometryProjector.isWebMercator(wkid);
+	}
+
+	/**
+	 * Method to determine if a spatial reference is Web Mercator.
+	 * 
+	 * @param wkid Spatial reference well-known ID.
+	 * @return <code>true</code> if Web Mercator, <code>false</code> otherwise.
+	 */
+	public static boolean isWebMercator(int wkid) {
+		return (wkid == SpatialReference.WKID_WEB_MERCATOR) || (wkid == SpatialReference.WKID_WEB_MERCATOR_AUXILIARY_SPHERE);
+	}
+
+	/**
+	 * Method to get the spatial reference well-known ID of a geometry.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Spatial reference well-known ID, defaulting to WGS84.
+	 */
+	public static int getWkid(Geometry geometry) {
+		SpatialReference sr = null;
+
+		if (geometry instanceof Point) {
+			sr = ((Point) geometry).getSpatialReference();
+		} else if (geometry instanceof Extent) {
+			sr = ((Extent) geometry).getSpatialReference();
+		} else if (geometry instanceof Polyline) {
+			sr = ((Polyline) geometry).getSpatialReference();
+		} else if (geometry instanceof Polygon) {
+			sr = ((Polygon) geometry).getSpatialReference();
+		} else if (geometry instanceof QuantizedGeometry) {
+			return GeometryProjector.getWkid(((QuantizedGeometry) geometry).getGeometry());
+		}
+
+		return (sr != null) ? sr.getWkid() : SpatialReference.WKID_WGS84;
+	}
+
+	/**
+	 * Method to project a geometry to a spatial reference, if both spatial
+	 * references are supported.
+	 * 
+	 * @param geometry Geometry.
+	 * @param wkid     Target spatial reference well-known ID.
+	 * @return Projected geometry, or the same geometry if already in the target
+	 *         spatial reference or not supported.
+	 */
+	public static Geometry project(Geometry geometry, int wkid) {
+		int from = GeometryProjector.getWkid(geometry);
+
+		if ((geometry == null) || (geometry instanceof QuantizedGeometry) || (from == wkid) || !GeometryProjector.isSupported(from)
+				|| !GeometryProjector.isSupported(wkid)) {
+			return geometry;
+		}
+
+		return new GeometryProjector(from, wkid).project(geometry);
+	}
+
+	/**
+	 * Method to determine if the projection changes coordinate values.
+	 * 
+	 * @return <code>true</code> if coordinates are unchanged,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isIdentity() {
+		return (this.fromMercator == this.toMercator);
+	}
+
+	/**
+	 * Method to project interleaved coordinate values in place. Values beyond the
+	 * X/Y-values of each point are left unchanged.
+	 * 
+	 * @param values    Interleaved coordinate values.
+	 * @param offset    Index of the first value.
+	 * @param count     Number of points.
+	 * @param dimension Number of values per point.
+	 */
+	public void project(double[] values, int offset, int count, int dimension) {
+		int end = offset + (count * dimension);
+
+		if (this.isIdentity()) {
+			return;
+		} else if (this.toMercator) {
+			for (int i = offset; i < end; i += dimension) {
+				double lat = Math.max(Math.min(values[i + 1], MAX_LATITUDE), -MAX_LATITUDE);
+				values[i] = values[i] * RADIANS * RADIUS;
+				values[i + 1] = Math.log(Math.tan((Math.PI / 4) + ((lat * RADIANS) / 2))) * RADIUS;
+			}
+		} else {
+			for (int i = offset; i < end; i += dimension) {
+				values[i] = (values[i] / RADIUS) * DEGREES;
+				values[i + 1] = ((2 * Math.atan(Math.exp(values[i + 1] / RADIUS))) - (Math.PI / 2)) * DEGREES;
+			}
+		}
+	}
+
+	/**
+	 * Method to project packed coordinates.
+	 * 
+	 * @param coordinates Packed coordinates.
+	 * @return Projected coordinates, or the same coordinates if unchanged.
+	 */
+	public PackedCoordinates project(PackedCoordinates coordinates) {
+		if ((coordinates == null) || this.isIdentity()) {
+			return coordinates;
+		}
+
+		double[] values = coordinates.getValues().clone();
+		this.project(values, 0, coordinates.getPointCount(), coordinates.getDimension());
+
+		return PackedCoordinates.wrap(values, coordinates.getOffsets(), coordinates.hasZ());
+	}
+
+	/**
+	 * Method to project a geometry. Geometries are projected from their own
+	 * spatial reference, defaulting to the source spatial reference, and take the
+	 * target spatial reference. Polylines and polygons already in the target
+	 * spatial reference are returned unchanged.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Projected geometry, or the same geometry if unchanged.
+	 */
+	public Geometry project(Geometry geometry) {
+		if (geometry instanceof Point) {
+			return this.project((Point) geometry);
+		} else if (geometry instanceof Extent) {
+			return this.project((Extent) geometry);
+		} else if (geometry instanceof Polyline) {
+			Polyline source = (Polyline) geometry;
+			if (!this.isTarget(source.getSpatialReference())) {
+				Polyline p = new Polyline();
+				p.setCoordinates(this.forSource(source.getSpatialReference()).project(source.getCoordinates()));
+				p.setSpatialReference(new SpatialReference(this.toWkid));
+				return p;
+			}
+		} else if (geometry instanceof Polygon) {
+			Polygon source = (Polygon) geometry;
+			if (!this.isTarget(source.getSpatialReference())) {
+				Polygon p = new Polygon();
+				p.setCoordinates(this.forSource(source.getSpatialReference()).project(source.getCoordinates()));
+				p.setSpatialReference(new SpatialReference(this.toWkid));
+				return p;
+			}
+		}
+
+		return geometry;
+	}
+
+	/**
+	 * Method to project a point.
+	 * 
+	 * @param point Point.
+	 * @return Projected point.
+	 */
+	public Point project(Point point) {
+		GeometryProjector projector = this.forSource(point.getSpatialReference());
+
+		Point p = new Point(point.getLatitude(), point.getLongitude(), point.getZ());
+		p.setSpatialReference(new SpatialReference(this.toWkid));
+
+		if ((point.getLatitude() != null) && (point.getLongitude() != null)) {
+			double[] values = { point.getLongitude(), point.getLatitude() };
+			projector.project(values, 0, 1, 2);
+			p.setLongitude(values[0]);
+			p.setLatitude(values[1]);
+		}
+
+		return p;
+	}
+
+	/**
+	 * Method to project an extent. Extents crossing the antimeridian keep their
+	 * minimum X-point greater than their maximum X-point.
+	 * 
+	 * @param extent Extent.
+	 * @return Projected extent.
+	 */
+	public Extent project(Extent extent) {
+		GeometryProjector projector = this.forSource(extent.getSpatialReference());
+
+		double[] values = { extent.getXmin(), extent.getYmin(), extent.getXmax(), extent.getYmax() };
+		projector.project(values, 0, 2, 2);
+
+		return new Extent(this.toWkid, values[0], values[1], values[2], values[3]);
+	}
+
+	/**
+	 * Method to determine if a geometry spatial reference is the target spatial
+	 * reference.
+	 * 
+	 * @param sr Spatial reference, or <code>null</code> for the source spatial
+	 *           reference.
+	 * @return <code>true</code> if the target, <code>false</code> otherwise.
+	 */
+	private boolean isTarget(SpatialReference sr) {
+		return ((sr != null) ? sr.getWkid() : this.fromWkid) == this.toWkid;
+	}
+
+	/**
+	 * Method to get a projector from the spatial reference of a geometry.
+	 * 
+	 * @param sr Spatial reference, or <code>null</code> for the source spatial
+	 *           reference.
+	 * @return GeometryProjector
+	 */
+	private GeometryProjector forSource(SpatialReference sr) {
+		return ((sr == null) || (sr.getWkid() == this.fromWkid)) ? this : new GeometryProjector(sr.getWkid(), this.toWkid);
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.geometry;
+
+/**
+ * Geometry rounder class. Rounds coordinates to a fixed number of decimal
+ * places, so the shortest JSON form of each coordinate has at most that many
+ * decimals. For example, six decimal places of WGS84 degrees is about 0.1
+ * meters at the equator.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class GeometryRounder {
+	/** Maximum supported decimal places. */
+	public static final int MAX_DECIMALS = 15;
+
+	/** Largest integer with an exact double representation. */
+	private static final double MAX_EXACT = 9007199254740992.0;
+
+	/** Decimal places. */
+	private final int decimals;
+
+	/** Scale factor of the decimal places. */
+	private final double factor;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param decimals Decimal places.
+	 */
+	public GeometryRounder(int decimals) {
+		super();
+
+		if ((decimals < 0) || (decimals > MAX_DECIMALS)) {
+			throw new IllegalArgumentException(String.format("Unsupported coordinate precision '%s'.", decimals));
+		}
+
+		this.decimals = decimals;
+		this.factor = Math.pow(10, decimals);
+	}
+
+	/**
+	 * Method to get the decimal places.
+	 * 
+	 * @return Decimal places.
+	 */
+	public int getDecimals() {
+		return this.decimals;
+	}
+
+	/**
+	 * Method to round a value. Values too large to scale exactly are returned
+	 * unchanged.
+	 * 
+	 * @param value Value.
+	 * @return Rounded value.
+	 */
+	public double round(double value) {
+		double scaled = value * this.factor;
+		return (Math.abs(scaled) < MAX_EXACT) ? Math.rint(scaled) / this.factor : value;
+	}
+
+	/**
+	 * Method to round a geometry. Unsupported geometries are returned unchanged.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Rounded geometry.
+	 */
+	public Geometry round(Geometry geometry) {
+		if (geometry instanceof Point) {
+			return this.round((Point) geometry);
+		} else if (geometry instanceof Extent) {
+			Extent e = (Extent) geometry;
+			int wkid = (e.getSpatialReference() != null) ? e.getSpatialReference().getWkid() : SpatialReference.WKID_WGS84;
+			return new Extent(wkid, this.round(e.getXmin()), this.round(e.getYmin()), this.round(e.getXmax()), this.round(e.getYmax()));
+		} else if ((geometry instanceof Polyline) && (((Polyline) geometry).getCoordinates() != null)) {
+			Polyline p = new Polyline();
+			p.setCoordinates(this.round(((Polyline) geometry).getCoordinates()));
+			p.setSpatialReference(((Polyline) geometry).getSpatialReference());
+			return p;
+		} else if ((geometry instanceof Polygon) && (((Polygon) geometry).getCoordinates() != null)) {
+			Polygon p = new Polygon();
+			p.setCoordinates(this.round(((Polygon) geometry).getCoordinates()));
+			p.setSpatialReference(((Polygon) geometry).getSpatialReference());
+			return p;
+		}
+
+		return geometry;
+	}
+
+	/**
+	 * Method to round a point.
+	 * 
+	 * @param point Point.
+	 * @return Rounded point.
+	 */
+	public Point round(Point point) {
+		Point p = new Point(this.round(point.getLatitude()), this.round(point.getLongitude()), this.round(point.getZ()));
+		p.setSpatialReference(point.getSpatialReference());
+		return p;
+	}
+
+	/**
+	 * Method to round packed coordinates.
+	 * 
+	 * @param coordinates Packed coordinates.
+	 * @return Rounded packed coordinates.
+	 */
+	public PackedCoordinates round(PackedCoordinates coordinates) {
+		double[] values = coordinates.getValues().clone();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = this.round(values[i]);
+		}
+
+		return PackedCoordinates.wrap(values, coordinates.getOffsets(), coordinates.hasZ());
+	}
+
+	/**
+	 * Method to round a nullable value.
+	 * 
+	 * @param value Value.
+	 * @return Rounded value, or <code>null</code>.
+	 */
+	private Double round(Double value) {
+		return (value != null) ? Double.valueOf(this.round(value.doubleValue())) : null;
+	}
+}
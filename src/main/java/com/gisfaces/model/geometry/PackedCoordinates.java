@@ -0,0 +1,508 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.geometry;
+
+import com.gisfaces.utilities.json.JSONNumberFormatter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Packed coordinates class. Stores the coordinates of a multipart geometry in
+ * a single primitive array of interleaved X/Y or X/Y/Z values, with the
+ * starting point index of every part. Missing coordinate values are stored as
+ * NaN.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public final class PackedCoordinates implements Serializable {
+	/** Serial Version UID. */
+	private static final long serialVersionUID = 7703162402264384391L;
+
+	/** Interleaved coordinate values. */
+	private final double[] coordinates;
+
+	/** Starting point index of each part, followed by the number of points. */
+	private final int[] offsets;
+
+	/** Number of values per point. */
+	private final int dimension;
+
+	/** Cached X/Y bounds, calculated on first use. */
+	private transient volatile double[] bounds;
+
+	/**
+	 * Constructor. The arrays are copied, so later changes to them are not
+	 * visible to the packed coordinates.
+	 * 
+	 * @param coordinates Interleaved coordinate values.
+	 * @param offsets     Starting point index of each part, followed by the
+	 *                    number of points.
+	 * @param z           Indicator that each point includes a Z-value.
+	 */
+	public PackedCoordinates(double[] coordinates, int[] offsets, boolean z) {
+		this(coordinates.clone(), (offsets != null) ? offsets.clone() : null, z ? 3 : 2);
+	}
+
+	/**
+	 * Constructor which takes ownership of the arrays without copying.
+	 * 
+	 * @param coordinates Interleaved coordinate values.
+	 * @param offsets     Starting point index of each part, followed by the
+	 *                    number of points.
+	 * @param dimension   Number of values per point.
+	 */
+	private PackedCoordinates(double[] coordinates, int[] offsets, int dimension) {
+		super();
+
+		if ((offsets == null) || (offsets.length == 0) || (offsets[0] != 0)) {
+			throw new IllegalArgumentException("Part offsets must start at zero.");
+		}
+
+		this.coordinates = coordinates;
+		this.offsets = offsets;
+		this.dimension = dimension;
+
+		if (coordinates.length != (offsets[offsets.length - 1] * this.dimension)) {
+			throw new IllegalArgumentException("Coordinate values do not match the part offsets.");
+		}
+	}
+
+	/**
+	 * Method to wrap coordinate arrays without copying. The caller hands over
+	 * the arrays, and must not modify them afterwards. Intended for loaders
+	 * which build the arrays exclusively for the packed coordinates.
+	 * 
+	 * @param coordinates Interleaved coordinate values.
+	 * @param offsets     Starting point index of each part, followed by the
+	 *                    number of points.
+	 * @param z           Indicator that each point includes a Z-value.
+	 * @return PackedCoordinates
+	 */
+	public static PackedCoordinates wrap(double[] coordinates, int[] offsets, boolean z) {
+		return new PackedCoordinates(coordinates, offsets, z ? 3 : 2);
+	}
+
+	/**
+	 * Method to pack nested coordinate arrays. Parts may have different lengths.
+	 * Z-values are kept if any point has one, and missing Z-values of the other
+	 * points are stored as NaN.
+	 * 
+	 * @param parts Coordinate parts of X/Y or X/Y/Z-point arrays.
+	 * @return PackedCoordinates, or null if the parts are null.
+	 */
+	public static PackedCoordinates valueOf(Double[][][] parts) {
+		if (parts == null) {
+			return null;
+		}
+
+		// Count the points and check for Z-values.
+		int count = 0;
+		boolean z = false;
+		for (Double[][] part : parts) {
+			if (part != null) {
+				count += part.length;
+				for (Double[] c : part) {
+					z |= (c != null) && (c.length > 2) && (c[2] != null);
+				}
+			}
+		}
+
+		Builder builder = new Builder(z, count, parts.length);
+		for (Double[][] part : parts) {
+			builder.startPart();
+			if (part != null) {
+				for (Double[] c : part) {
+					builder.add(PackedCoordinates.value(c, 0), PackedCoordinates.value(c, 1), PackedCoordinates.value(c, 2));
+				}
+			}
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Method to get a coordinate value as a primitive.
+	 * 
+	 * @param c     Coordinate.
+	 * @param index Value index.
+	 * @return Value, or NaN if missing.
+	 */
+	private static double value(Double[] c, int index) {
+		return ((c != null) && (c.length > index) && (c[index] != null)) ? c[index] : Double.NaN;
+	}
+
+	/**
+	 * Method to unpack into nested coordinate arrays.
+	 * 
+	 * @return Coordinate parts of X/Y or X/Y/Z-point arrays.
+	 */
+	public Double[][][] toArray() {
+		Double[][][] parts = new Double[this.getPartCount()][][];
+
+		for (int p = 0; p < parts.length; p++) {
+			parts[p] = new Double[this.getPartEnd(p) - this.getPartStart(p)][];
+			for (int i = this.getPartStart(p), j = 0; i < this.getPartEnd(p); i++, j++) {
+				Double[] c = new Double[this.dimension];
+				for (int d = 0; d < this.dimension; d++) {
+					double v = this.coordinates[(i * this.dimension) + d];
+					c[d] = Double.isNaN(v) ? null : v;
+				}
+				parts[p][j] = c;
+			}
+		}
+
+		return parts;
+	}
+
+	/**
+	 * Method to get the number of parts.
+	 * 
+	 * @return Number of parts.
+	 */
+	public int getPartCount() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * Method to get the total number of points.
+	 * 
+	 * @return Number of points.
+	 */
+	public int getPointCount() {
+		return this.offsets[this.offsets.length - 1];
+	}
+
+	/**
+	 * Method to get the index of the first point of a part.
+	 * 
+	 * @param part Part index.
+	 * @return Point index, inclusive.
+	 */
+	public int getPartStart(int part) {
+		return this.offsets[part];
+	}
+
+	/**
+	 * Method to get the index after the last point of a part.
+	 * 
+	 * @param part Part index.
+	 * @return Point index, exclusive.
+	 */
+	public int getPartEnd(int part) {
+		return this.offsets[part + 1];
+	}
+
+	/**
+	 * Method to get the X-value of a point.
+	 * 
+	 * @param point Point index.
+	 * @return X-value.
+	 */
+	public double getX(int point) {
+		return this.coordinates[point * this.dimension];
+	}
+
+	/**
+	 * Method to get the Y-value of a point.
+	 * 
+	 * @param point Point index.
+	 * @return Y-value.
+	 */
+	public double getY(int point) {
+		return this.coordinates[(point * this.dimension) + 1];
+	}
+
+	/**
+	 * Method to get the Z-value of a point.
+	 * 
+	 * @param point Point index.
+	 * @return Z-value, or NaN if the points do not include Z-values.
+	 */
+	public double getZ(int point) {
+		return (this.dimension > 2) ? this.coordinates[(point * this.dimension) + 2] : Double.NaN;
+	}
+
+	/**
+	 * Method to determine if the points include Z-values.
+	 * 
+	 * @return <code>true</code> if the points include Z-values,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean hasZ() {
+		return (this.dimension > 2);
+	}
+
+	/**
+	 * Method to get the number of values per point.
+	 * 
+	 * @return 2 for X/Y-points, or 3 for X/Y/Z-points.
+	 */
+	public int getDimension() {
+		return this.dimension;
+	}
+
+	/**
+	 * Method to get the interleaved coordinate values without copying.
+	 * 
+	 * @return Interleaved coordinate values.
+	 */
+	double[] getValues() {
+		return this.coordinates;
+	}
+
+	/**
+	 * Method to get the part offsets without copying.
+	 * 
+	 * @return Starting point index of each part, followed by the number of points.
+	 */
+	int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Method to get the X/Y bounds of all points, ignoring points with missing
+	 * values. The bounds are calculated once and cached.
+	 * 
+	 * @return Array of minimum X, minimum Y, maximum X and maximum Y-values, or
+	 *         <code>null</code> if there are no points.
+	 */
+	double[] getBounds() {
+		double[] b = this.bounds;
+
+		if (b == null) {
+			double xmin = Double.POSITIVE_INFINITY;
+			double ymin = Double.POSITIVE_INFINITY;
+			double xmax = Double.NEGATIVE_INFINITY;
+			double ymax = Double.NEGATIVE_INFINITY;
+
+			for (int i = 0; i < this.coordinates.length; i += this.dimension) {
+				double x = this.coordinates[i];
+				double y = this.coordinates[i + 1];
+				if (!Double.isNaN(x) && !Double.isNaN(y)) {
+					xmin = Math.min(xmin, x);
+					ymin = Math.min(ymin, y);
+					xmax = Math.max(xmax, x);
+					ymax = Math.max(ymax, y);
+				}
+			}
+
+			b = (xmin <= xmax) ? new double[] { xmin, ymin, xmax, ymax } : new double[0];
+			this.bounds = b;
+		}
+
+		return (b.length > 0) ? b : null;
+	}
+
+	/**
+	 * Method to get a copy of the coordinates without Z-values.
+	 * 
+	 * @return PackedCoordinates
+	 */
+	PackedCoordinates withoutZ() {
+		if (this.dimension == 2) {
+			return this;
+		}
+
+		int count = this.getPointCount();
+		double[] c = new double[count * 2];
+		for (int i = 0; i < count; i++) {
+			c[i * 2] = this.coordinates[i * 3];
+			c[(i * 2) + 1] = this.coordinates[(i * 3) + 1];
+		}
+
+		return new PackedCoordinates(c, this.offsets, 2);
+	}
+
+	/**
+	 * Method to write the coordinates as nested JSON arrays of points.
+	 * 
+	 * @param out Appendable
+	 * @throws IOException
+	 */
+	public void write(Appendable out) throws IOException {
+		out.append('[');
+		for (int p = 0; p < this.getPartCount(); p++) {
+			if (p > 0) {
+				out.append(',');
+			}
+			this.writePart(out, p);
+		}
+		out.append(']');
+	}
+
+	/**
+	 * Method to write the points of a part as a JSON array of points.
+	 * 
+	 * @param out  Appendable
+	 * @param part Part index.
+	 * @throws IOException
+	 */
+	public void writePart(Appendable out, int part) throws IOException {
+		out.append('[');
+		for (int i = this.getPartStart(part); i < this.getPartEnd(part); i++) {
+			if (i > this.getPartStart(part)) {
+				out.append(',');
+			}
+			out.append('[');
+			for (int d = 0; d < this.dimension; d++) {
+				if (d > 0) {
+					out.append(',');
+				}
+				JSONNumberFormatter.write(out, this.coordinates[(i * this.dimension) + d]);
+			}
+			out.append(']');
+		}
+		out.append(']');
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PackedCoordinates)) {
+			return false;
+		}
+		PackedCoordinates pc = (PackedCoordinates) o;
+		return (this.dimension == pc.dimension) && Arrays.equals(this.offsets, pc.offsets) && Arrays.equals(this.coordinates, pc.coordinates);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return (31 * Arrays.hashCode(this.offsets)) + Arrays.hashCode(this.coordinates);
+	}
+
+	/**
+	 * Packed coordinates builder class.
+	 */
+	public static final class Builder {
+		/** Number of values per point. */
+		private final int dimension;
+
+		/** Interleaved coordinate values. */
+		private double[] coordinates;
+
+		/** Starting point index of each part. */
+		private int[] offsets;
+
+		/** Number of values. */
+		private int size;
+
+		/** Number of parts. */
+		private int parts;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param z Indicator that each point includes a Z-value.
+		 */
+		public Builder(boolean z) {
+			this(z, 16, 1);
+		}
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param z          Indicator that each point includes a Z-value.
+		 * @param points     Expected number of points.
+		 * @param partsCount Expected number of parts.
+		 */
+		public Builder(boolean z, int points, int partsCount) {
+			this.dimension = z ? 3 : 2;
+			this.coordinates = new double[Math.max(points, 1) * this.dimension];
+			this.offsets = new int[Math.max(partsCount, 1) + 1];
+		}
+
+		/**
+		 * Method to start a new part.
+		 * 
+		 * @return this.
+		 */
+		public Builder startPart() {
+			if ((this.parts + 2) > this.offsets.length) {
+				this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+			}
+			this.offsets[this.parts++] = this.size / this.dimension;
+			return this;
+		}
+
+		/**
+		 * Method to add an X/Y-point to the current part.
+		 * 
+		 * @param x X-value.
+		 * @param y Y-value.
+		 * @return this.
+		 */
+		public Builder add(double x, double y) {
+			return this.add(x, y, Double.NaN);
+		}
+
+		/**
+		 * Method to add a point to the current part. The Z-value is ignored unless
+		 * the builder includes Z-values.
+		 * 
+		 * @param x X-value.
+		 * @param y Y-value.
+		 * @param z Z-value.
+		 * @return this.
+		 */
+		public Builder add(double x, double y, double z) {
+			if (this.parts == 0) {
+				this.startPart();
+			}
+			if ((this.size + this.dimension) > this.coordinates.length) {
+				this.coordinates = Arrays.copyOf(this.coordinates, this.coordinates.length * 2);
+			}
+			this.coordinates[this.size++] = x;
+			this.coordinates[this.size++] = y;
+			if (this.dimension > 2) {
+				this.coordinates[this.size++] = z;
+			}
+			return this;
+		}
+
+		/**
+		 * Method to build the packed coordinates.
+		 * 
+		 * @return PackedCoordinates
+		 */
+		public PackedCoordinates build() {
+			int[] o = Arrays.copyOf(this.offsets, this.parts + 1);
+			o[this.parts] = this.size / this.dimension;
+			return new PackedCoordinates(Arrays.copyOf(this.coordinates, this.size), o, this.dimension);
+		}
+	}
+}
@@ -24,17 +24,22 @@
 
 package com.gisfaces.model.geometry;
 
+import com.gisfaces.utilities.json.JSONNumberFormatter;
+import com.gisfaces.utilities.json.JSONWritable;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
- * Geometry point class.
+ * Geometry point class. Points in a projected spatial reference hold their
+ * X/Y-values in the longitude and latitude values, and are serialized with
+ * X/Y-values instead.
  * 
  * @author Chris Duncan (cduncan@gisfaces.com)
  * @see <a href=
  *      "https://developers.arcgis.com/javascript/latest/api-reference/esri-geometry-Point.html">ESRI
  *      Point</a>
  */
-public class Point implements Geometry, Serializable {
+public class Point implements Geometry, JSONWritable, Serializable {
 	/** Serial Version UID. */
 	private static final long serialVersionUID = 8606961765098525165L;
 
@@ -169,6 +174,19 @@ public class Point implements Geometry, Serializable {
 		this.spatialReference = spatialReference;
 	}
 
+	/**
+	 * Method to project the point to another spatial reference. Projected X/Y-values
+	 * are held in the longitude and latitude values.
+	 * 
+	 * @param wkid Target spatial reference well-known ID.
+	 * @return Projected point.
+	 * @see GeometryProjector
+	 */
+	public Point project(int wkid) {
+		int from = (this.spatialReference != null) ? this.spatialReference.getWkid() : SpatialReference.WKID_WGS84;
+		return new GeometryProjector(from, wkid).project(this);
+	}
+
 	/**
 	 * Method to validate the point values.
 	 * 
@@ -179,6 +197,67 @@ public class Point implements Geometry, Serializable {
 				&& (this.longitude >= -180));
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONString#toJSONString()
+	 */
+	@Override
+	public String toJSONString() {
+		StringBuilder sb = new StringBuilder();
+
+		try {
+			this.write(sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONWritable#write(java.lang.Appendable)
+	 */
+	@Override
+	public void write(Appendable out) throws IOException {
+		boolean projected = (this.spatialReference != null) && (this.spatialReference.getWkid() != SpatialReference.WKID_WGS84);
+		out.append('{');
+
+		// Write the properties followed by the type, omitting nulls.
+		if (projected) {
+			Point.write(out, "x", this.longitude);
+			Point.write(out, "y", this.latitude);
+		} else {
+			Point.write(out, "latitude", this.latitude);
+			Point.write(out, "longitude", this.longitude);
+			out.append("\"valid\":").append(Boolean.toString(this.isValid())).append(',');
+		}
+		Point.write(out, "z", this.z);
+		if (this.spatialReference != null) {
+			out.append("\"spatialReference\":{\"wkid\":").append(Integer.toString(this.spatialReference.getWkid())).append("},");
+		}
+
+		out.append("\"type\":\"").append(this.getType()).append("\"}");
+	}
+
+	/**
+	 * Method to write a numeric property followed by a separator, if set.
+	 * 
+	 * @param out   Output.
+	 * @param name  Property name.
+	 * @param value Property value, or <code>null</code>.
+	 * @throws IOException
+	 */
+	private static void write(Appendable out, String name, Double value) throws IOException {
+		if (value != null) {
+			out.append('"').append(name).append("\":");
+			JSONNumberFormatter.write(out, value);
+			out.append(',');
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
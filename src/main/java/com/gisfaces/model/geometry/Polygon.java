@@ -24,6 +24,8 @@
 
 package com.gisfaces.model.geometry;
 
+import com.gisfaces.utilities.json.JSONWritable;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -35,12 +37,15 @@ import java.util.Arrays;
  *      "https://developers.arcgis.com/javascript/latest/api-reference/esri-geometry-Polygon.html">ESRI
  *      Polygon</a>
  */
-public class Polygon implements Geometry, Serializable {
+public class Polygon implements Geometry, JSONWritable, Serializable {
 	/** Serial Version UID. */
-	private static final long serialVersionUID = -5299440821893057808L;
+	private static final long serialVersionUID = 6385962712493115947L;
 
-	/** Polygon rings. */
-	private Double rings[][][];
+	/** Polygon rings, packed. */
+	private PackedCoordinates coordinates;
+
+	/** Spatial reference, or null for WGS84. */
+	private SpatialReference spatialReference;
 
 	/**
 	 * Constructor.
@@ -60,21 +65,115 @@ public class Polygon implements Geometry, Serializable {
 	}
 
 	/**
-	 * Method to get the polygon rings.
+	 * Method to get the polygon rings. The nested arrays are unpacked from the
+	 * packed coordinates on every call, so they are a copy, and changes to them
+	 * only take effect when passed back to <code>setRings</code>.
 	 * 
-	 * @return
+	 * @return Copy of the polygon rings.
 	 */
 	public Double[][][] getRings() {
-		return rings;
+		return (this.coordinates != null) ? this.coordinates.toArray() : null;
 	}
 
 	/**
-	 * Method to set the polygon rings.
+	 * Method to set the polygon rings. The nested arrays are packed, and are not
+	 * referenced by the polygon afterwards.
 	 * 
 	 * @param rings
 	 */
 	public void setRings(Double[][][] rings) {
-		this.rings = rings;
+		this.coordinates = PackedCoordinates.valueOf(rings);
+	}
+
+	/**
+	 * Method to get the packed polygon rings.
+	 * 
+	 * @return PackedCoordinates
+	 */
+	public PackedCoordinates getCoordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * Method to set the packed polygon rings.
+	 * 
+	 * @param coordinates PackedCoordinates
+	 */
+	public void setCoordinates(PackedCoordinates coordinates) {
+		this.coordinates = coordinates;
+	}
+
+	/**
+	 * Method to get the spatial reference.
+	 * 
+	 * @return
+	 */
+	public SpatialReference getSpatialReference() {
+		return spatialReference;
+	}
+
+	/**
+	 * Method to set the spatial reference.
+	 * 
+	 * @param spatialReference
+	 */
+	public void setSpatialReference(SpatialReference spatialReference) {
+		this.spatialReference = spatialReference;
+	}
+
+	/**
+	 * Method to project the polygon to another spatial reference.
+	 * 
+	 * @param wkid Target spatial reference well-known ID.
+	 * @return Projected polygon.
+	 * @see GeometryProjector
+	 */
+	public Polygon project(int wkid) {
+		int from = (this.spatialReference != null) ? this.spatialReference.getWkid() : SpatialReference.WKID_WGS84;
+		return (Polygon) new GeometryProjector(from, wkid).project(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONString#toJSONString()
+	 */
+	@Override
+	public String toJSONString() {
+		StringBuilder sb = new StringBuilder();
+
+		try {
+			this.write(sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONWritable#write(java.lang.Appendable)
+	 */
+	@Override
+	public void write(Appendable out) throws IOException {
+		out.append('{');
+
+		// Write the properties in the order of bean serialization, omitting nulls.
+		if (this.coordinates != null) {
+			if (this.coordinates.hasZ()) {
+				out.append("\"hasZ\":true,");
+			}
+			out.append("\"rings\":");
+			this.coordinates.write(out);
+			out.append(',');
+		}
+		if (this.spatialReference != null) {
+			out.append("\"spatialReference\":{\"wkid\":").append(Integer.toString(this.spatialReference.getWkid())).append("},");
+		}
+
+		out.append("\"type\":\"").append(this.getType()).append("\"}");
 	}
 
 	/*
@@ -84,6 +183,6 @@ public class Polygon implements Geometry, Serializable {
 	 */
 	@Override
 	public String toString() {
-		return String.format("{type='%s', paths=%s}", this.getType(), Arrays.deepToString(this.rings));
+		return String.format("{type='%s', paths=%s}", this.getType(), Arrays.deepToString(this.getRings()));
 	}
 }
@@ -24,6 +24,8 @@
 
 package com.gisfaces.model.geometry;
 
+import com.gisfaces.utilities.json.JSONWritable;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -35,12 +37,15 @@ import java.util.Arrays;
  *      "https://developers.arcgis.com/javascript/latest/api-reference/esri-geometry-Polyline.html">ESRI
  *      Polyline</a>
  */
-public class Polyline implements Geometry, Serializable {
+public class Polyline implements Geometry, JSONWritable, Serializable {
 	/** Serial Version UID. */
-	private static final long serialVersionUID = -4215084863724245402L;
+	private static final long serialVersionUID = -2405872133402659012L;
 
-	/** Polyline paths. */
-	private Double paths[][][];
+	/** Polyline paths, packed. */
+	private PackedCoordinates coordinates;
+
+	/** Spatial reference, or null for WGS84. */
+	private SpatialReference spatialReference;
 
 	/**
 	 * Constructor.
@@ -60,21 +65,115 @@ public class Polyline implements Geometry, Serializable {
 	}
 
 	/**
-	 * Method to get the polyline paths.
+	 * Method to get the polyline paths. The nested arrays are unpacked from the
+	 * packed coordinates on every call, so they are a copy, and changes to them
+	 * only take effect when passed back to <code>setPaths</code>.
 	 * 
-	 * @return
+	 * @return Copy of the polyline paths.
 	 */
 	public Double[][][] getPaths() {
-		return paths;
+		return (this.coordinates != null) ? this.coordinates.toArray() : null;
 	}
 
 	/**
-	 * Method to set the polyline paths.
+	 * Method to set the polyline paths. The nested arrays are packed, and are not
+	 * referenced by the polyline afterwards.
 	 * 
 	 * @param paths
 	 */
 	public void setPaths(Double[][][] paths) {
-		this.paths = paths;
+		this.coordinates = PackedCoordinates.valueOf(paths);
+	}
+
+	/**
+	 * Method to get the packed polyline paths.
+	 * 
+	 * @return PackedCoordinates
+	 */
+	public PackedCoordinates getCoordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * Method to set the packed polyline paths.
+	 * 
+	 * @param coordinates PackedCoordinates
+	 */
+	public void setCoordinates(PackedCoordinates coordinates) {
+		this.coordinates = coordinates;
+	}
+
+	/**
+	 * Method to get the spatial reference.
+	 * 
+	 * @return
+	 */
+	public SpatialReference getSpatialReference() {
+		return spatialReference;
+	}
+
+	/**
+	 * Method to set the spatial reference.
+	 * 
+	 * @param spatialReference
+	 */
+	public void setSpatialReference(SpatialReference spatialReference) {
+		this.spatialReference = spatialReference;
+	}
+
+	/**
+	 * Method to project the polyline to another spatial reference.
+	 * 
+	 * @param wkid Target spatial reference well-known ID.
+	 * @return Projected polyline.
+	 * @see GeometryProjector
+	 */
+	public Polyline project(int wkid) {
+		int from = (this.spatialReference != null) ? this.spatialReference.getWkid() : SpatialReference.WKID_WGS84;
+		return (Polyline) new GeometryProjector(from, wkid).project(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONString#toJSONString()
+	 */
+	@Override
+	public String toJSONString() {
+		StringBuilder sb = new StringBuilder();
+
+		try {
+			this.write(sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONWritable#write(java.lang.Appendable)
+	 */
+	@Override
+	public void write(Appendable out) throws IOException {
+		out.append('{');
+
+		// Write the properties in the order of bean serialization, omitting nulls.
+		if (this.coordinates != null) {
+			if (this.coordinates.hasZ()) {
+				out.append("\"hasZ\":true,");
+			}
+			out.append("\"paths\":");
+			this.coordinates.write(out);
+			out.append(',');
+		}
+		if (this.spatialReference != null) {
+			out.append("\"spatialReference\":{\"wkid\":").append(Integer.toString(this.spatialReference.getWkid())).append("},");
+		}
+
+		out.append("\"type\":\"").append(this.getType()).append("\"}");
 	}
 
 	/*
@@ -84,6 +183,6 @@ public class Polyline implements Geometry, Serializable {
 	 */
 	@Override
 	public String toString() {
-		return String.format("{type='%s', paths=%s}", this.getType(), Arrays.deepToString(this.paths));
+		return String.format("{type='%s', paths=%s}", this.getType(), Arrays.deepToString(this.getPaths()));
 	}
 }
@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.geometry;
+
+import com.gisfaces.utilities.json.JSONWritable;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Quantized geometry class. Wraps a point, polyline or polygon geometry and
+ * writes its coordinates in a compact JSON wire format instead of decimal
+ * coordinate arrays. Coordinates are multiplied by a power of ten factor and
+ * rounded to integers, and the points of each path or ring are written as the
+ * difference from the previous point.
+ * <p>
+ * A quantized geometry is written as <code>{"q":[factor,...],"type":...}</code>,
+ * followed by the X/Y-integers of a point, or one flat array of X/Y-deltas per
+ * path or ring, starting from zero.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class QuantizedGeometry implements Geometry, JSONWritable, Serializable {
+	/** Serial Version UID. */
+	private static final long serialVersionUID = -2783508734101398861L;
+
+	/** Largest integer with an exact double representation, 2^53. */
+	private static final double MAX_EXACT = 9007199254740992.0;
+
+	/** Maximum number of decimal digits, keeping 180 degree deltas exact. */
+	private static final int MAX_DIGITS = 13;
+
+	/** Source geometry. */
+	private final Geometry geometry;
+
+	/** Quantization factor, a power of ten. */
+	private final long factor;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param geometry Point, polyline or polygon geometry with X/Y-coordinates.
+	 * @param factor   Quantization factor, a power of ten.
+	 */
+	private QuantizedGeometry(Geometry geometry, long factor) {
+		super();
+		this.geometry = geometry;
+		this.factor = factor;
+	}
+
+	/**
+	 * Method to quantize a geometry to a grid no coarser than a distance
+	 * tolerance. Geometries which cannot be quantized, such as geometries with
+	 * Z-values, missing coordinate values or a projected spatial reference, are
+	 * returned unchanged.
+	 * 
+	 * @param geometry  Geometry.
+	 * @param tolerance Grid distance tolerance in geographic units.
+	 * @return Quantized geometry, or the same geometry if not supported.
+	 */
+	public static Geometry quantize(Geometry geometry, double tolerance) {
+		if (!QuantizedGeometry.isSupported(geometry) || !(tolerance > 0)) {
+			return geometry;
+		}
+
+		// Use the coarsest power of ten grid within the tolerance.
+		int digits = (int) Math.max(Math.min(Math.ceil(-Math.log10(tolerance)), MAX_DIGITS), 0);
+		long factor = 1;
+		for (int i = 0; i < digits; i++) {
+			factor *= 10;
+		}
+
+		// Keep the integers and deltas exact in JavaScript, also for coordinates beyond 180 degrees.
+		Extent e = Extent.envelope(geometry);
+		double max = (e != null) ? Math.max(Math.max(Math.abs(e.getXmin()), Math.abs(e.getXmax())), Math.max(Math.abs(e.getYmin()), Math.abs(e.getYmax()))) : 0;
+		while ((factor > 1) && ((2 * max * factor) >= MAX_EXACT)) {
+			factor /= 10;
+		}
+
+		return new QuantizedGeometry(geometry, factor);
+	}
+
+	/**
+	 * Method to determine if a geometry can be quantized.
+	 * 
+	 * @param geometry Geometry.
+	 * @return <code>true</code> if supported, <code>false</code> otherwise.
+	 */
+	private static boolean isSupported(Geometry geometry) {
+		if (geometry instanceof Point) {
+			Point p = (Point) geometry;
+			return (p.getLatitude() != null) && (p.getLongitude() != null) && (p.getZ() == null)
+					&& ((p.getSpatialReference() == null) || (p.getSpatialReference().getWkid() == SpatialReference.WKID_WGS84));
+		}
+
+		PackedCoordinates c = null;
+		SpatialReference sr = null;
+		if (geometry instanceof Polyline) {
+			c = ((Polyline) geometry).getCoordinates();
+			sr = ((Polyline) geometry).getSpatialReference();
+		} else if (geometry instanceof Polygon) {
+			c = ((Polygon) geometry).getCoordinates();
+			sr = ((Polygon) geometry).getSpatialReference();
+		}
+
+		// The wire format carries no spatial reference, and the tolerance is in degrees.
+		if ((sr != null) && (sr.getWkid() != SpatialReference.WKID_WGS84)) {
+			return false;
+		}
+
+		if ((c == null) || c.hasZ()) {
+			return false;
+		}
+		for (int i = 0; i < c.getPointCount(); i++) {
+			if (Double.isNaN(c.getX(i)) || Double.isNaN(c.getY(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.model.geometry.Geometry#getType()
+	 */
+	@Override
+	public String getType() {
+		return this.geometry.getType();
+	}
+
+	/**
+	 * Method to get the source geometry.
+	 * 
+	 * @return Geometry
+	 */
+	public Geometry getGeometry() {
+		return this.geometry;
+	}
+
+	/**
+	 * Method to get the quantization factor.
+	 * 
+	 * @return Power of ten factor.
+	 */
+	public long getFactor() {
+		return this.factor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONString#toJSONString()
+	 */
+	@Override
+	public String toJSONString() {
+		StringBuilder sb = new StringBuilder();
+
+		try {
+			this.write(sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.utilities.json.JSONWritable#write(java.lang.Appendable)
+	 */
+	@Override
+	public void write(Appendable out) throws IOException {
+		out.append("{\"q\":[").append(Long.toString(this.factor));
+
+		if (this.geometry instanceof Point) {
+			Point p = (Point) this.geometry;
+			out.append(',').append(Long.toString(this.round(p.getLongitude())));
+			out.append(',').append(Long.toString(this.round(p.getLatitude())));
+		} else {
+			PackedCoordinates c = (this.geometry instanceof Polyline) ? ((Polyline) this.geometry).getCoordinates()
+					: ((Polygon) this.geometry).getCoordinates();
+
+			for (int p = 0; p < c.getPartCount(); p++) {
+				long x = 0;
+				long y = 0;
+
+				out.append(",[");
+				for (int i = c.getPartStart(p); i < c.getPartEnd(p); i++) {
+					long qx = this.round(c.getX(i));
+					long qy = this.round(c.getY(i));
+					if (i > c.getPartStart(p)) {
+						out.append(',');
+					}
+					out.append(Long.toString(qx - x)).append(',').append(Long.toString(qy - y));
+					x = qx;
+					y = qy;
+				}
+				out.append(']');
+			}
+		}
+
+		out.append("],\"type\":\"").append(this.getType()).append("\"}");
+	}
+
+	/**
+	 * Method to round a coordinate value to the quantization grid.
+	 * 
+	 * @param value Coordinate value.
+	 * @return Grid integer.
+	 */
+	private long round(double value) {
+		return Math.round(value * this.factor);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("{type='%s', factor=%s, geometry=%s}", this.getType(), this.factor, this.geometry);
+	}
+}
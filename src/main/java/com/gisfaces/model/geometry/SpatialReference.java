@@ -41,6 +41,12 @@ public class SpatialReference implements Serializable {
 	/** Default WKID. */
 	public static final int WKID_WGS84 = 4326;
 
+	/** Web Mercator WKID. */
+	public static final int WKID_WEB_MERCATOR = 3857;
+
+	/** ESRI Web Mercator auxiliary sphere WKID. */
+	public static final int WKID_WEB_MERCATOR_AUXILIARY_SPHERE = 102100;
+
 	/** Well known ID. */
 	private int wkid = SpatialReference.WKID_WGS84;
 
@@ -40,7 +40,7 @@ import java.util.Map;
  *      "https://developers.arcgis.com/javascript/latest/api-reference/esri-Graphic.html">ESRI
  *      Graphic</a>
  */
-public class Graphic implements Serializable {
+public class Graphic implements Cloneable, Serializable {
 	/** Serial Version UID. */
 	private static final long serialVersionUID = -2836518622754022184L;
 
@@ -76,6 +76,24 @@ public class Graphic implements Serializable {
 		reset();
 	}
 
+	/**
+	 * Constructor. The symbol and attributes are used as specified, without
+	 * allocating defaults, so they may be shared between graphics.
+	 * 
+	 * @param id         Graphic ID.
+	 * @param geometry   Graphic geometry.
+	 * @param symbol     Graphic symbol.
+	 * @param attributes Graphic attributes.
+	 */
+	public Graphic(String id, Geometry geometry, Symbol symbol, Map<String, Object> attributes) {
+		super();
+		this.id = id;
+		this.visible = true;
+		this.geometry = geometry;
+		this.symbol = symbol;
+		this.attributes = attributes;
+	}
+
 	/**
 	 * Method to reset the graphic to defaults.
 	 */
@@ -86,6 +104,24 @@ public class Graphic implements Serializable {
 		this.data = null;
 	}
 
+	/**
+	 * Method to create a shallow copy of the graphic with another geometry. The
+	 * copy keeps the class of the graphic, and shares the symbol, attributes and
+	 * other property values of the graphic.
+	 * 
+	 * @param geometry Geometry of the copy.
+	 * @return Graphic
+	 */
+	public Graphic copy(Geometry geometry) {
+		try {
+			Graphic copy = (Graphic) super.clone();
+			copy.geometry = geometry;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * Method to get the graphic ID.
 	 * 
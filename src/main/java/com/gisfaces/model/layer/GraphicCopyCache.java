@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.layer;
+
+import com.gisfaces.model.geometry.Geometry;
+import com.gisfaces.model.graphic.Graphic;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Graphic copy cache class. Keeps the copies of graphics with a derived
+ * geometry between renders, keyed by source graphic identity and validated by
+ * the graphic token of the source, so unchanged graphics reuse their copy
+ * instead of being copied again. Copies not used since the previous call to
+ * <code>retain</code> are dropped.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+final class GraphicCopyCache {
+	/** Copies by source graphic. */
+	private Map<Graphic, Copy> copies;
+
+	/** Copies used since the previous retain, by source graphic. */
+	private Map<Graphic, Copy> used;
+
+	/**
+	 * Constructor.
+	 */
+	GraphicCopyCache() {
+		super();
+		this.copies = new IdentityHashMap<Graphic, Copy>();
+		this.used = new IdentityHashMap<Graphic, Copy>();
+	}
+
+	/**
+	 * Method to get the cached copy of a graphic.
+	 * 
+	 * @param source Source graphic.
+	 * @return Copy, or <code>null</code> if not cached or the source changed.
+	 */
+	Graphic get(Graphic source) {
+		Copy copy = this.used.get(source);
+		if (copy == null) {
+			copy = this.copies.get(source);
+		}
+
+		if ((copy != null) && (copy.token == GraphicsLayer.calculateGraphicToken(source))) {
+			this.used.put(source, copy);
+			return copy.graphic;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Method to get the cached copy of a graphic without marking it as used.
+	 * 
+	 * @param source Source graphic.
+	 * @return Copy, or <code>null</code> if not cached or the source changed.
+	 */
+	Graphic peek(Graphic source) {
+		Copy copy = this.used.get(source);
+		if (copy == null) {
+			copy = this.copies.get(source);
+		}
+
+		return ((copy != null) && (copy.token == GraphicsLayer.calculateGraphicToken(source))) ? copy.graphic : null;
+	}
+
+	/**
+	 * Method to copy a graphic with a derived geometry and cache the copy. The
+	 * source graphic itself is cached when the geometry is unchanged.
+	 * 
+	 * @param source   Source graphic.
+	 * @param geometry Derived geometry.
+	 * @return Copy, or the source graphic.
+	 */
+	Graphic put(Graphic source, Geometry geometry) {
+		Graphic graphic = (geometry == source.getGeometry()) ? source : source.copy(geometry);
+		Copy copy = new Copy(GraphicsLayer.calculateGraphicToken(source), graphic);
+		this.used.put(source, copy);
+		return copy.graphic;
+	}
+
+	/**
+	 * Method to keep only the copies used since the previous call.
+	 */
+	void retain() {
+		this.copies = this.used;
+		this.used = new IdentityHashMap<Graphic, Copy>(this.copies.size());
+	}
+
+	/**
+	 * Cached copy class.
+	 */
+	private static class Copy {
+		/** Graphic token of the source graphic. */
+		private final long token;
+
+		/** Copy. */
+		private final Graphic graphic;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param token   Graphic token of the source graphic.
+		 * @param graphic Copy.
+		 */
+		Copy(long token, Graphic graphic) {
+			super();
+			this.token = token;
+			this.graphic = graphic;
+		}
+	}
+}
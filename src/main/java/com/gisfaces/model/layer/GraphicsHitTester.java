@@ -0,0 +1,323 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.layer;
+
+import com.gisfaces.model.geometry.Extent;
+import com.gisfaces.model.geometry.Geometry;
+import com.gisfaces.model.geometry.GeometryProjector;
+import com.gisfaces.model.geometry.PackedCoordinates;
+import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.Polygon;
+import com.gisfaces.model.geometry.Polyline;
+import com.gisfaces.model.geometry.SpatialReference;
+import com.gisfaces.model.graphic.Graphic;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graphics hit tester class. Resolves a map point against the graphics
+ * displayed for a map view, including clusters and aggregation cells, within a
+ * distance tolerance in degrees of longitude. As Web Mercator stretches
+ * latitude by the secant of the latitude, the latitude tolerance is scaled by
+ * the cosine of the latitude, so the tolerance is the same number of pixels on
+ * both axes. Graphic envelopes are checked first, using the spatial index of
+ * indexed graphics layers, followed by exact point distance, polyline distance
+ * and polygon containment tests. The cluster index, aggregation index and
+ * generalized copies cached by the last render are reused, so the displayed
+ * graphics are not derived again. Map points are in WGS84, and projected
+ * geometries are projected to WGS84 before testing.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class GraphicsHitTester {
+	/** Maximum latitude of the square Web Mercator extent. */
+	private static final double MAX_LATITUDE = 85.0511287798066;
+
+	/** Distance tolerance in degrees of longitude. */
+	private final double tolerance;
+
+	/** View extent, or null if not known. */
+	private final Extent view;
+
+	/** View zoom level. */
+	private final double zoom;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param tolerance Distance tolerance in degrees of longitude.
+	 * @param view      View extent, or null if not known.
+	 * @param zoom      View zoom level.
+	 */
+	public GraphicsHitTester(double tolerance, Extent view, double zoom) {
+		super();
+		this.tolerance = Math.max(tolerance, 0);
+		this.view = view;
+		this.zoom = zoom;
+	}
+
+	/**
+	 * Method to find the graphics hit by a point in a list of layers. Layers
+	 * which are not visible and layers other than graphics layers are skipped.
+	 * 
+	 * @param layers List of layers, in drawing order.
+	 * @param point  Map point.
+	 * @return Hit graphics by layer ID, with the top layer first.
+	 */
+	public Map<String, List<Graphic>> hitTest(List<Layer> layers, Point point) {
+		Map<String, List<Graphic>> hits = new LinkedHashMap<String, List<Graphic>>();
+
+		if (layers != null) {
+			for (int i = layers.size() - 1; i >= 0; i--) {
+				Layer layer = layers.get(i);
+				if ((layer instanceof GraphicsLayer) && !Boolean.FALSE.equals(layer.getVisible())) {
+					List<Graphic> graphics = this.hitTest((GraphicsLayer) layer, point);
+					if (!graphics.isEmpty()) {
+						hits.put(layer.getId(), graphics);
+					}
+				}
+			}
+		}
+
+		return hits;
+	}
+
+	/**
+	 * Method to find the displayed graphics of a layer hit by a point. Clusters
+	 * or aggregation cells, which are drawn above the other graphics, are
+	 * returned first. The other graphics are returned with the top graphic
+	 * first, while graphics of an indexed graphics layer are returned in spatial
+	 * index order. Graphics outside the culling extent of the view are skipped.
+	 * 
+	 * @param layer Graphics layer.
+	 * @param point Map point.
+	 * @return List of hit graphics.
+	 */
+	public List<Graphic> hitTest(GraphicsLayer layer, Point point) {
+		List<Graphic> hits = new ArrayList<Graphic>();
+
+		if ((layer == null) || (point == null) || (point.getLatitude() == null) || (point.getLongitude() == null)) {
+			return hits;
+		}
+
+		double x = point.getLongitude();
+		double y = point.getLatitude();
+		double ty = this.tolerance * GraphicsHitTester.getLatitudeScale(y);
+		Extent bounds = new Extent(x - this.tolerance, y - ty, x + this.tolerance, y + ty);
+		Extent culling = layer.getCullingExtent(this.view);
+
+		// Test the clusters or aggregation cells near the point, which replace the point graphics.
+		boolean aggregated = layer.isAggregated() && (this.zoom <= layer.getAggregationMaxZoom());
+		boolean clustered = !aggregated && layer.isClustered();
+		List<Graphic> replacements = new ArrayList<Graphic>();
+		if (aggregated) {
+			int precision = PointAggregationIndex.calculatePrecision((int) Math.max(Math.floor(this.zoom), 0), layer.getAggregationCellSize());
+			replacements = layer.getAggregationIndex().getGraphics(bounds, precision, layer.getAggregationRamp());
+		} else if (clustered) {
+			replacements = layer.getClusterIndex().getClusters(this.zoom, bounds);
+		}
+		for (int i = replacements.size() - 1; i >= 0; i--) {
+			this.test(replacements.get(i), culling, x, y, hits);
+		}
+
+		// Find the candidates using the spatial index, or scan the graphics from the top.
+		List<Graphic> graphics = (layer instanceof IndexedGraphicsLayer) ? ((IndexedGraphicsLayer) layer).query(bounds) : layer.getGraphics();
+		boolean reversed = !(layer instanceof IndexedGraphicsLayer);
+
+		if (graphics != null) {
+			for (int i = 0; i < graphics.size(); i++) {
+				Graphic g = graphics.get(reversed ? (graphics.size() - 1 - i) : i);
+				if ((g != null) && !((aggregated || clustered) && PointClusterIndex.isClusterable(g))) {
+					this.test(layer.isGeneralized() ? layer.getGeneralizedGraphic(g, this.zoom) : g, culling, x, y, hits);
+				}
+			}
+		}
+
+		return hits;
+	}
+
+	/**
+	 * Method to add a displayed graphic to the hits if it is visible, inside the
+	 * culling extent and hit by a point.
+	 * 
+	 * @param g       Displayed graphic.
+	 * @param culling Culling extent, or <code>null</code> if not culled.
+	 * @param x       Point X-value.
+	 * @param y       Point Y-value.
+	 * @param hits    List of hit graphics.
+	 */
+	private void test(Graphic g, Extent culling, double x, double y, List<Graphic> hits) {
+		if (g.isVisible() && ((culling == null) || culling.intersects(Extent.envelope(g.getGeometry(), GeometryProjector.getWkid(culling))))
+				&& this.hits(g.getGeometry(), x, y)) {
+			hits.add(g);
+		}
+	}
+
+	/**
+	 * Method to determine if a geometry is hit by a point. Points and polylines
+	 * are hit within the tolerance distance, and polygons and extents are hit
+	 * inside or within the tolerance distance of their boundary.
+	 * 
+	 * @param geometry Geometry.
+	 * @param x        Point X-value.
+	 * @param y        Point Y-value.
+	 * @return <code>true</code> if hit, <code>false</code> otherwise.
+	 */
+	public boolean hits(Geometry geometry, double x, double y) {
+		double t = this.tolerance;
+		double ky = GraphicsHitTester.getLatitudeScale(y);
+		double ty = t * ky;
+
+		if (geometry instanceof Point) {
+			Point p = (Point) GeometryProjector.project(geometry, SpatialReference.WKID_WGS84);
+			if ((p.getLatitude() == null) || (p.getLongitude() == null)) {
+				return false;
+			}
+			double dx = p.getLongitude() - x;
+			double dy = (p.getLatitude() - y) / ky;
+			return (((dx * dx) + (dy * dy)) <= (t * t));
+		}
+
+		// Check the envelope before projecting the geometry for the exact test.
+		Extent e = Extent.envelope(geometry, SpatialReference.WKID_WGS84);
+		if ((e == null) || !e.intersects(new Extent(x - t, y - ty, x + t, y + ty))) {
+			return false;
+		}
+		geometry = GeometryProjector.project(geometry, SpatialReference.WKID_WGS84);
+
+		if (geometry instanceof Extent) {
+			return true;
+		} else if (geometry instanceof Polyline) {
+			return GraphicsHitTester.isNear(((Polyline) geometry).getCoordinates(), x, y, t, ky);
+		} else if (geometry instanceof Polygon) {
+			PackedCoordinates rings = ((Polygon) geometry).getCoordinates();
+			return GraphicsHitTester.contains(rings, x, y) || GraphicsHitTester.isNear(rings, x, y, t, ky);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Method to get the ratio of the latitude tolerance to the longitude
+	 * tolerance at a latitude, clamped to the Web Mercator extent.
+	 * 
+	 * @param latitude Latitude.
+	 * @return Cosine of the latitude.
+	 */
+	private static double getLatitudeScale(double latitude) {
+		return Math.cos(Math.toRadians(Math.max(Math.min(latitude, MAX_LATITUDE), -MAX_LATITUDE)));
+	}
+
+	/**
+	 * Method to determine if a point is inside polygon rings, using the even-odd
+	 * rule so that inner rings are holes.
+	 * 
+	 * @param rings Polygon rings.
+	 * @param x     Point X-value.
+	 * @param y     Point Y-value.
+	 * @return <code>true</code> if inside, <code>false</code> otherwise.
+	 */
+	private static boolean contains(PackedCoordinates rings, double x, double y) {
+		boolean inside = false;
+
+		for (int p = 0; p < rings.getPartCount(); p++) {
+			int start = rings.getPartStart(p);
+			int end = rings.getPartEnd(p);
+			for (int i = start, j = end - 1; i < end; j = i++) {
+				double yi = rings.getY(i);
+				double yj = rings.getY(j);
+				if ((yi > y) != (yj > y)) {
+					double xi = rings.getX(i);
+					double xj = rings.getX(j);
+					if (x < ((((xj - xi) * (y - yi)) / (yj - yi)) + xi)) {
+						inside = !inside;
+					}
+				}
+			}
+		}
+
+		return inside;
+	}
+
+	/**
+	 * Method to determine if a point is within a distance of any segment of
+	 * polyline paths or polygon rings. Y-values are divided by the latitude
+	 * scale, so the distance is measured as on the map.
+	 * 
+	 * @param parts     Paths or rings.
+	 * @param x         Point X-value.
+	 * @param y         Point Y-value.
+	 * @param tolerance Distance tolerance in degrees of longitude.
+	 * @param ky        Latitude scale.
+	 * @return <code>true</code> if near, <code>false</code> otherwise.
+	 */
+	private static boolean isNear(PackedCoordinates parts, double x, double y, double tolerance, double ky) {
+		double t2 = tolerance * tolerance;
+		double py = y / ky;
+
+		for (int p = 0; p < parts.getPartCount(); p++) {
+			int start = parts.getPartStart(p);
+			int end = parts.getPartEnd(p);
+			for (int i = start; i < end; i++) {
+				double ax = parts.getX(i);
+				double ay = parts.getY(i) / ky;
+				double bx = (i + 1 < end) ? parts.getX(i + 1) : ax;
+				double by = (i + 1 < end) ? (parts.getY(i + 1) / ky) : ay;
+				if (GraphicsHitTester.distanceSquared(x, py, ax, ay, bx, by) <= t2) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Method to calculate the squared distance from a point to a segment.
+	 * 
+	 * @param px Point X-value.
+	 * @param py Point Y-value.
+	 * @param ax Segment start X-value.
+	 * @param ay Segment start Y-value.
+	 * @param bx Segment end X-value.
+	 * @param by Segment end Y-value.
+	 * @return Squared distance.
+	 */
+	private static double distanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double length = (dx * dx) + (dy * dy);
+
+		double r = (length > 0) ? ((((px - ax) * dx) + ((py - ay) * dy)) / length) : 0;
+		r = Math.max(0, Math.min(1, r));
+
+		double ex = px - (ax + (r * dx));
+		double ey = py - (ay + (r * dy));
+
+		return (ex * ex) + (ey * ey);
+	}
+}
@@ -24,12 +24,28 @@
 
 package com.gisfaces.model.layer;
 
+import com.gisfaces.model.color.Color;
+import com.gisfaces.model.color.ColorRamp;
 import com.gisfaces.model.geometry.Extent;
+import com.gisfaces.model.geometry.Geometry;
+import com.gisfaces.model.geometry.GeometryGeneralizer;
+import com.gisfaces.model.geometry.GeometryProjector;
+import com.gisfaces.model.geometry.GeometryRounder;
+import com.gisfaces.model.geometry.PackedCoordinates;
 import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.Polygon;
+import com.gisfaces.model.geometry.Polyline;
+import com.gisfaces.model.geometry.QuantizedGeometry;
+import com.gisfaces.model.geometry.SpatialReference;
 import com.gisfaces.model.graphic.Graphic;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 /**
  * Graphics layer class.
@@ -49,6 +65,84 @@ public class GraphicsLayer extends ScaledLayer implements Serializable {
 	/** List of graphic models. */
 	private List<Graphic> graphics;
 
+	/** Indicator to serve graphics from the graphics endpoint instead of inline. */
+	private boolean remote;
+
+	/** Number of graphics per page fetched from the graphics endpoint. */
+	private int pageSize;
+
+	/** Graphics version, incremented when graphics are modified in place. */
+	private long version;
+
+	/** Indicator to only encode graphics intersecting the map view extent. */
+	private boolean culled;
+
+	/** Culling buffer added to each side of the view extent, as a ratio of its size. */
+	private double cullingBuffer;
+
+	/** Indicator to cluster point graphics by map zoom level. */
+	private boolean clustered;
+
+	/** Cluster radius in pixels. */
+	private double clusterRadius;
+
+	/** Maximum zoom level at which point graphics are clustered. */
+	private int clusterMaxZoom;
+
+	/** Indicator to generalize polyline and polygon graphics by map zoom level. */
+	private boolean generalized;
+
+	/** Generalization tolerance in pixels. */
+	private double generalizationTolerance;
+
+	/** Indicator to encode graphic coordinates in the quantized wire format. */
+	private boolean quantized;
+
+	/** Quantization tolerance in pixels. */
+	private double quantizationTolerance;
+
+	/** Decimal places of encoded graphic coordinates, or null for full precision. */
+	private Integer coordinatePrecision;
+
+	/** Indicator to aggregate point graphics into geohash cells at low zoom levels. */
+	private boolean aggregated;
+
+	/** Maximum zoom level at which point graphics are aggregated. */
+	private int aggregationMaxZoom;
+
+	/** Minimum aggregation cell width in pixels. */
+	private double aggregationCellSize;
+
+	/** Color ramp of the aggregation cells by point count. */
+	private ColorRamp aggregationRamp;
+
+	/** Point attribute names summed by the aggregation cells. */
+	private List<String> aggregationAttributes;
+
+	/** Cached generalized geometries by zoom level and original coordinates instance. */
+	private transient Map<Integer, Map<PackedCoordinates, Geometry>> generalizedGeometries;
+
+	/** Cached generalized graphic copies by zoom level. */
+	private transient Map<Integer, GraphicCopyCache> generalizedGraphics;
+
+	/** Cached rounded graphic copies. */
+	private transient GraphicCopyCache roundedGraphics;
+
+	/** Cached point cluster index. */
+	private transient PointClusterIndex clusterIndex;
+
+	/** Graphics token of the cached point cluster index. */
+	private transient long clusterToken;
+
+	/** Cached point aggregation index. */
+	private transient PointAggregationIndex aggregationIndex;
+
+	/** Cached extent of the graphics, expanded as graphics are added. */
+	private transient Extent extent;
+
+	/** Indicator that the cached extent is valid. */
+	private transient boolean extentValid;
+
 	/**
 	 * Constructor.
 	 */
@@ -63,7 +157,31 @@ public class GraphicsLayer extends ScaledLayer implements Serializable {
 	public void reset() {
 		this.setTitle("Graphics Layer");
 		this.editable = false;
-		this.graphics = new ArrayList<Graphic>();
+		this.graphics = new GraphicList(new ArrayList<Graphic>());
+		this.extentValid = false;
+		this.remote = false;
+		this.pageSize = 5000;
+		this.version = 0;
+		this.culled = false;
+		this.cullingBuffer = 0.25;
+		this.clustered = false;
+		this.clusterRadius = 60;
+		this.clusterMaxZoom = 16;
+		this.clusterIndex = null;
+		this.generalized = false;
+		this.generalizationTolerance = 1.0;
+		this.generalizedGeometries = null;
+		this.generalizedGraphics = null;
+		this.quantized = false;
+		this.quantizationTolerance = 0.5;
+		this.coordinatePrecision = null;
+		this.roundedGraphics = null;
+		this.aggregated = false;
+		this.aggregationMaxZoom = 10;
+		this.aggregationCellSize = 64;
+		this.aggregationRamp = new ColorRamp(new Color(255, 255, 178, 0.6), new Color(189, 0, 38, 0.8), 8);
+		this.aggregationAttributes = new ArrayList<String>();
+		this.aggregationIndex = null;
 	}
 
 	/**
@@ -88,26 +206,493 @@ public class GraphicsLayer extends ScaledLayer implements Serializable {
 	}
 
 	/**
-	 * Method to get the extent of the associated graphics.
+	 * Method to calculate a token identifying the current graphics. The token
+	 * changes when graphics are added, removed or replaced, when a graphic
+	 * property or geometry is set, when a point or extent geometry is modified in
+	 * place, or when the version is incremented. Attribute values modified in
+	 * place are not detected.
+	 * 
+	 * @return Graphics token.
+	 */
+	public long calculateGraphicsToken() {
+		List<Graphic> list = this.getGraphics();
+		long token = this.getVersion();
+
+		if (list != null) {
+			token = (token * 31) + list.size();
+			for (Graphic g : list) {
+				token = (token * 31) + GraphicsLayer.calculateGraphicToken(g);
+			}
+		}
+
+		return token;
+	}
+
+	/**
+	 * Method to calculate a token identifying a graphic and the state of its
+	 * properties. Point and extent coordinates are hashed, while polyline and
+	 * polygon coordinates are immutable once packed, so they are identified by
+	 * instance.
+	 * 
+	 * @param g Graphic.
+	 * @return Graphic token.
+	 */
+	static long calculateGraphicToken(Graphic g) {
+		if (g == null) {
+			return 0;
+		}
+
+		long token = System.identityHashCode(g);
+		token = (token * 31) + ((g.getId() != null) ? g.getId().hashCode() : 0);
+		token = (token * 31) + ((g.getTitle() != null) ? g.getTitle().hashCode() : 0);
+		token = (token * 31) + (g.isVisible() ? 1 : 0);
+		token = (token * 31) + System.identityHashCode(g.getSymbol());
+		token = (token * 31) + System.identityHashCode(g.getPopupTemplate());
+		token = (token * 31) + System.identityHashCode(g.getAttributes());
+		token = (token * 31) + System.identityHashCode(g.getData());
+
+		Geometry geometry = g.getGeometry();
+		token = (token * 31) + System.identityHashCode(geometry);
+
+		if (geometry instanceof Point) {
+			Point p = (Point) geometry;
+			token = (token * 31) + GraphicsLayer.hash(p.getLatitude());
+			token = (token * 31) + GraphicsLayer.hash(p.getLongitude());
+			token = (token * 31) + GraphicsLayer.hash(p.getZ());
+		} else if (geometry instanceof Extent) {
+			Extent e = (Extent) geometry;
+			token = (token * 31) + Double.doubleToLongBits(e.getXmin());
+			token = (token * 31) + Double.doubleToLongBits(e.getYmin());
+			token = (token * 31) + Double.doubleToLongBits(e.getXmax());
+			token = (token * 31) + Double.doubleToLongBits(e.getYmax());
+		} else if (geometry instanceof Polyline) {
+			token = (token * 31) + System.identityHashCode(((Polyline) geometry).getCoordinates());
+		} else if (geometry instanceof Polygon) {
+			token = (token * 31) + System.identityHashCode(((Polygon) geometry).getCoordinates());
+		}
+
+		return token;
+	}
+
+	/**
+	 * Method to hash a coordinate value.
+	 * 
+	 * @param value Coordinate value, or <code>null</code>.
+	 * @return Hash.
+	 */
+	private static long hash(Double value) {
+		return (value != null) ? Double.doubleToLongBits(value) : 0;
+	}
+
+	/**
+	 * Method to get the graphics displayed for a map view. When aggregation is
+	 * enabled and the zoom level is at most the maximum aggregated zoom level,
+	 * point graphics are replaced by the aggregation cells in view. Otherwise,
+	 * when clustering is enabled, point graphics are replaced by the clusters of
+	 * the current zoom level. When generalization is enabled, polylines and
+	 * polygons are simplified for the current zoom level. When culling is enabled
+	 * and the view extent is known, only graphics intersecting the view extent,
+	 * expanded by the culling buffer, are included. Graphic envelopes are
+	 * projected to the spatial reference of the view extent before comparing.
+	 * 
+	 * @param view View extent, or null if not known.
+	 * @param zoom View zoom level.
+	 * @return List of graphics.
+	 */
+	public List<Graphic> getVisibleGraphics(Extent view, double zoom) {
+		List<Graphic> graphics = (this.getGraphics() != null) ? this.getGraphics() : new ArrayList<Graphic>();
+
+		if (this.isAggregated() && (zoom <= this.getAggregationMaxZoom())) {
+			// Aggregate point graphics into cells for the current zoom level, if enabled.
+			graphics = this.getAggregatedGraphics(view, zoom);
+		} else if (this.isClustered()) {
+			// Cluster point graphics for the current zoom level, if enabled.
+			graphics = this.getClusteredGraphics(zoom);
+		}
+
+		// Generalize polyline and polygon graphics for the current zoom level, if enabled.
+		if (this.isGeneralized()) {
+			graphics = this.getGeneralizedGraphics(graphics, zoom);
+		}
+
+		Extent bounds = this.getCullingExtent(view);
+		if (bounds != null) {
+			int wkid = GeometryProjector.getWkid(bounds);
+			List<Graphic> visible = new ArrayList<Graphic>();
+			for (Graphic g : graphics) {
+				if ((g != null) && bounds.intersects(Extent.envelope(g.getGeometry(), wkid))) {
+					visible.add(g);
+				}
+			}
+			graphics = visible;
+		}
+
+		return graphics;
+	}
+
+	/**
+	 * Method to get the extent graphics are culled to for a map view, which is
+	 * the view extent expanded by the culling buffer ratio on each side.
+	 * 
+	 * @param view View extent, or null if not known.
+	 * @return Culling extent, or <code>null</code> if culling is disabled or the
+	 *         view extent is not known.
+	 */
+	Extent getCullingExtent(Extent view) {
+		if (!this.isCulled() || (view == null)) {
+			return null;
+		}
+
+		Extent bounds = new Extent(GeometryProjector.getWkid(view), view.getXmin(), view.getYmin(), view.getXmax(), view.getYmax());
+		bounds.scale(1 + (2 * this.getCullingBuffer()));
+
+		return bounds;
+	}
+
+	/**
+	 * Method to get the point cluster index, building it only if no graphics
+	 * were clustered yet.
+	 * 
+	 * @return Point cluster index.
+	 */
+	PointClusterIndex getClusterIndex() {
+		if (this.clusterIndex == null) {
+			this.getClusteredGraphics(this.clusterMaxZoom + 1);
+		}
+		return this.clusterIndex;
+	}
+
+	/**
+	 * Method to get the point aggregation index, building it only if no
+	 * graphics were aggregated yet.
+	 * 
+	 * @return Point aggregation index.
+	 */
+	PointAggregationIndex getAggregationIndex() {
+		// Build the index once, it is then maintained by the graphics list.
+		if (this.aggregationIndex == null) {
+			int precision = PointAggregationIndex.calculatePrecision(this.aggregationMaxZoom, this.aggregationCellSize);
+			this.aggregationIndex = new PointAggregationIndex(precision, this.aggregationAttributes.toArray(new String[0]));
+			if (this.getGraphics() != null) {
+				for (Graphic g : this.getGraphics()) {
+					this.aggregationIndex.add(g);
+				}
+			}
+		}
+		return this.aggregationIndex;
+	}
+
+	/**
+	 * Method to get the generalized copy of a graphic cached for a map zoom
+	 * level.
+	 * 
+	 * @param g    Graphic.
+	 * @param zoom Map zoom level.
+	 * @return Generalized copy, or the graphic itself if not cached.
+	 */
+	Graphic getGeneralizedGraphic(Graphic g, double zoom) {
+		GraphicCopyCache copies = (this.generalizedGraphics != null) ? this.generalizedGraphics.get((int) Math.max(Math.floor(zoom), 0)) : null;
+		Graphic copy = (copies != null) ? copies.peek(g) : null;
+		return (copy != null) ? copy : g;
+	}
+
+	/**
+	 * Method to get the graphics clustered for a map zoom level. Point graphics
+	 * are clustered using a hierarchical index, built once for all zoom levels
+	 * and rebuilt only when the graphics token changes, which includes points
+	 * moved in place. Other graphics are returned unchanged.
+	 * 
+	 * @param zoom Map zoom level.
+	 * @return List of graphics.
+	 */
+	public List<Graphic> getClusteredGraphics(double zoom) {
+		List<Graphic> list = (this.getGraphics() != null) ? this.getGraphics() : new ArrayList<Graphic>();
+		long token = this.calculateGraphicsToken();
+
+		List<Graphic> points = new ArrayList<Graphic>();
+		List<Graphic> graphics = new ArrayList<Graphic>();
+		for (Graphic g : list) {
+			if (PointClusterIndex.isClusterable(g)) {
+				points.add(g);
+			} else if (g != null) {
+				graphics.add(g);
+			}
+		}
+
+		// Rebuild the index when the graphics change.
+		if ((this.clusterIndex == null) || (this.clusterToken != token)) {
+			this.clusterIndex = new PointClusterIndex(points, this.clusterRadius, this.clusterMaxZoom);
+			this.clusterToken = token;
+		}
+
+		graphics.addAll(this.clusterIndex.getClusters(zoom));
+
+		return graphics;
+	}
+
+	/**
+	 * Method to get the graphics aggregated for a map zoom level. Point graphics
+	 * are replaced by polygon graphics of the geohash cells intersecting the view
+	 * extent, with cells at least the aggregation cell size wide. The aggregation
+	 * index is built once, and then maintained incrementally as graphics are
+	 * added to, replaced in and removed from the graphics list. Points moved or
+	 * with attribute values modified in place must be passed to
+	 * <code>update</code>. Other graphics are returned unchanged.
+	 * 
+	 * @param view View extent, or <code>null</code> for all cells.
+	 * @param zoom Map zoom level.
+	 * @return List of graphics.
+	 */
+	public List<Graphic> getAggregatedGraphics(Extent view, double zoom) {
+		List<Graphic> list = (this.getGraphics() != null) ? this.getGraphics() : new ArrayList<Graphic>();
+
+		List<Graphic> graphics = new ArrayList<Graphic>();
+		for (Graphic g : list) {
+			if ((g != null) && !PointClusterIndex.isClusterable(g)) {
+				graphics.add(g);
+			}
+		}
+
+		int precision = PointAggregationIndex.calculatePrecision((int) Math.max(Math.floor(zoom), 0), this.aggregationCellSize);
+		Extent extent = (view != null) ? (Extent) GeometryProjector.project(view, SpatialReference.WKID_WGS84) : null;
+		graphics.addAll(this.getAggregationIndex().getGraphics(extent, precision, this.aggregationRamp));
+
+		return graphics;
+	}
+
+	/**
+	 * Method to get graphics with polyline and polygon geometries generalized for
+	 * a map zoom level. Generalized geometries are cached per zoom level by the
+	 * instance of the original packed coordinates, which are immutable, so a
+	 * geometry set or replaced in place is generalized again. The generalized
+	 * graphic copies are cached per zoom level as well, and reused while the
+	 * original graphic is unchanged. Cached geometries and copies not used by the
+	 * graphics are dropped. Other graphics are returned unchanged.
+	 * 
+	 * @param graphics Graphics to generalize.
+	 * @param zoom     Map zoom level.
+	 * @return List of graphics.
+	 */
+	public List<Graphic> getGeneralizedGraphics(List<Graphic> graphics, double zoom) {
+		if (this.generalizedGeometries == null) {
+			this.generalizedGeometries = new HashMap<Integer, Map<PackedCoordinates, Geometry>>();
+			this.generalizedGraphics = new HashMap<Integer, GraphicCopyCache>();
+		}
+
+		// Get the caches of the zoom level.
+		int z = (int) Math.max(Math.floor(zoom), 0);
+		Map<PackedCoordinates, Geometry> cache = this.generalizedGeometries.get(z);
+		if (cache == null) {
+			cache = new IdentityHashMap<PackedCoordinates, Geometry>();
+		}
+		GraphicCopyCache copies = this.generalizedGraphics.get(z);
+		if (copies == null) {
+			copies = new GraphicCopyCache();
+			this.generalizedGraphics.put(z, copies);
+		}
+		Map<PackedCoordinates, Geometry> used = new IdentityHashMap<PackedCoordinates, Geometry>(cache.size());
+
+		GeometryGeneralizer generalizer = new GeometryGeneralizer(GeometryGeneralizer.calculateTolerance(z, this.generalizationTolerance));
+		List<Graphic> results = new ArrayList<Graphic>(graphics.size());
+
+		for (Graphic g : graphics) {
+			PackedCoordinates coordinates = (g != null) ? GraphicsLayer.getCoordinates(g.getGeometry()) : null;
+			if (coordinates != null) {
+				Geometry geometry = cache.get(coordinates);
+				if (geometry == null) {
+					geometry = generalizer.generalize(g.getGeometry());
+				}
+				used.put(coordinates, geometry);
+
+				Graphic copy = copies.get(g);
+				if ((copy == null) || (GraphicsLayer.getCoordinates(copy.getGeometry()) != GraphicsLayer.getCoordinates(geometry))) {
+					// Unchanged geometries are cached as the original geometry.
+					copy = copies.put(g, (GraphicsLayer.getCoordinates(geometry) == coordinates) ? g.getGeometry() : geometry);
+				}
+				results.add(copy);
+			} else {
+				results.add(g);
+			}
+		}
+
+		this.generalizedGeometries.put(z, used);
+		copies.retain();
+
+		return results;
+	}
+
+	/**
+	 * Method to get the packed coordinates of a polyline or polygon geometry.
+	 * 
+	 * @param geometry Geometry.
+	 * @return Packed coordinates, or <code>null</code> for other geometries.
+	 */
+	private static PackedCoordinates getCoordinates(Geometry geometry) {
+		if (geometry instanceof Polyline) {
+			return ((Polyline) geometry).getCoordinates();
+		} else if (geometry instanceof Polygon) {
+			return ((Polygon) geometry).getCoordinates();
+		}
+		return null;
+	}
+
+	/**
+	 * Method to get graphics with point, polyline and polygon geometries
+	 * quantized to a grid for a map zoom level. The grid is the coarsest power of
+	 * ten within the quantization tolerance at the zoom level. Other graphics are
+	 * returned unchanged.
+	 * 
+	 * @param graphics Graphics to quantize.
+	 * @param zoom     Map zoom level.
+	 * @return List of graphics.
+	 * @see QuantizedGeometry
+	 */
+	public List<Graphic> getQuantizedGraphics(List<Graphic> graphics, double zoom) {
+		int z = (int) Math.max(Math.floor(zoom), 0);
+		double tolerance = GeometryGeneralizer.calculateTolerance(z, this.quantizationTolerance);
+		List<Graphic> results = new ArrayList<Graphic>(graphics.size());
+
+		for (Graphic g : graphics) {
+			Geometry geometry = (g != null) ? QuantizedGeometry.quantize(g.getGeometry(), tolerance) : null;
+			results.add(((g == null) || (geometry == g.getGeometry())) ? g : g.copy(geometry));
+		}
+
+		return results;
+	}
+
+	/**
+	 * Method to get graphics with coordinates rounded to the coordinate
+	 * precision. Rounded graphic copies are cached, and reused while the original
+	 * graphic is unchanged. Graphics are returned unchanged if no precision is
+	 * specified.
+	 * 
+	 * @param graphics Graphics to round.
+	 * @return List of graphics.
+	 * @see GeometryRounder
+	 */
+	public List<Graphic> getRoundedGraphics(List<Graphic> graphics) {
+		if (this.coordinatePrecision == null) {
+			return graphics;
+		}
+
+		if (this.roundedGraphics == null) {
+			this.roundedGraphics = new GraphicCopyCache();
+		}
+
+		GeometryRounder rounder = new GeometryRounder(this.coordinatePrecision);
+		List<Graphic> results = new ArrayList<Graphic>(graphics.size());
+
+		for (Graphic g : graphics) {
+			Graphic copy = (g != null) ? this.roundedGraphics.get(g) : null;
+			if ((copy == null) && (g != null)) {
+				copy = this.roundedGraphics.put(g, rounder.round(g.getGeometry()));
+			}
+			results.add(copy);
+		}
+
+		this.roundedGraphics.retain();
+
+		return results;
+	}
+
+	/**
+	 * Method to get the extent of the associated graphics of every geometry type,
+	 * in WGS84 with the envelopes of projected geometries projected. The extent
+	 * is cached and expanded as graphics are added through the
+	 * graphics list, so reading it is constant time. It is recalculated, reusing
+	 * the envelopes cached by each geometry, only after removing a graphic on the
+	 * extent boundary, or after <code>update</code> or <code>touch</code>.
+	 * Graphics with a geometry set or modified in place must be passed to
+	 * <code>update</code>.
 	 * 
 	 * @return Extent.
 	 */
 	public Extent getExtent() {
-		Extent extent = null;
+		if (!this.extentValid) {
+			this.extent = null;
 
-		if (this.graphics != null) {
-			for (Graphic g : this.graphics) {
-				if (g.getGeometry() != null) {
-					if (g.getGeometry() instanceof Point) {
-						extent = Extent.union(extent, new Extent((Point) g.getGeometry()));
-					} else if (g.getGeometry() instanceof Extent) {
-						extent = Extent.union(extent, ((Extent) g.getGeometry()));
-					}
+			if (this.graphics != null) {
+				for (Graphic g : this.graphics) {
+					this.expandExtent(g);
 				}
 			}
+
+			this.extentValid = true;
+		}
+
+		Extent e = this.extent;
+		return (e != null) ? new Extent(SpatialReference.WKID_WGS84, e.getXmin(), e.getYmin(), e.getXmax(), e.getYmax()) : null;
+	}
+
+	/**
+	 * Method to expand the cached extent by the envelope of a graphic.
+	 * 
+	 * @param g Graphic.
+	 */
+	private void expandExtent(Graphic g) {
+		Extent e = (g != null) ? Extent.envelope(g.getGeometry(), SpatialReference.WKID_WGS84) : null;
+		if (e != null) {
+			this.extent = (this.extent == null) ? new Extent(e.getXmin(), e.getYmin(), e.getXmax(), e.getYmax()) : this.extent.expand(e);
+		}
+	}
+
+	/**
+	 * Method to update the cached extent and aggregation index after a graphic
+	 * is added.
+	 * 
+	 * @param g Graphic.
+	 */
+	void added(Graphic g) {
+		if (this.extentValid) {
+			this.expandExtent(g);
+		}
+		if ((g != null) && (this.aggregationIndex != null)) {
+			this.aggregationIndex.add(g);
 		}
+	}
 
-		return extent;
+	/**
+	 * Method to update the cached extent and aggregation index after a graphic
+	 * is removed. The extent is invalidated only when the graphic envelope is on
+	 * the extent boundary.
+	 * 
+	 * @param g Graphic.
+	 */
+	void removed(Graphic g) {
+		Extent e = (g != null) ? Extent.envelope(g.getGeometry(), SpatialReference.WKID_WGS84) : null;
+		Extent b = this.extent;
+		if ((e != null) && (b != null) && ((e.getXmin() <= b.getXmin()) || (e.getYmin() <= b.getYmin()) || (e.getXmax() >= b.getXmax()) || (e.getYmax() >= b.getYmax()))) {
+			this.extentValid = false;
+		}
+		if ((g != null) && (this.aggregationIndex != null)) {
+			this.aggregationIndex.remove(g);
+		}
+	}
+
+	/**
+	 * Method to reset the cached extent and aggregation index after the graphics
+	 * are cleared.
+	 */
+	void cleared() {
+		this.extent = null;
+		this.extentValid = false;
+		this.aggregationIndex = null;
+	}
+
+	/**
+	 * Method to update the layer after a graphic was modified in place, such as
+	 * a geometry set or attribute values modified without replacing the graphic.
+	 * The graphic is reaggregated, the cached extent is invalidated, and the
+	 * version is incremented.
+	 * 
+	 * @param graphic Graphic.
+	 */
+	public void update(Graphic graphic) {
+		if ((graphic != null) && (this.aggregationIndex != null)) {
+			this.aggregationIndex.update(graphic);
+		}
+		this.version++;
+		this.extentValid = false;
 	}
 
 	/**
@@ -138,11 +723,462 @@ public class GraphicsLayer extends ScaledLayer implements Serializable {
 	}
 
 	/**
-	 * Method to set the list of graphics.
+	 * Method to set the list of graphics. The list is wrapped, not copied, so
+	 * the layer can track modifications made through <code>getGraphics</code>.
+	 * Modifications made directly to the specified list require
+	 * <code>touch</code>, which also rebuilds the aggregation index.
 	 * 
 	 * @param graphics List of Graphic objects.
 	 */
 	public void setGraphics(List<Graphic> graphics) {
-		this.graphics = graphics;
+		this.graphics = new GraphicList((graphics != null) ? graphics : new ArrayList<Graphic>());
+		this.extentValid = false;
+		this.aggregationIndex = null;
+	}
+
+	/**
+	 * Method to get the remote graphics indicator. Remote graphics are not
+	 * inlined in the page, but fetched in pages from the graphics endpoint.
+	 * 
+	 * @return Remote graphics indicator.
+	 */
+	public boolean isRemote() {
+		return remote;
+	}
+
+	/**
+	 * Method to set the remote graphics indicator.
+	 * 
+	 * @param remote Remote graphics indicator.
+	 */
+	public void setRemote(boolean remote) {
+		this.remote = remote;
+	}
+
+	/**
+	 * Method to get the number of graphics per remote page.
+	 * 
+	 * @return Page size.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Method to set the number of graphics per remote page.
+	 * 
+	 * @param pageSize Page size.
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Method to get the graphics version.
+	 * 
+	 * @return Graphics version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Method to set the graphics version.
+	 * 
+	 * @param version Graphics version.
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	/**
+	 * Method to get the culling indicator. Culling requires a map extent client
+	 * behavior, so the view extent is reported to the server.
+	 * 
+	 * @return Culling indicator.
+	 */
+	public boolean isCulled() {
+		return culled;
+	}
+
+	/**
+	 * Method to set the culling indicator.
+	 * 
+	 * @param culled Culling indicator.
+	 */
+	public void setCulled(boolean culled) {
+		this.culled = culled;
+	}
+
+	/**
+	 * Method to get the culling buffer.
+	 * 
+	 * @return Culling buffer as a ratio of the view extent size.
+	 */
+	public double getCullingBuffer() {
+		return cullingBuffer;
+	}
+
+	/**
+	 * Method to set the culling buffer.
+	 * 
+	 * @param cullingBuffer Culling buffer as a ratio of the view extent size.
+	 */
+	public void setCullingBuffer(double cullingBuffer) {
+		this.cullingBuffer = cullingBuffer;
+	}
+
+	/**
+	 * Method to get the generalization indicator.
+	 * 
+	 * @return Generalization indicator.
+	 */
+	public boolean isGeneralized() {
+		return generalized;
+	}
+
+	/**
+	 * Method to set the generalization indicator.
+	 * 
+	 * @param generalized Generalization indicator.
+	 */
+	public void setGeneralized(boolean generalized) {
+		this.generalized = generalized;
+	}
+
+	/**
+	 * Method to get the generalization tolerance.
+	 * 
+	 * @return Generalization tolerance in pixels.
+	 */
+	public double getGeneralizationTolerance() {
+		return generalizationTolerance;
+	}
+
+	/**
+	 * Method to set the generalization tolerance.
+	 * 
+	 * @param generalizationTolerance Generalization tolerance in pixels.
+	 */
+	public void setGeneralizationTolerance(double generalizationTolerance) {
+		this.generalizationTolerance = generalizationTolerance;
+		this.generalizedGeometries = null;
+		this.generalizedGraphics = null;
+	}
+
+	/**
+	 * Method to get the quantization indicator.
+	 * 
+	 * @return Quantization indicator.
+	 */
+	public boolean isQuantized() {
+		return quantized;
+	}
+
+	/**
+	 * Method to set the quantization indicator.
+	 * 
+	 * @param quantized Quantization indicator.
+	 */
+	public void setQuantized(boolean quantized) {
+		this.quantized = quantized;
+	}
+
+	/**
+	 * Method to get the quantization tolerance.
+	 * 
+	 * @return Quantization tolerance in pixels.
+	 */
+	public double getQuantizationTolerance() {
+		return quantizationTolerance;
+	}
+
+	/**
+	 * Method to set the quantization tolerance.
+	 * 
+	 * @param quantizationTolerance Quantization tolerance in pixels.
+	 */
+	public void setQuantizationTolerance(double quantizationTolerance) {
+		this.quantizationTolerance = quantizationTolerance;
+	}
+
+	/**
+	 * Method to get the coordinate precision.
+	 * 
+	 * @return Decimal places of encoded graphic coordinates, or <code>null</code>
+	 *         for full precision.
+	 */
+	public Integer getCoordinatePrecision() {
+		return coordinatePrecision;
+	}
+
+	/**
+	 * Method to set the coordinate precision. For example, six decimal places of
+	 * WGS84 degrees is about 0.1 meters at the equator.
+	 * 
+	 * @param coordinatePrecision Decimal places of encoded graphic coordinates, or
+	 *                            <code>null</code> for full precision.
+	 */
+	public void setCoordinatePrecision(Integer coordinatePrecision) {
+		if ((coordinatePrecision != null) && ((coordinatePrecision < 0) || (coordinatePrecision > GeometryRounder.MAX_DECIMALS))) {
+			throw new IllegalArgumentException(String.format("Unsupported coordinate precision '%s'.", coordinatePrecision));
+		}
+		this.coordinatePrecision = coordinatePrecision;
+		this.roundedGraphics = null;
+	}
+
+	/**
+	 * Method to get the point aggregation indicator.
+	 * 
+	 * @return Point aggregation indicator.
+	 */
+	public boolean isAggregated() {
+		return aggregated;
+	}
+
+	/**
+	 * Method to set the point aggregation indicator.
+	 * 
+	 * @param aggregated Point aggregation indicator.
+	 */
+	public void setAggregated(boolean aggregated) {
+		this.aggregated = aggregated;
+	}
+
+	/**
+	 * Method to get the maximum aggregated zoom level.
+	 * 
+	 * @return Maximum aggregated zoom level.
+	 */
+	public int getAggregationMaxZoom() {
+		return aggregationMaxZoom;
+	}
+
+	/**
+	 * Method to set the maximum aggregated zoom level.
+	 * 
+	 * @param aggregationMaxZoom Maximum aggregated zoom level.
+	 */
+	public void setAggregationMaxZoom(int aggregationMaxZoom) {
+		this.aggregationMaxZoom = aggregationMaxZoom;
+		this.aggregationIndex = null;
+	}
+
+	/**
+	 * Method to get the minimum aggregation cell width.
+	 * 
+	 * @return Minimum aggregation cell width in pixels.
+	 */
+	public double getAggregationCellSize() {
+		return aggregationCellSize;
+	}
+
+	/**
+	 * Method to set the minimum aggregation cell width.
+	 * 
+	 * @param aggregationCellSize Minimum aggregation cell width in pixels.
+	 */
+	public void setAggregationCellSize(double aggregationCellSize) {
+		this.aggregationCellSize = aggregationCellSize;
+		this.aggregationIndex = null;
+	}
+
+	/**
+	 * Method to get the aggregation color ramp.
+	 * 
+	 * @return Color ramp by point count.
+	 */
+	public ColorRamp getAggregationRamp() {
+		return aggregationRamp;
+	}
+
+	/**
+	 * Method to set the aggregation color ramp.
+	 * 
+	 * @param aggregationRamp Color ramp by point count.
+	 */
+	public void setAggregationRamp(ColorRamp aggregationRamp) {
+		this.aggregationRamp = aggregationRamp;
+	}
+
+	/**
+	 * Method to get the point attribute names summed by the aggregation cells.
+	 * 
+	 * @return List of attribute names.
+	 */
+	public List<String> getAggregationAttributes() {
+		return aggregationAttributes;
+	}
+
+	/**
+	 * Method to set the point attribute names summed by the aggregation cells.
+	 * 
+	 * @param aggregationAttributes List of attribute names.
+	 */
+	public void setAggregationAttributes(List<String> aggregationAttributes) {
+		this.aggregationAttributes = (aggregationAttributes != null) ? aggregationAttributes : new ArrayList<String>();
+		this.aggregationIndex = null;
+	}
+
+	/**
+	 * Method to get the point clustering indicator.
+	 * 
+	 * @return Point clustering indicator.
+	 */
+	public boolean isClustered() {
+		return clustered;
+	}
+
+	/**
+	 * Method to set the point clustering indicator.
+	 * 
+	 * @param clustered Point clustering indicator.
+	 */
+	public void setClustered(boolean clustered) {
+		this.clustered = clustered;
+	}
+
+	/**
+	 * Method to get the cluster radius.
+	 * 
+	 * @return Cluster radius in pixels.
+	 */
+	public double getClusterRadius() {
+		return clusterRadius;
+	}
+
+	/**
+	 * Method to set the cluster radius.
+	 * 
+	 * @param clusterRadius Cluster radius in pixels.
+	 */
+	public void setClusterRadius(double clusterRadius) {
+		this.clusterRadius = clusterRadius;
+		this.clusterIndex = null;
+	}
+
+	/**
+	 * Method to get the maximum clustered zoom level.
+	 * 
+	 * @return Maximum clustered zoom level.
+	 */
+	public int getClusterMaxZoom() {
+		return clusterMaxZoom;
+	}
+
+	/**
+	 * Method to set the maximum clustered zoom level.
+	 * 
+	 * @param clusterMaxZoom Maximum clustered zoom level.
+	 */
+	public void setClusterMaxZoom(int clusterMaxZoom) {
+		this.clusterMaxZoom = clusterMaxZoom;
+		this.clusterIndex = null;
+	}
+
+	/**
+	 * Method to increment the graphics version. Remote graphics are only
+	 * refetched by the client when the graphics list, or this version, changes.
+	 * The version is part of the graphics token, so the cached cluster index is
+	 * rebuilt as well, for example after attribute values are modified in place.
+	 * The aggregation index is rebuilt on the next aggregation, as the modified
+	 * graphics are not known.
+	 */
+	public void touch() {
+		this.version++;
+		this.extentValid = false;
+		this.aggregationIndex = null;
+	}
+
+	/**
+	 * Graphics list class which wraps the list of graphics and maintains the
+	 * cached extent on modification.
+	 */
+	private class GraphicList extends AbstractList<Graphic> implements RandomAccess, Serializable {
+		/** Serial Version UID. */
+		private static final long serialVersionUID = 5182737719464205542L;
+
+		/** Wrapped graphics. */
+		private final List<Graphic> graphics;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param graphics Graphics to wrap.
+		 */
+		private GraphicList(List<Graphic> graphics) {
+			super();
+			this.graphics = graphics;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Graphic get(int index) {
+			return this.graphics.get(index);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return this.graphics.size();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#add(int, java.lang.Object)
+		 */
+		@Override
+		public void add(int index, Graphic graphic) {
+			this.graphics.add(index, graphic);
+			this.modCount++;
+			GraphicsLayer.this.added(graphic);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#set(int, java.lang.Object)
+		 */
+		@Override
+		public Graphic set(int index, Graphic graphic) {
+			Graphic old = this.graphics.set(index, graphic);
+			GraphicsLayer.this.removed(old);
+			GraphicsLayer.this.added(graphic);
+			return old;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#remove(int)
+		 */
+		@Override
+		public Graphic remove(int index) {
+			Graphic old = this.graphics.remove(index);
+			this.modCount++;
+			GraphicsLayer.this.removed(old);
+			return old;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#clear()
+		 */
+		@Override
+		public void clear() {
+			this.graphics.clear();
+			this.modCount++;
+			GraphicsLayer.this.cleared();
+		}
 	}
 }
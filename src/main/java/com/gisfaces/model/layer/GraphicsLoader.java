@@ -0,0 +1,385 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.layer;
+
+import com.gisfaces.model.geometry.GeometryType;
+import com.gisfaces.model.geometry.PackedCoordinates;
+import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.Polygon;
+import com.gisfaces.model.geometry.Polyline;
+import com.gisfaces.model.graphic.Graphic;
+import com.gisfaces.model.symbol.SimpleFillSymbol;
+import com.gisfaces.model.symbol.SimpleLineSymbol;
+import com.gisfaces.model.symbol.SimpleMarkerSymbol;
+import com.gisfaces.model.symbol.Symbol;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Graphics loader class. Builds graphics from raw records of coordinates and
+ * attribute values in parallel with a fork/join pool. Records are read in
+ * batches on the calling thread, while graphics are built by the pool. All
+ * graphics of a geometry type share one symbol, and attribute maps are sized
+ * to the shared attribute names.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class GraphicsLoader {
+	/** Number of records read per batch. */
+	private static final int BATCH_SIZE = 16384;
+
+	/** Number of records below which a task is not split. */
+	private static final int TASK_SIZE = 1024;
+
+	/** Attribute names shared by all records. */
+	private final String[] names;
+
+	/** Symbol shared by point graphics. */
+	private Symbol pointSymbol;
+
+	/** Symbol shared by polyline graphics. */
+	private Symbol lineSymbol;
+
+	/** Symbol shared by polygon graphics. */
+	private Symbol fillSymbol;
+
+	/** Number of worker threads. */
+	private int parallelism;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param names Attribute names shared by all records.
+	 */
+	public GraphicsLoader(String... names) {
+		super();
+		this.names = (names != null) ? names.clone() : new String[0];
+		this.pointSymbol = new SimpleMarkerSymbol();
+		this.lineSymbol = new SimpleLineSymbol();
+		this.fillSymbol = new SimpleFillSymbol();
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Method to load records into a graphics layer. The graphics are built
+	 * before the layer is modified, and then published with a single
+	 * <code>setGraphics</code> call, replacing the existing graphics.
+	 * 
+	 * @param layer   Graphics layer.
+	 * @param records Records to load.
+	 * @return List of loaded graphics.
+	 */
+	public List<Graphic> load(GraphicsLayer layer, Iterator<? extends Record> records) {
+		List<Graphic> graphics = this.load(records);
+
+		layer.setGraphics(graphics);
+		layer.touch();
+
+		return graphics;
+	}
+
+	/**
+	 * Method to build graphics from records.
+	 * 
+	 * @param records Records to load.
+	 * @return List of graphics, in record order.
+	 */
+	public List<Graphic> load(Iterator<? extends Record> records) {
+		List<Graphic[]> batches = new ArrayList<Graphic[]>();
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		int total = 0;
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(this.parallelism, 1));
+		try {
+			// Read batches of records while the pool builds the previous batches.
+			while (records.hasNext()) {
+				Record[] batch = new Record[BATCH_SIZE];
+				int count = 0;
+				while ((count < BATCH_SIZE) && records.hasNext()) {
+					batch[count++] = records.next();
+				}
+
+				Graphic[] graphics = new Graphic[count];
+				batches.add(graphics);
+				tasks.add(pool.submit(new BuildTask(batch, graphics, 0, count)));
+				total += count;
+			}
+
+			for (ForkJoinTask<?> task : tasks) {
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading graphics.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalArgumentException("An error occurred loading graphics.", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+
+		List<Graphic> results = new ArrayList<Graphic>(total);
+		for (Graphic[] graphics : batches) {
+			results.addAll(Arrays.asList(graphics));
+		}
+
+		return results;
+	}
+
+	/**
+	 * Method to build a graphic from a record.
+	 * 
+	 * @param r Record.
+	 * @return Graphic
+	 */
+	private Graphic build(Record r) {
+		// Size the attribute map to hold every attribute without rehashing.
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>((int) (this.names.length / 0.75f) + 1);
+		if (r.values != null) {
+			for (int i = 0; (i < r.values.length) && (i < this.names.length); i++) {
+				if (r.values[i] != null) {
+					attributes.put(this.names[i], r.values[i]);
+				}
+			}
+		}
+
+		if (r.type == GeometryType.POINT) {
+			Point p = new Point(r.coordinates[1], r.coordinates[0]);
+			return new Graphic(r.id, p, this.pointSymbol, attributes);
+		}
+
+		int[] offsets;
+		if (r.parts == null) {
+			offsets = new int[] { 0, r.coordinates.length / 2 };
+		} else {
+			offsets = Arrays.copyOf(r.parts, r.parts.length + 1);
+			offsets[r.parts.length] = r.coordinates.length / 2;
+		}
+		PackedCoordinates coordinates = PackedCoordinates.wrap(r.coordinates, offsets, false);
+
+		if (r.type == GeometryType.POLYLINE) {
+			Polyline p = new Polyline();
+			p.setCoordinates(coordinates);
+			return new Graphic(r.id, p, this.lineSymbol, attributes);
+		}
+
+		Polygon p = new Polygon();
+		p.setCoordinates(coordinates);
+		return new Graphic(r.id, p, this.fillSymbol, attributes);
+	}
+
+	/**
+	 * Method to get the symbol shared by point graphics.
+	 * 
+	 * @return Symbol
+	 */
+	public Symbol getPointSymbol() {
+		return pointSymbol;
+	}
+
+	/**
+	 * Method to set the symbol shared by point graphics.
+	 * 
+	 * @param pointSymbol Symbol
+	 */
+	public void setPointSymbol(Symbol pointSymbol) {
+		this.pointSymbol = pointSymbol;
+	}
+
+	/**
+	 * Method to get the symbol shared by polyline graphics.
+	 * 
+	 * @return Symbol
+	 */
+	public Symbol getLineSymbol() {
+		return lineSymbol;
+	}
+
+	/**
+	 * Method to set the symbol shared by polyline graphics.
+	 * 
+	 * @param lineSymbol Symbol
+	 */
+	public void setLineSymbol(Symbol lineSymbol) {
+		this.lineSymbol = lineSymbol;
+	}
+
+	/**
+	 * Method to get the symbol shared by polygon graphics.
+	 * 
+	 * @return Symbol
+	 */
+	public Symbol getFillSymbol() {
+		return fillSymbol;
+	}
+
+	/**
+	 * Method to set the symbol shared by polygon graphics.
+	 * 
+	 * @param fillSymbol Symbol
+	 */
+	public void setFillSymbol(Symbol fillSymbol) {
+		this.fillSymbol = fillSymbol;
+	}
+
+	/**
+	 * Method to get the number of worker threads.
+	 * 
+	 * @return Number of worker threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Method to set the number of worker threads.
+	 * 
+	 * @param parallelism Number of worker threads.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Raw graphic record class. Coordinates are interleaved X/Y-values, and
+	 * attribute values are aligned to the attribute names of the loader.
+	 */
+	public static class Record {
+		/** Graphic ID. */
+		private final String id;
+
+		/** Geometry type. */
+		private final GeometryType type;
+
+		/** Interleaved X/Y-values. */
+		private final double[] coordinates;
+
+		/** Starting point index of each part, or null for a single part. */
+		private final int[] parts;
+
+		/** Attribute values. */
+		private final Object[] values;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param id          Graphic ID.
+		 * @param type        Point, polyline or polygon geometry type.
+		 * @param coordinates Interleaved X/Y-values, used without copying.
+		 * @param parts       Starting point index of each part, or null for a
+		 *                    single part.
+		 * @param values      Attribute values aligned to the attribute names.
+		 */
+		public Record(String id, GeometryType type, double[] coordinates, int[] parts, Object... values) {
+			super();
+
+			if ((type != GeometryType.POINT) && (type != GeometryType.POLYLINE) && (type != GeometryType.POLYGON)) {
+				throw new IllegalArgumentException(String.format("Unsupported geometry type '%s'.", type));
+			}
+			if ((coordinates == null) || ((coordinates.length % 2) != 0) || ((type == GeometryType.POINT) && (coordinates.length != 2))) {
+				throw new IllegalArgumentException("Record coordinates must be X/Y-value pairs.");
+			}
+
+			this.id = id;
+			this.type = type;
+			this.coordinates = coordinates;
+			this.parts = ((parts != null) && (parts.length > 0)) ? parts : null;
+			this.values = values;
+		}
+
+		/**
+		 * Constructor for a point record.
+		 * 
+		 * @param id        Graphic ID.
+		 * @param longitude Point longitude.
+		 * @param latitude  Point latitude.
+		 * @param values    Attribute values aligned to the attribute names.
+		 */
+		public Record(String id, double longitude, double latitude, Object... values) {
+			this(id, GeometryType.POINT, new double[] { longitude, latitude }, null, values);
+		}
+	}
+
+	/**
+	 * Fork/join task building the graphics of a range of records.
+	 */
+	private class BuildTask extends RecursiveAction {
+		/** Serial Version UID. */
+		private static final long serialVersionUID = -4126390562431788154L;
+
+		/** Records. */
+		private final Record[] records;
+
+		/** Graphics built from the records. */
+		private final Graphic[] graphics;
+
+		/** Index of the first record. */
+		private final int start;
+
+		/** Index after the last record. */
+		private final int end;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param records  Records.
+		 * @param graphics Graphics built from the records.
+		 * @param start    Index of the first record.
+		 * @param end      Index after the last record.
+		 */
+		BuildTask(Record[] records, Graphic[] graphics, int start, int end) {
+			super();
+			this.records = records;
+			this.graphics = graphics;
+			this.start = start;
+			this.end = end;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if ((this.end - this.start) <= TASK_SIZE) {
+				for (int i = this.start; i < this.end; i++) {
+					this.graphics[i] = GraphicsLoader.this.build(this.records[i]);
+				}
+			} else {
+				int middle = (this.start + this.end) >>> 1;
+				ForkJoinTask.invokeAll(new BuildTask(this.records, this.graphics, this.start, middle),
+						new BuildTask(this.records, this.graphics, middle, this.end));
+			}
+		}
+	}
+}
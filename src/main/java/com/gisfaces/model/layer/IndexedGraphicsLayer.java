@@ -0,0 +1,738 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.layer;
+
+import com.gisfaces.model.geometry.Extent;
+import com.gisfaces.model.geometry.GeometryProjector;
+import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.SpatialReference;
+import com.gisfaces.model.graphic.Graphic;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Indexed graphics layer class. A graphics layer which maintains a hash index
+ * by graphic ID and a uniform grid spatial index over the graphic geometry
+ * envelopes. Both indexes are updated incrementally as graphics are added to,
+ * replaced in and removed from the graphics list. Graphics modified in place
+ * must be passed to <code>update</code> to be reindexed. Envelopes are indexed
+ * in the spatial reference of the index, WGS84 by default, and query extents
+ * and points are projected to it. Replacing the graphics builds new indexes
+ * which are published with a single assignment.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class IndexedGraphicsLayer extends GraphicsLayer implements Serializable {
+	/** Serial Version UID. */
+	private static final long serialVersionUID = 3924476512230218835L;
+
+	/** Default grid cell size in degrees. */
+	private static final double DEFAULT_CELL_SIZE = 1.0;
+
+	/** Meters per degree of longitude at the equator. */
+	private static final double METERS_PER_DEGREE = 111319.49079327357;
+
+	/** Maximum number of grid cells a single envelope is indexed in. */
+	private static final int MAX_CELLS = 256;
+
+	/** Spatial reference well-known ID of the index. */
+	private final int wkid;
+
+	/** Grid cell size in units of the index spatial reference. */
+	private final double cellSize;
+
+	/** Indexed graphics list. */
+	private IndexedGraphicList list;
+
+	/** Graphics and their indexes. */
+	private volatile Indexes indexes;
+
+	/**
+	 * Constructor.
+	 */
+	public IndexedGraphicsLayer() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param cellSize Grid cell size in degrees.
+	 */
+	public IndexedGraphicsLayer(double cellSize) {
+		this(new SpatialReference(SpatialReference.WKID_WGS84), cellSize);
+	}
+
+	/**
+	 * Constructor. The grid cell size is one degree, or the equivalent distance
+	 * in meters at the equator for Web Mercator.
+	 * 
+	 * @param spatialReference Spatial reference of the index.
+	 */
+	public IndexedGraphicsLayer(SpatialReference spatialReference) {
+		this(spatialReference, IndexedGraphicsLayer.calculateCellSize(spatialReference));
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param spatialReference Spatial reference of the index.
+	 * @param cellSize         Grid cell size in units of the spatial reference.
+	 */
+	public IndexedGraphicsLayer(SpatialReference spatialReference, double cellSize) {
+		super();
+
+		if ((spatialReference == null) || !GeometryProjector.isSupported(spatialReference.getWkid())) {
+			throw new IllegalArgumentException("Index spatial reference must be WGS84 or Web Mercator.");
+		}
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Grid cell size must be greater than zero.");
+		}
+
+		this.wkid = spatialReference.getWkid();
+		this.cellSize = cellSize;
+		this.list = new IndexedGraphicList();
+		this.indexes = new Indexes();
+	}
+
+	/**
+	 * Method to calculate the default grid cell size of a spatial reference.
+	 * 
+	 * @param spatialReference Spatial reference.
+	 * @return Grid cell size in units of the spatial reference.
+	 */
+	private static double calculateCellSize(SpatialReference spatialReference) {
+		boolean mercator = (spatialReference != null) && GeometryProjector.isWebMercator(spatialReference.getWkid());
+		return mercator ? (DEFAULT_CELL_SIZE * METERS_PER_DEGREE) : DEFAULT_CELL_SIZE;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.model.layer.GraphicsLayer#reset()
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+
+		// The indexes are not yet created when called by the super constructor.
+		if (this.list != null) {
+			this.list.clear();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.model.layer.GraphicsLayer#findGraphic(java.lang.String)
+	 */
+	@Override
+	public Graphic findGraphic(String id) {
+		return (id != null) ? this.indexes.ids.get(id) : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.model.layer.GraphicsLayer#getExtent()
+	 */
+	@Override
+	public Extent getExtent() {
+		Indexes indexes = this.indexes;
+
+		// Recalculate only after removing a graphic on the extent boundary.
+		if (indexes.boundsStale) {
+			indexes.bounds = null;
+			for (Extent e : indexes.envelopes.values()) {
+				indexes.bounds = (indexes.bounds == null) ? new Extent(e.getXmin(), e.getYmin(), e.getXmax(), e.getYmax()) : indexes.bounds.expand(e);
+			}
+			indexes.boundsStale = false;
+		}
+
+		Extent e = indexes.bounds;
+		return (e != null) ? (Extent) GeometryProjector.project(new Extent(this.wkid, e.getXmin(), e.getYmin(), e.getXmax(), e.getYmax()),
+				SpatialReference.WKID_WGS84) : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisfaces.model.layer.GraphicsLayer#getGraphics()
+	 */
+	@Override
+	public List<Graphic> getGraphics() {
+		return this.list;
+	}
+
+	/**
+	 * Method to set the graphics. The graphics are copied and indexed first, and
+	 * then published with a single assignment, so concurrent readers see either
+	 * the previous or the new graphics.
+	 * 
+	 * @param graphics List of Graphic objects.
+	 */
+	@Override
+	public void setGraphics(List<Graphic> graphics) {
+		Indexes indexes = new Indexes();
+
+		if (graphics != null) {
+			for (Graphic g : graphics) {
+				if (g == null) {
+					throw new NullPointerException("Graphic must not be null.");
+				}
+				indexes.graphics.add(g);
+				this.index(indexes, g);
+			}
+		}
+
+		this.list.replace(indexes);
+	}
+
+	/**
+	 * Method to reindex a graphic after its ID or geometry was modified in place.
+	 * 
+	 * @param graphic Graphic.
+	 */
+	@Override
+	public void update(Graphic graphic) {
+		Indexes indexes = this.indexes;
+		if ((graphic != null) && (indexes.keys.containsKey(graphic) || indexes.envelopes.containsKey(graphic) || indexes.graphics.contains(graphic))) {
+			this.unindex(indexes, graphic);
+			this.index(indexes, graphic);
+		}
+		super.update(graphic);
+	}
+
+	/**
+	 * Method to find the graphics whose geometry envelope intersects an extent.
+	 * 
+	 * @param extent Extent.
+	 * @return List of intersecting graphics, in no particular order.
+	 */
+	public List<Graphic> query(Extent extent) {
+		Indexes indexes = this.indexes;
+		List<Graphic> results = new ArrayList<Graphic>();
+
+		if (extent != null) {
+			extent = (Extent) GeometryProjector.project(extent, this.wkid);
+			Set<Graphic> seen = Collections.newSetFromMap(new IdentityHashMap<Graphic, Boolean>());
+
+			long cx1 = this.cell(extent.getXmin());
+			long cy1 = this.cell(extent.getYmin());
+			long cx2 = this.cell(extent.getXmax());
+			long cy2 = this.cell(extent.getYmax());
+
+			if ((extent.getXmin() > extent.getXmax()) || (IndexedGraphicsLayer.count(cx1, cy1, cx2, cy2) > indexes.cells.size())) {
+				// Scanning all envelopes is cheaper than visiting every covered cell.
+				for (Map.Entry<Graphic, Extent> entry : indexes.envelopes.entrySet()) {
+					if (extent.intersects(entry.getValue())) {
+						results.add(entry.getKey());
+					}
+				}
+				return results;
+			}
+
+			for (long cx = cx1; cx <= cx2; cx++) {
+				for (long cy = cy1; cy <= cy2; cy++) {
+					List<Graphic> graphics = indexes.cells.get(IndexedGraphicsLayer.key(cx, cy));
+					if (graphics != null) {
+						for (Graphic g : graphics) {
+							if (extent.intersects(indexes.envelopes.get(g)) && seen.add(g)) {
+								results.add(g);
+							}
+						}
+					}
+				}
+			}
+
+			for (Graphic g : indexes.oversized) {
+				if (extent.intersects(indexes.envelopes.get(g))) {
+					results.add(g);
+				}
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Method to find the graphics nearest to a point, measured in units of the
+	 * index spatial reference from the point to each graphic geometry envelope.
+	 * 
+	 * @param point Point.
+	 * @param k     Maximum number of graphics.
+	 * @return List of the nearest graphics, ordered by increasing distance.
+	 */
+	public List<Graphic> nearest(Point point, int k) {
+		Indexes indexes = this.indexes;
+		List<Graphic> results = new ArrayList<Graphic>();
+
+		if ((point == null) || (point.getLatitude() == null) || (point.getLongitude() == null) || (k <= 0) || indexes.envelopes.isEmpty()) {
+			return results;
+		}
+		point = (Point) GeometryProjector.project(point, this.wkid);
+
+		final double x = point.getLongitude();
+		final double y = point.getLatitude();
+		// Keep the k nearest candidates in a max heap by distance.
+		PriorityQueue<Candidate> heap = new PriorityQueue<Candidate>(k + 1, new Comparator<Candidate>() {
+			@Override
+			public int compare(Candidate c1, Candidate c2) {
+				return Double.compare(c2.distance, c1.distance);
+			}
+		});
+		Set<Graphic> seen = Collections.newSetFromMap(new IdentityHashMap<Graphic, Boolean>());
+
+		for (Graphic g : indexes.oversized) {
+			this.offer(indexes, heap, seen, g, x, y, k);
+		}
+
+		// Search rings of grid cells outward from the point.
+		long cx = this.cell(x);
+		long cy = this.cell(y);
+		long remaining = indexes.cells.size();
+
+		for (long r = 0; remaining > 0; r++) {
+			// Stop once the ring is further away than the farthest candidate.
+			if ((heap.size() == k) && (((r - 1) * this.cellSize) > heap.peek().distance)) {
+				break;
+			}
+
+			// Scanning all envelopes is cheaper than visiting mostly empty rings.
+			if (((2 * r) + 1) * ((2 * r) + 1) > (4 * indexes.cells.size())) {
+				for (Graphic g : indexes.envelopes.keySet()) {
+					this.offer(indexes, heap, seen, g, x, y, k);
+				}
+				break;
+			}
+
+			// Visit the cells on the ring perimeter.
+			long side = Math.max(2 * r, 1);
+			for (long i = 0; i < (4 * side); i++) {
+				long edge = i / side;
+				long step = i % side;
+				long ci = (edge == 0) ? (cx - r + step) : (edge == 1) ? (cx + r) : (edge == 2) ? (cx + r - step) : (cx - r);
+				long cj = (edge == 0) ? (cy - r) : (edge == 1) ? (cy - r + step) : (edge == 2) ? (cy + r) : (cy + r - step);
+
+				List<Graphic> graphics = indexes.cells.get(IndexedGraphicsLayer.key(ci, cj));
+				if (graphics != null) {
+					remaining--;
+					for (Graphic g : graphics) {
+						this.offer(indexes, heap, seen, g, x, y, k);
+					}
+				}
+
+				// The center ring is a single cell.
+				if (r == 0) {
+					break;
+				}
+			}
+		}
+
+		while (!heap.isEmpty()) {
+			results.add(heap.poll().graphic);
+		}
+		Collections.reverse(results);
+
+		return results;
+	}
+
+	/**
+	 * Method to offer a graphic to the nearest candidates heap.
+	 * 
+	 * @param indexes Graphics and their indexes.
+	 * @param heap    Candidates heap.
+	 * @param seen    Graphics already offered.
+	 * @param g       Graphic.
+	 * @param x       Point X-coordinate.
+	 * @param y       Point Y-coordinate.
+	 * @param k       Maximum number of candidates.
+	 */
+	private void offer(Indexes indexes, PriorityQueue<Candidate> heap, Set<Graphic> seen, Graphic g, double x, double y, int k) {
+		if (seen.add(g)) {
+			Extent e = indexes.envelopes.get(g);
+			double dx = Math.max(Math.max(e.getXmin() - x, 0), x - e.getXmax());
+			double dy = Math.max(Math.max(e.getYmin() - y, 0), y - e.getYmax());
+			double distance = Math.sqrt((dx * dx) + (dy * dy));
+
+			if (heap.size() < k) {
+				heap.add(new Candidate(g, distance));
+			} else if (distance < heap.peek().distance) {
+				heap.poll();
+				heap.add(new Candidate(g, distance));
+			}
+		}
+	}
+
+	/**
+	 * Method to add a graphic to the indexes.
+	 * 
+	 * @param indexes Graphics and their indexes.
+	 * @param g       Graphic.
+	 */
+	private void index(Indexes indexes, Graphic g) {
+		String id = g.getId();
+		if (id != null) {
+			indexes.keys.put(g, id);
+			Graphic first = indexes.ids.get(id);
+			if (first == null) {
+				indexes.ids.put(id, g);
+			} else {
+				Integer count = indexes.duplicates.get(id);
+				indexes.duplicates.put(id, (count == null) ? 1 : (count + 1));
+
+				// Keep the graphic at the lowest list position, as a reindexed or inserted graphic may precede it.
+				if (this.precedes(indexes, g, first)) {
+					indexes.ids.put(id, g);
+				}
+			}
+		}
+
+		Extent e = Extent.envelope(g.getGeometry(), this.wkid);
+		if (e != null) {
+			e = new Extent(e.getXmin(), e.getYmin(), e.getXmax(), e.getYmax());
+			indexes.envelopes.put(g, e);
+
+			if (!indexes.boundsStale) {
+				indexes.bounds = (indexes.bounds == null) ? new Extent(e.getXmin(), e.getYmin(), e.getXmax(), e.getYmax()) : indexes.bounds.expand(e);
+			}
+
+			long cx1 = this.cell(e.getXmin());
+			long cy1 = this.cell(e.getYmin());
+			long cx2 = this.cell(e.getXmax());
+			long cy2 = this.cell(e.getYmax());
+
+			if (IndexedGraphicsLayer.count(cx1, cy1, cx2, cy2) > MAX_CELLS) {
+				indexes.oversized.add(g);
+			} else {
+				for (long cx = cx1; cx <= cx2; cx++) {
+					for (long cy = cy1; cy <= cy2; cy++) {
+						Long key = IndexedGraphicsLayer.key(cx, cy);
+						List<Graphic> graphics = indexes.cells.get(key);
+						if (graphics == null) {
+							graphics = new ArrayList<Graphic>(4);
+							indexes.cells.put(key, graphics);
+						}
+						graphics.add(g);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to remove a graphic from the indexes.
+	 * 
+	 * @param indexes Graphics and their indexes.
+	 * @param g       Graphic.
+	 */
+	private void unindex(Indexes indexes, Graphic g) {
+		// Remove the ID mapping, falling back to the next graphic with the same ID.
+		String id = indexes.keys.remove(g);
+		if (id != null) {
+			Integer count = indexes.duplicates.get(id);
+			if (count == null) {
+				indexes.ids.remove(id);
+			} else {
+				if (count == 1) {
+					indexes.duplicates.remove(id);
+				} else {
+					indexes.duplicates.put(id, count - 1);
+				}
+
+				if (indexes.ids.get(id) == g) {
+					for (Graphic other : indexes.graphics) {
+						if ((other != g) && id.equals(indexes.keys.get(other))) {
+							indexes.ids.put(id, other);
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		Extent e = indexes.envelopes.remove(g);
+		if (e != null) {
+			Extent b = indexes.bounds;
+			if ((b != null) && ((e.getXmin() <= b.getXmin()) || (e.getYmin() <= b.getYmin()) || (e.getXmax() >= b.getXmax()) || (e.getYmax() >= b.getYmax()))) {
+				indexes.boundsStale = true;
+			}
+
+			if (!this.removeIdentity(indexes.oversized, g)) {
+				for (long cx = this.cell(e.getXmin()); cx <= this.cell(e.getXmax()); cx++) {
+					for (long cy = this.cell(e.getYmin()); cy <= this.cell(e.getYmax()); cy++) {
+						Long key = IndexedGraphicsLayer.key(cx, cy);
+						List<Graphic> graphics = indexes.cells.get(key);
+						if ((graphics != null) && this.removeIdentity(graphics, g) && graphics.isEmpty()) {
+							indexes.cells.remove(key);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to determine if a graphic precedes another in the graphics list.
+	 * 
+	 * @param indexes Graphics and their indexes.
+	 * @param g       Graphic.
+	 * @param other   Other graphic.
+	 * @return <code>true</code> if the graphic is found first, <code>false</code>
+	 *         otherwise.
+	 */
+	private boolean precedes(Indexes indexes, Graphic g, Graphic other) {
+		for (Graphic graphic : indexes.graphics) {
+			if (graphic == g) {
+				return true;
+			} else if (graphic == other) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Method to remove a graphic from a list by identity.
+	 * 
+	 * @param graphics List of graphics.
+	 * @param g        Graphic.
+	 * @return <code>true</code> if removed, <code>false</code> otherwise.
+	 */
+	private boolean removeIdentity(List<Graphic> graphics, Graphic g) {
+		for (int i = graphics.size() - 1; i >= 0; i--) {
+			if (graphics.get(i) == g) {
+				graphics.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Method to get the grid cell index of a coordinate.
+	 * 
+	 * @param value Coordinate.
+	 * @return Grid cell index.
+	 */
+	private long cell(double value) {
+		return (long) Math.floor(value / this.cellSize);
+	}
+
+	/**
+	 * Method to get the number of grid cells in a range of cell indexes. The
+	 * count is saturated at <code>Long.MAX_VALUE</code> rather than overflowing
+	 * for fine cells over a large extent.
+	 * 
+	 * @param cx1 Minimum grid cell X-index.
+	 * @param cy1 Minimum grid cell Y-index.
+	 * @param cx2 Maximum grid cell X-index.
+	 * @param cy2 Maximum grid cell Y-index.
+	 * @return Number of grid cells.
+	 */
+	private static long count(long cx1, long cy1, long cx2, long cy2) {
+		double count = (((double) cx2 - cx1) + 1) * (((double) cy2 - cy1) + 1);
+		return (count < Long.MAX_VALUE) ? (long) count : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Method to get the key of a grid cell. The packed cell indexes are
+	 * multiplied by an odd constant, which is reversible and spreads the bits
+	 * used by the <code>Long</code> hash code.
+	 * 
+	 * @param cx Grid cell X-index.
+	 * @param cy Grid cell Y-index.
+	 * @return Grid cell key.
+	 */
+	private static Long key(long cx, long cy) {
+		return Long.valueOf(((cx << 32) ^ (cy & 0xffffffffL)) * 0x9e3779b97f4a7c15L);
+	}
+
+	/**
+	 * Nearest graphic candidate class.
+	 */
+	private static class Candidate {
+		/** Graphic. */
+		private final Graphic graphic;
+
+		/** Distance to the graphic envelope. */
+		private final double distance;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param graphic  Graphic.
+		 * @param distance Distance to the graphic envelope.
+		 */
+		private Candidate(Graphic graphic, double distance) {
+			this.graphic = graphic;
+			this.distance = distance;
+		}
+	}
+
+	/**
+	 * Graphics and indexes class, replaced as a whole when the graphics are set.
+	 */
+	private static class Indexes implements Serializable {
+		/** Serial Version UID. */
+		private static final long serialVersionUID = 6180571839407652418L;
+
+		/** Graphics. */
+		private final List<Graphic> graphics = new ArrayList<Graphic>();
+
+		/** Graphics by ID, holding the first graphic for duplicated IDs. */
+		private final Map<String, Graphic> ids = new HashMap<String, Graphic>();
+
+		/** Indexed IDs by graphic identity. */
+		private final Map<Graphic, String> keys = new IdentityHashMap<Graphic, String>();
+
+		/** Number of additional graphics by duplicated ID. */
+		private final Map<String, Integer> duplicates = new HashMap<String, Integer>();
+
+		/** Geometry envelopes by graphic identity. */
+		private final Map<Graphic, Extent> envelopes = new IdentityHashMap<Graphic, Extent>();
+
+		/** Graphics by grid cell key. */
+		private final Map<Long, List<Graphic>> cells = new HashMap<Long, List<Graphic>>();
+
+		/** Graphics with envelopes too large for the grid, always scanned. */
+		private final List<Graphic> oversized = new ArrayList<Graphic>();
+
+		/** Extent of all geometry envelopes, expanded as graphics are indexed. */
+		private Extent bounds;
+
+		/** Indicator that the extent must be recalculated after a removal. */
+		private boolean boundsStale;
+	}
+
+	/**
+	 * Graphics list class which maintains the layer indexes on modification.
+	 */
+	private class IndexedGraphicList extends AbstractList<Graphic> implements Serializable {
+		/** Serial Version UID. */
+		private static final long serialVersionUID = -7793026470816320511L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Graphic get(int index) {
+			return IndexedGraphicsLayer.this.indexes.graphics.get(index);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return IndexedGraphicsLayer.this.indexes.graphics.size();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#add(int, java.lang.Object)
+		 */
+		@Override
+		public void add(int index, Graphic graphic) {
+			if (graphic == null) {
+				throw new NullPointerException("Graphic must not be null.");
+			}
+			Indexes indexes = IndexedGraphicsLayer.this.indexes;
+			indexes.graphics.add(index, graphic);
+			this.modCount++;
+			IndexedGraphicsLayer.this.index(indexes, graphic);
+			IndexedGraphicsLayer.this.added(graphic);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#set(int, java.lang.Object)
+		 */
+		@Override
+		public Graphic set(int index, Graphic graphic) {
+			if (graphic == null) {
+				throw new NullPointerException("Graphic must not be null.");
+			}
+			Indexes indexes = IndexedGraphicsLayer.this.indexes;
+			Graphic old = indexes.graphics.set(index, graphic);
+			IndexedGraphicsLayer.this.unindex(indexes, old);
+			IndexedGraphicsLayer.this.index(indexes, graphic);
+			IndexedGraphicsLayer.this.removed(old);
+			IndexedGraphicsLayer.this.added(graphic);
+			return old;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#remove(int)
+		 */
+		@Override
+		public Graphic remove(int index) {
+			Indexes indexes = IndexedGraphicsLayer.this.indexes;
+			Graphic old = indexes.graphics.remove(index);
+			this.modCount++;
+			IndexedGraphicsLayer.this.unindex(indexes, old);
+			IndexedGraphicsLayer.this.removed(old);
+			return old;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractList#clear()
+		 */
+		@Override
+		public void clear() {
+			this.replace(new Indexes());
+		}
+
+		/**
+		 * Method to publish new graphics and their indexes.
+		 * 
+		 * @param indexes Graphics and their indexes.
+		 */
+		private void replace(Indexes indexes) {
+			IndexedGraphicsLayer.this.indexes = indexes;
+			this.modCount++;
+			IndexedGraphicsLayer.this.cleared();
+		}
+	}
+}
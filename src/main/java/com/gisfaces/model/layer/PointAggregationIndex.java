@@ -0,0 +1,600 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.layer;
+
+import com.gisfaces.model.color.Color;
+import com.gisfaces.model.color.ColorRamp;
+import com.gisfaces.model.geometry.Extent;
+import com.gisfaces.model.geometry.GeometryGeneralizer;
+import com.gisfaces.model.geometry.PackedCoordinates;
+import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.Polygon;
+import com.gisfaces.model.graphic.Graphic;
+import com.gisfaces.model.symbol.SimpleFillSymbol;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Point aggregation index class. Maintains point graphic counts and attribute
+ * sums for a hierarchy of geohash cells, from one geohash character up to a
+ * maximum precision. Points are added to, updated in and removed from every
+ * level incrementally. Cells are sorted by geohash bits, so the cells of a
+ * level intersecting an extent are read by the geohash prefix ranges of a few
+ * coarser cells covering the extent, rather than by scanning the level.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class PointAggregationIndex {
+	/** Aggregate count attribute name. */
+	public static final String ATTRIBUTE_COUNT = "aggregate_count";
+
+	/** Aggregate cell attribute name. */
+	public static final String ATTRIBUTE_GEOHASH = "aggregate_geohash";
+
+	/** Aggregate graphic ID prefix. */
+	public static final String ID_PREFIX = "aggregate:";
+
+	/** Maximum geohash precision held in a long. */
+	public static final int MAX_PRECISION = 12;
+
+	/** Geohash base 32 characters. */
+	private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+	/** Number of bits per coordinate at the maximum precision. */
+	private static final int COORDINATE_BITS = (MAX_PRECISION * 5) / 2;
+
+	/** Maximum number of geohash prefix ranges covering a query extent. */
+	private static final int MAX_RANGES = 64;
+
+	/** Maximum geohash precision of this index. */
+	private final int precision;
+
+	/** Attribute names to sum. */
+	private final String[] attributes;
+
+	/** Cells sorted by geohash bits, for each precision from one to the maximum. */
+	private final List<NavigableMap<Long, Cell>> levels;
+
+	/** Aggregated points by graphic identity. */
+	private final Map<Graphic, Entry> entries;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param precision  Maximum geohash precision, from 1 to 12.
+	 * @param attributes Attribute names to sum.
+	 */
+	public PointAggregationIndex(int precision, String... attributes) {
+		super();
+		this.precision = Math.max(Math.min(precision, MAX_PRECISION), 1);
+		this.attributes = (attributes != null) ? attributes.clone() : new String[0];
+		this.levels = new ArrayList<NavigableMap<Long, Cell>>(this.precision);
+		for (int i = 1; i <= this.precision; i++) {
+			this.levels.add(new TreeMap<Long, Cell>());
+		}
+		this.entries = new IdentityHashMap<Graphic, Entry>();
+	}
+
+	/**
+	 * Method to get the maximum geohash precision.
+	 * 
+	 * @return Maximum geohash precision.
+	 */
+	public int getPrecision() {
+		return this.precision;
+	}
+
+	/**
+	 * Method to get the number of aggregated points.
+	 * 
+	 * @return Number of points.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Method to add a point graphic. Graphics without a point geometry, or
+	 * already added, are ignored.
+	 * 
+	 * @param graphic Graphic.
+	 */
+	public void add(Graphic graphic) {
+		if (!PointClusterIndex.isClusterable(graphic) || this.entries.containsKey(graphic)) {
+			return;
+		}
+
+		Point p = (Point) graphic.getGeometry();
+		Entry entry = new Entry(PointAggregationIndex.encode(p.getLongitude(), p.getLatitude()), this.values(graphic));
+		this.entries.put(graphic, entry);
+		this.apply(entry, 1);
+	}
+
+	/**
+	 * Method to remove a point graphic.
+	 * 
+	 * @param graphic Graphic.
+	 */
+	public void remove(Graphic graphic) {
+		Entry entry = this.entries.remove(graphic);
+		if (entry != null) {
+			this.apply(entry, -1);
+		}
+	}
+
+	/**
+	 * Method to reaggregate a point graphic after its geometry or attributes were
+	 * modified in place. Graphics no longer having a point geometry are removed.
+	 * 
+	 * @param graphic Graphic.
+	 */
+	public void update(Graphic graphic) {
+		Entry entry = this.entries.get(graphic);
+		if (entry == null) {
+			this.add(graphic);
+		} else if (!PointClusterIndex.isClusterable(graphic)) {
+			this.remove(graphic);
+		} else {
+			this.refresh(graphic, entry);
+		}
+	}
+
+	/**
+	 * Method to reaggregate a point entry if its geohash or attribute values
+	 * changed.
+	 * 
+	 * @param graphic Point graphic.
+	 * @param entry   Point entry.
+	 */
+	private void refresh(Graphic graphic, Entry entry) {
+		Point p = (Point) graphic.getGeometry();
+		long hash = PointAggregationIndex.encode(p.getLongitude(), p.getLatitude());
+
+		boolean changed = (hash != entry.hash);
+		for (int i = 0; !changed && (i < this.attributes.length); i++) {
+			changed = (Double.compare(this.value(graphic, i), entry.values[i]) != 0);
+		}
+
+		if (changed) {
+			this.apply(entry, -1);
+			entry.hash = hash;
+			entry.values = this.values(graphic);
+			this.apply(entry, 1);
+		}
+	}
+
+	/**
+	 * Method to find the cells of a precision intersecting an extent. The
+	 * extent is covered by the cells of the finest precision needing at most
+	 * <code>MAX_RANGES</code> cells, and the cells of the requested precision
+	 * are read from the geohash prefix range of each covering cell.
+	 * 
+	 * @param extent    Extent in geographic coordinates, or <code>null</code>
+	 *                  for all cells.
+	 * @param precision Geohash precision, limited to the maximum precision.
+	 * @return List of cells.
+	 */
+	public List<Cell> query(Extent extent, int precision) {
+		int p = Math.max(Math.min(precision, this.precision), 1);
+		NavigableMap<Long, Cell> level = this.levels.get(p - 1);
+
+		if (extent == null) {
+			return new ArrayList<Cell>(level.values());
+		}
+
+		List<Cell> cells = new ArrayList<Cell>();
+		double ymin = Math.max(extent.getYmin(), -90);
+		double ymax = Math.min(extent.getYmax(), 90);
+		if (level.isEmpty() || (ymin > ymax)) {
+			return cells;
+		}
+
+		// Split an extent crossing the antimeridian into two longitude ranges.
+		double[] xranges = (extent.getXmin() > extent.getXmax()) ? new double[] { extent.getXmin(), 180, -180, extent.getXmax() }
+				: new double[] { extent.getXmin(), extent.getXmax() };
+
+		// Find the finest covering precision with few enough covering cells.
+		int q = p;
+		while ((q > 1) && (PointAggregationIndex.countCells(xranges, ymin, ymax, q) > MAX_RANGES)) {
+			q--;
+		}
+
+		int shift = (p - q) * 5;
+		long[] columns = PointAggregationIndex.columns(xranges, q);
+		long cy1 = PointAggregationIndex.cellIndex(ymin, -90, 180, (q * 5) / 2);
+		long cy2 = PointAggregationIndex.cellIndex(ymax, -90, 180, (q * 5) / 2);
+
+		for (int i = 0; i < columns.length; i += 2) {
+			for (long cx = columns[i]; cx <= columns[i + 1]; cx++) {
+				for (long cy = cy1; cy <= cy2; cy++) {
+					long prefix = PointAggregationIndex.interleave(cx, cy, q * 5);
+					for (Cell cell : level.subMap(prefix << shift, true, (prefix + 1) << shift, false).values()) {
+						if (extent.intersects(cell.getExtent())) {
+							cells.add(cell);
+						}
+					}
+				}
+			}
+		}
+
+		return cells;
+	}
+
+	/**
+	 * Method to count the cells of a precision covering longitude ranges and a
+	 * latitude range.
+	 * 
+	 * @param xranges Longitude ranges, as pairs of minimum and maximum.
+	 * @param ymin    Minimum latitude.
+	 * @param ymax    Maximum latitude.
+	 * @param q       Geohash precision.
+	 * @return Number of cells.
+	 */
+	private static long countCells(double[] xranges, double ymin, double ymax, int q) {
+		int ybits = (q * 5) / 2;
+		long rows = PointAggregationIndex.cellIndex(ymax, -90, 180, ybits) - PointAggregationIndex.cellIndex(ymin, -90, 180, ybits) + 1;
+		long[] columns = PointAggregationIndex.columns(xranges, q);
+
+		long count = 0;
+		for (int i = 0; i < columns.length; i += 2) {
+			count += (columns[i + 1] - columns[i] + 1) * rows;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Method to get the cell index ranges of a precision covering longitude
+	 * ranges. Two ranges sharing a cell, as on both sides of the antimeridian,
+	 * are merged into a single range.
+	 * 
+	 * @param xranges Longitude ranges, as one or two pairs of minimum and
+	 *                maximum.
+	 * @param q       Geohash precision.
+	 * @return Cell index ranges, as pairs of minimum and maximum.
+	 */
+	private static long[] columns(double[] xranges, int q) {
+		int xbits = ((q * 5) + 1) / 2;
+		long[] columns = new long[xranges.length];
+
+		for (int i = 0; i < xranges.length; i += 2) {
+			columns[i] = PointAggregationIndex.cellIndex(Math.max(xranges[i], -180), -180, 360, xbits);
+			columns[i + 1] = PointAggregationIndex.cellIndex(Math.min(xranges[i + 1], 180), -180, 360, xbits);
+		}
+
+		if ((columns.length > 2) && (columns[3] >= columns[0])) {
+			return new long[] { 0, (1L << xbits) - 1 };
+		}
+
+		return columns;
+	}
+
+	/**
+	 * Method to get the cell index of a coordinate along one axis.
+	 * 
+	 * @param value  Coordinate.
+	 * @param origin Axis origin.
+	 * @param span   Axis span.
+	 * @param bits   Number of bits of the axis.
+	 * @return Cell index, limited to the axis.
+	 */
+	private static long cellIndex(double value, double origin, double span, int bits) {
+		long max = (1L << bits) - 1;
+		return Math.max(Math.min((long) Math.floor(((value - origin) / span) * (1L << bits)), max), 0);
+	}
+
+	/**
+	 * Method to interleave longitude and latitude cell indexes into geohash
+	 * bits, starting with longitude.
+	 * 
+	 * @param x    Longitude cell index.
+	 * @param y    Latitude cell index.
+	 * @param bits Number of geohash bits.
+	 * @return Geohash bits.
+	 */
+	private static long interleave(long x, long y, int bits) {
+		int xbit = ((bits + 1) / 2) - 1;
+		int ybit = (bits / 2) - 1;
+
+		long hash = 0;
+		for (int i = 0; i < bits; i++) {
+			hash = (hash << 1) | (((i % 2) == 0) ? ((x >>> xbit--) & 1) : ((y >>> ybit--) & 1));
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Method to calculate the geohash precision with cells at least a number of
+	 * pixels wide at a zoom level.
+	 * 
+	 * @param zoom   Map zoom level.
+	 * @param pixels Minimum cell width in pixels.
+	 * @return Geohash precision, from 1 to 12.
+	 */
+	public static int calculatePrecision(int zoom, double pixels) {
+		double width = GeometryGeneralizer.calculateTolerance(zoom, pixels);
+
+		int p = 1;
+		while ((p < MAX_PRECISION) && (PointAggregationIndex.cellWidth(p + 1) >= width)) {
+			p++;
+		}
+
+		return p;
+	}
+
+	/**
+	 * Method to create polygon graphics for the cells of a precision intersecting
+	 * an extent. Cells are colored by their count relative to the largest count,
+	 * using one shared symbol per color ramp step.
+	 * 
+	 * @param extent    Extent, or <code>null</code> for all cells.
+	 * @param precision Geohash precision.
+	 * @param ramp      Color ramp.
+	 * @return List of graphics.
+	 */
+	public List<Graphic> getGraphics(Extent extent, int precision, ColorRamp ramp) {
+		List<Cell> cells = this.query(extent, precision);
+		List<Graphic> graphics = new ArrayList<Graphic>(cells.size());
+
+		int max = 0;
+		for (Cell cell : cells) {
+			max = Math.max(max, cell.getCount());
+		}
+
+		List<Color> colors = ramp.generateColorRamp();
+		SimpleFillSymbol[] symbols = new SimpleFillSymbol[colors.size()];
+
+		for (Cell cell : cells) {
+			// Pick the color ramp step of the cell count.
+			int step = (colors.size() > 1) ? (int) Math.round(((double) cell.getCount() / max) * (colors.size() - 1)) : 0;
+			if ((symbols.length > 0) && (symbols[step] == null)) {
+				symbols[step] = new SimpleFillSymbol(colors.get(step));
+			}
+
+			Map<String, Object> attributes = new LinkedHashMap<String, Object>((int) ((this.attributes.length + 2) / 0.75f) + 1);
+			attributes.put(ATTRIBUTE_GEOHASH, cell.getGeohash());
+			attributes.put(ATTRIBUTE_COUNT, cell.getCount());
+			for (int i = 0; i < this.attributes.length; i++) {
+				attributes.put(this.attributes[i], cell.getSum(i));
+			}
+
+			Extent e = cell.getExtent();
+			double[] ring = { e.getXmin(), e.getYmin(), e.getXmin(), e.getYmax(), e.getXmax(), e.getYmax(), e.getXmax(), e.getYmin(), e.getXmin(),
+					e.getYmin() };
+			Polygon polygon = new Polygon();
+			polygon.setCoordinates(PackedCoordinates.wrap(ring, new int[] { 0, 5 }, false));
+
+			graphics.add(new Graphic(ID_PREFIX + cell.getGeohash(), polygon, (symbols.length > 0) ? symbols[step] : null, attributes));
+		}
+
+		return graphics;
+	}
+
+	/**
+	 * Method to get the attribute values to sum of a graphic.
+	 * 
+	 * @param graphic Graphic.
+	 * @return Attribute values, with zero for missing or non-numeric values.
+	 */
+	private double[] values(Graphic graphic) {
+		double[] values = new double[this.attributes.length];
+
+		for (int i = 0; i < this.attributes.length; i++) {
+			values[i] = this.value(graphic, i);
+		}
+
+		return values;
+	}
+
+	/**
+	 * Method to get an attribute value to sum of a graphic.
+	 * 
+	 * @param graphic Graphic.
+	 * @param index   Attribute index.
+	 * @return Attribute value, or zero for a missing or non-numeric value.
+	 */
+	private double value(Graphic graphic, int index) {
+		Object value = (graphic.getAttributes() != null) ? graphic.getAttributes().get(this.attributes[index]) : null;
+		return (value instanceof Number) ? ((Number) value).doubleValue() : 0;
+	}
+
+	/**
+	 * Method to add or subtract a point in the cells of every precision.
+	 * 
+	 * @param entry Point entry.
+	 * @param sign  1 to add, or -1 to subtract.
+	 */
+	private void apply(Entry entry, int sign) {
+		for (int p = 1; p <= this.precision; p++) {
+			Long key = entry.hash >>> ((MAX_PRECISION - p) * 5);
+			NavigableMap<Long, Cell> level = this.levels.get(p - 1);
+			Cell cell = level.get(key);
+			if (cell == null) {
+				cell = new Cell(key, p, this.attributes.length);
+				level.put(key, cell);
+			}
+
+			cell.count += sign;
+			for (int i = 0; i < entry.values.length; i++) {
+				cell.sums[i] += sign * entry.values[i];
+			}
+
+			if (cell.count <= 0) {
+				level.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Method to encode a point as geohash bits at the maximum precision.
+	 * Longitude and latitude bits are interleaved, starting with longitude.
+	 * 
+	 * @param longitude Longitude.
+	 * @param latitude  Latitude.
+	 * @return Geohash bits.
+	 */
+	static long encode(double longitude, double latitude) {
+		long max = (1L << COORDINATE_BITS) - 1;
+		long x = Math.max(Math.min((long) Math.floor(((longitude + 180) / 360) * (1L << COORDINATE_BITS)), max), 0);
+		long y = Math.max(Math.min((long) Math.floor(((latitude + 90) / 180) * (1L << COORDINATE_BITS)), max), 0);
+
+		long hash = 0;
+		for (int i = COORDINATE_BITS - 1; i >= 0; i--) {
+			hash = (hash << 2) | (((x >>> i) & 1) << 1) | ((y >>> i) & 1);
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Method to calculate the cell width in degrees of a precision.
+	 * 
+	 * @param precision Geohash precision.
+	 * @return Cell width in degrees.
+	 */
+	private static double cellWidth(int precision) {
+		return 360.0 / (1L << (((precision * 5) + 1) / 2));
+	}
+
+	/**
+	 * Aggregated point entry class.
+	 */
+	private static class Entry {
+		/** Geohash bits at the maximum precision. */
+		private long hash;
+
+		/** Attribute values to sum. */
+		private double[] values;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param hash   Geohash bits at the maximum precision.
+		 * @param values Attribute values to sum.
+		 */
+		Entry(long hash, double[] values) {
+			super();
+			this.hash = hash;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Geohash aggregation cell class.
+	 */
+	public static class Cell {
+		/** Geohash bits. */
+		private final long bits;
+
+		/** Geohash precision. */
+		private final int precision;
+
+		/** Number of points. */
+		private int count;
+
+		/** Attribute sums. */
+		private final double[] sums;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param bits      Geohash bits.
+		 * @param precision Geohash precision.
+		 * @param size      Number of attribute sums.
+		 */
+		Cell(long bits, int precision, int size) {
+			super();
+			this.bits = bits;
+			this.precision = precision;
+			this.sums = new double[size];
+		}
+
+		/**
+		 * Method to get the geohash text.
+		 * 
+		 * @return Geohash.
+		 */
+		public String getGeohash() {
+			char[] c = new char[this.precision];
+			for (int i = 0; i < this.precision; i++) {
+				c[i] = BASE32.charAt((int) ((this.bits >>> ((this.precision - 1 - i) * 5)) & 31));
+			}
+			return new String(c);
+		}
+
+		/**
+		 * Method to get the number of points.
+		 * 
+		 * @return Number of points.
+		 */
+		public int getCount() {
+			return this.count;
+		}
+
+		/**
+		 * Method to get an attribute sum.
+		 * 
+		 * @param index Attribute index.
+		 * @return Attribute sum.
+		 */
+		public double getSum(int index) {
+			return this.sums[index];
+		}
+
+		/**
+		 * Method to get the cell extent.
+		 * 
+		 * @return Extent
+		 */
+		public Extent getExtent() {
+			int bits = this.precision * 5;
+			int xbits = (bits + 1) / 2;
+			int ybits = bits / 2;
+
+			// Deinterleave the longitude and latitude bits, starting with longitude.
+			long x = 0;
+			long y = 0;
+			for (int i = bits - 1; i >= 0; i--) {
+				long bit = (this.bits >>> i) & 1;
+				if (((bits - 1 - i) % 2) == 0) {
+					x = (x << 1) | bit;
+				} else {
+					y = (y << 1) | bit;
+				}
+			}
+
+			double w = 360.0 / (1L << xbits);
+			double h = 180.0 / (1L << ybits);
+
+			return new Extent((x * w) - 180, (y * h) - 90, ((x + 1) * w) - 180, ((y + 1) * h) - 90);
+		}
+	}
+}
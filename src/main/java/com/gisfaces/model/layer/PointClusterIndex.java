@@ -0,0 +1,434 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.model.layer;
+
+import com.gisfaces.model.geometry.Extent;
+import com.gisfaces.model.geometry.GeometryProjector;
+import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.SpatialReference;
+import com.gisfaces.model.graphic.Graphic;
+import com.gisfaces.model.symbol.SimpleMarkerSymbol;
+import com.gisfaces.utilities.GISUtilities;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point cluster index class. A hierarchical index of point graphic clusters,
+ * built once for every zoom level from the maximum zoom level down to zero by
+ * greedily merging the clusters of the level above within a pixel radius. Each
+ * zoom level is then read directly without reclustering.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class PointClusterIndex {
+	/** Cluster count attribute name. */
+	public static final String ATTRIBUTE_COUNT = "cluster_count";
+
+	/** Cluster graphic ID prefix. */
+	public static final String ID_PREFIX = "cluster:";
+
+	/** Meters per pixel at a scale of one, assuming 96 DPI displays. */
+	private static final double METERS_PER_PIXEL = 0.0254 / 96;
+
+	/** Web Mercator world circumference in meters. */
+	private static final double WORLD_CIRCUMFERENCE = 40075016.685578488;
+
+	/** Clustered point graphics. */
+	private final List<Graphic> points;
+
+	/** Maximum clustered zoom level. */
+	private final int maxZoom;
+
+	/** Clusters by zoom level, from zero to the maximum zoom level plus one. */
+	private final Level[] levels;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param points  Point graphics.
+	 * @param radius  Cluster radius in pixels.
+	 * @param maxZoom Maximum clustered zoom level.
+	 */
+	public PointClusterIndex(List<Graphic> points, double radius, int maxZoom) {
+		super();
+		this.points = points;
+		this.maxZoom = Math.max(maxZoom, 0);
+		this.levels = new Level[this.maxZoom + 2];
+
+		// Every point is its own cluster above the maximum zoom level.
+		Level level = new Level(points.size());
+		for (int i = 0; i < points.size(); i++) {
+			Point p = (Point) points.get(i).getGeometry();
+			level.add(PointClusterIndex.projectX(p.getLongitude()), PointClusterIndex.projectY(p.getLatitude()), 1, i);
+		}
+		this.levels[this.maxZoom + 1] = level.trim();
+
+		// Cluster each zoom level from the level above.
+		for (int z = this.maxZoom; z >= 0; z--) {
+			level = this.cluster(level, radius * GISUtilities.calculateScale(z) * METERS_PER_PIXEL / WORLD_CIRCUMFERENCE).trim();
+			this.levels[z] = level;
+		}
+	}
+
+	/**
+	 * Method to determine if a graphic can be clustered.
+	 * 
+	 * @param graphic Graphic.
+	 * @return <code>true</code> if the graphic has a point geometry in WGS84,
+	 *         <code>false</code> otherwise.
+	 */
+	public static boolean isClusterable(Graphic graphic) {
+		return (graphic != null) && (graphic.getGeometry() instanceof Point) && (((Point) graphic.getGeometry()).getLatitude() != null)
+				&& (((Point) graphic.getGeometry()).getLongitude() != null)
+				&& (GeometryProjector.getWkid(graphic.getGeometry()) == SpatialReference.WKID_WGS84);
+	}
+
+	/**
+	 * Method to get the clusters of a zoom level. Single point clusters are
+	 * returned as the original graphic, and other clusters as graphics at the
+	 * cluster centroid with the attributes of a representative point and the
+	 * cluster count.
+	 * 
+	 * @param zoom Map zoom level.
+	 * @return List of graphics.
+	 */
+	public List<Graphic> getClusters(double zoom) {
+		return this.getClusters(zoom, null);
+	}
+
+	/**
+	 * Method to get the clusters of a zoom level within an extent. Only the
+	 * clusters inside the extent are created.
+	 * 
+	 * @param zoom   Map zoom level.
+	 * @param extent Extent, or <code>null</code> for all clusters.
+	 * @return List of graphics.
+	 * @see #getClusters(double)
+	 */
+	public List<Graphic> getClusters(double zoom, Extent extent) {
+		int z = (int) Math.max(Math.min(Math.floor(zoom), this.maxZoom + 1), 0);
+		Level level = this.levels[z];
+		List<Graphic> graphics = new ArrayList<Graphic>((extent == null) ? level.size : 16);
+
+		// Projected Y-coordinates increase southward.
+		double xmin = (extent != null) ? PointClusterIndex.projectX(extent.getXmin()) : 0;
+		double xmax = (extent != null) ? PointClusterIndex.projectX(extent.getXmax()) : 0;
+		double ymin = (extent != null) ? PointClusterIndex.projectY(extent.getYmax()) : 0;
+		double ymax = (extent != null) ? PointClusterIndex.projectY(extent.getYmin()) : 0;
+
+		for (int i = 0; i < level.size; i++) {
+			if ((extent != null) && ((level.y[i] < ymin) || (level.y[i] > ymax) || ((xmin <= xmax) ? ((level.x[i] < xmin) || (level.x[i] > xmax))
+					: ((level.x[i] < xmin) && (level.x[i] > xmax))))) {
+				continue;
+			}
+
+			Graphic representative = this.points.get(level.representatives[i]);
+
+			if (level.counts[i] == 1) {
+				graphics.add(representative);
+			} else {
+				// Cluster graphics are created once, so they keep their identity.
+				if (level.clusters[i] == null) {
+					level.clusters[i] = this.createCluster(z, representative, level.x[i], level.y[i], level.counts[i]);
+				}
+				graphics.add(level.clusters[i]);
+			}
+		}
+
+		return graphics;
+	}
+
+	/**
+	 * Method to create a cluster graphic.
+	 * 
+	 * @param zoom           Zoom level.
+	 * @param representative Representative point graphic.
+	 * @param x              Projected cluster X-coordinate.
+	 * @param y              Projected cluster Y-coordinate.
+	 * @param count          Number of clustered points.
+	 * @return Graphic
+	 */
+	private Graphic createCluster(int zoom, Graphic representative, double x, double y, int count) {
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+		if (representative.getAttributes() != null) {
+			attributes.putAll(representative.getAttributes());
+		}
+		attributes.put(ATTRIBUTE_COUNT, count);
+
+		SimpleMarkerSymbol symbol = new SimpleMarkerSymbol();
+		symbol.setSize(String.format("%dpx", Math.round(Math.min(12 + (8 * Math.log10(count)), 48))));
+
+		Graphic cluster = new Graphic();
+		cluster.setId(String.format("%s%d:%s", ID_PREFIX, zoom, representative.getId()));
+		cluster.setTitle(String.format("%d graphics", count));
+		cluster.setGeometry(new Point(PointClusterIndex.unprojectY(y), PointClusterIndex.unprojectX(x)));
+		cluster.setSymbol(symbol);
+		cluster.setAttributes(attributes);
+
+		return cluster;
+	}
+
+	/**
+	 * Method to cluster a level within a radius. Points are visited in order,
+	 * and each unvisited point absorbs all unvisited neighbors within the radius
+	 * into a cluster at their weighted centroid. Absorbed points are removed from
+	 * the grid, so they are not scanned again.
+	 * 
+	 * @param source Source level.
+	 * @param radius Cluster radius in projected units.
+	 * @return Clustered level.
+	 */
+	private Level cluster(Level source, double radius) {
+		Level level = new Level(source.size);
+		double r2 = radius * radius;
+
+		// Hash the source clusters into a grid of radius sized cells.
+		Map<Long, Cell> grid = new HashMap<Long, Cell>();
+		Cell[] cells = new Cell[source.size];
+		for (int i = 0; i < source.size; i++) {
+			Long key = PointClusterIndex.key(source.x[i], source.y[i], radius);
+			Cell cell = grid.get(key);
+			if (cell == null) {
+				cell = new Cell();
+				grid.put(key, cell);
+			}
+			cell.size++;
+			cells[i] = cell;
+		}
+
+		int[] positions = new int[source.size];
+		for (int i = 0; i < source.size; i++) {
+			Cell cell = cells[i];
+			if (cell.items == null) {
+				cell.items = new int[cell.size];
+				cell.size = 0;
+			}
+			positions[i] = cell.size;
+			cell.items[cell.size++] = i;
+		}
+
+		for (int i = 0; i < source.size; i++) {
+			if (positions[i] >= 0) {
+				PointClusterIndex.remove(cells, positions, i);
+
+				double wx = source.x[i] * source.counts[i];
+				double wy = source.y[i] * source.counts[i];
+				int count = source.counts[i];
+
+				// Absorb unvisited neighbors in the surrounding cells.
+				long cx = (long) Math.floor(source.x[i] / radius);
+				long cy = (long) Math.floor(source.y[i] / radius);
+				for (long gx = cx - 1; gx <= cx + 1; gx++) {
+					for (long gy = cy - 1; gy <= cy + 1; gy++) {
+						Cell cell = grid.get(PointClusterIndex.key(gx, gy));
+						if (cell != null) {
+							for (int k = 0; k < cell.size;) {
+								int j = cell.items[k];
+								double dx = source.x[j] - source.x[i];
+								double dy = source.y[j] - source.y[i];
+								if (((dx * dx) + (dy * dy)) <= r2) {
+									// Removal moves the last item into this position.
+									PointClusterIndex.remove(cells, positions, j);
+									wx += source.x[j] * source.counts[j];
+									wy += source.y[j] * source.counts[j];
+									count += source.counts[j];
+								} else {
+									k++;
+								}
+							}
+						}
+					}
+				}
+
+				level.add(wx / count, wy / count, count, source.representatives[i]);
+			}
+		}
+
+		return level;
+	}
+
+	/**
+	 * Method to remove a point from its grid cell and mark it visited.
+	 * 
+	 * @param cells     Grid cells by point.
+	 * @param positions Positions in the grid cells by point.
+	 * @param i         Point index.
+	 */
+	private static void remove(Cell[] cells, int[] positions, int i) {
+		Cell cell = cells[i];
+		int last = cell.items[--cell.size];
+		cell.items[positions[i]] = last;
+		positions[last] = positions[i];
+		positions[i] = -1;
+	}
+
+	/**
+	 * Method to get the grid cell key of a projected coordinate.
+	 * 
+	 * @param x    Projected X-coordinate.
+	 * @param y    Projected Y-coordinate.
+	 * @param size Grid cell size.
+	 * @return Grid cell key.
+	 */
+	private static Long key(double x, double y, double size) {
+		return PointClusterIndex.key((long) Math.floor(x / size), (long) Math.floor(y / size));
+	}
+
+	/**
+	 * Method to get the key of a grid cell. The packed cell indexes are
+	 * multiplied by an odd constant, which is reversible and spreads the bits
+	 * used by the <code>Long</code> hash code.
+	 * 
+	 * @param cx Grid cell X-index.
+	 * @param cy Grid cell Y-index.
+	 * @return Grid cell key.
+	 */
+	private static Long key(long cx, long cy) {
+		return Long.valueOf(((cx << 32) ^ (cy & 0xffffffffL)) * 0x9e3779b97f4a7c15L);
+	}
+
+	/**
+	 * Method to project a longitude to a Web Mercator X-coordinate in the range
+	 * zero to one.
+	 * 
+	 * @param longitude Longitude.
+	 * @return Projected X-coordinate.
+	 */
+	private static double projectX(double longitude) {
+		return (longitude / 360) + 0.5;
+	}
+
+	/**
+	 * Method to project a latitude to a Web Mercator Y-coordinate in the range
+	 * zero to one.
+	 * 
+	 * @param latitude Latitude.
+	 * @return Projected Y-coordinate.
+	 */
+	private static double projectY(double latitude) {
+		double sin = Math.sin(Math.toRadians(Math.max(Math.min(latitude, 85.05112878), -85.05112878)));
+		return 0.5 - ((0.25 * Math.log((1 + sin) / (1 - sin))) / Math.PI);
+	}
+
+	/**
+	 * Method to unproject a Web Mercator X-coordinate to a longitude.
+	 * 
+	 * @param x Projected X-coordinate.
+	 * @return Longitude.
+	 */
+	private static double unprojectX(double x) {
+		return (x - 0.5) * 360;
+	}
+
+	/**
+	 * Method to unproject a Web Mercator Y-coordinate to a latitude.
+	 * 
+	 * @param y Projected Y-coordinate.
+	 * @return Latitude.
+	 */
+	private static double unprojectY(double y) {
+		return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - (2 * y)))));
+	}
+
+	/**
+	 * Grid cell class holding the indexes of unvisited points.
+	 */
+	private static class Cell {
+		/** Point indexes. */
+		private int[] items;
+
+		/** Number of point indexes. */
+		private int size;
+	}
+
+	/**
+	 * Cluster level class holding clusters in parallel arrays.
+	 */
+	private static class Level {
+		/** Projected X-coordinates. */
+		private double[] x;
+
+		/** Projected Y-coordinates. */
+		private double[] y;
+
+		/** Clustered point counts. */
+		private int[] counts;
+
+		/** Representative point indexes. */
+		private int[] representatives;
+
+		/** Cluster graphics, created on demand. */
+		private Graphic[] clusters;
+
+		/** Number of clusters. */
+		private int size;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param capacity Maximum number of clusters.
+		 */
+		private Level(int capacity) {
+			this.x = new double[capacity];
+			this.y = new double[capacity];
+			this.counts = new int[capacity];
+			this.representatives = new int[capacity];
+		}
+
+		/**
+		 * Method to add a cluster.
+		 * 
+		 * @param x              Projected X-coordinate.
+		 * @param y              Projected Y-coordinate.
+		 * @param count          Clustered point count.
+		 * @param representative Representative point index.
+		 */
+		private void add(double x, double y, int count, int representative) {
+			this.x[this.size] = x;
+			this.y[this.size] = y;
+			this.counts[this.size] = count;
+			this.representatives[this.size] = representative;
+			this.size++;
+		}
+
+		/**
+		 * Method to release unused capacity.
+		 * 
+		 * @return this.
+		 */
+		private Level trim() {
+			this.x = Arrays.copyOf(this.x, this.size);
+			this.y = Arrays.copyOf(this.y, this.size);
+			this.counts = Arrays.copyOf(this.counts, this.size);
+			this.representatives = Arrays.copyOf(this.representatives, this.size);
+			this.clusters = new Graphic[this.size];
+			return this;
+		}
+	}
+}
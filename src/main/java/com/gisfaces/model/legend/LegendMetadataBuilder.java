@@ -25,9 +25,9 @@
 package com.gisfaces.model.legend;
 
 import com.gisfaces.utilities.ArcGisJsonUtilities;
-import com.gisfaces.utilities.json.JSONArray;
+import com.gisfaces.utilities.json.JSONEvent;
 import com.gisfaces.utilities.json.JSONException;
-import com.gisfaces.utilities.json.JSONObject;
+import com.gisfaces.utilities.json.JSONReader;
 import java.io.IOException;
 
 /**
@@ -59,11 +59,13 @@ public class LegendMetadataBuilder {
 		LegendMetadata legend = new LegendMetadata();
 		legend.setServiceUrl(url);
 
-		// Get the legend JSON query results.
-		String json = ArcGisJsonUtilities.executeJsonLegendQuery(url);
-
-		// Populate the metadata using the JSON query results.
-		this.populate(url, legend, json);
+		// Populate the metadata while streaming the legend JSON query results.
+		JSONReader reader = ArcGisJsonUtilities.openJsonLegendQuery(url);
+		try {
+			this.populate(url, legend, reader);
+		} finally {
+			reader.close();
+		}
 
 		return legend;
 	}
@@ -73,72 +75,114 @@ public class LegendMetadataBuilder {
 	 * 
 	 * @param mapServiceUrl Map service URL.
 	 * @param legend        LegendMetadata to populate.
-	 * @param json          JSON data string.
+	 * @param reader        JSON data reader.
 	 * @throws JSONException
 	 */
-	private void populate(String mapServiceUrl, LegendMetadata legend, String json) throws JSONException {
-		JSONObject obj = new JSONObject(json);
-
-		JSONArray layers = obj.getJSONArray("layers");
-		if (layers != null) {
-			for (int i = 0; i < layers.length(); i++) {
-				JSONObject layer = layers.getJSONObject(i);
-
-				// Build a new legend layer.
-				LegendLayerMetadata legendLayer = new LegendLayerMetadata();
-				if (layer.has("layerId")) {
-					legendLayer.setLayerId(Integer.valueOf(layer.getString("layerId")));
-				}
-				if (layer.has("layerName")) {
-					legendLayer.setLayerName(layer.getString("layerName"));
-				}
-				if (layer.has("layerType")) {
-					legendLayer.setLayerType(layer.getString("layerType"));
-				}
-				if (layer.has("minScale")) {
-					legendLayer.setMinScale(Integer.valueOf(layer.getString("minScale")));
-				}
-				if (layer.has("maxScale")) {
-					legendLayer.setMaxScale(Integer.valueOf(layer.getString("maxScale")));
+	private void populate(String mapServiceUrl, LegendMetadata legend, JSONReader reader) throws JSONException {
+		if (reader.nextObject()) {
+			String key;
+			while ((key = reader.nextField()) != null) {
+				if ("layers".equals(key)) {
+					if (reader.nextArray()) {
+						while (reader.next() != JSONEvent.END_ARRAY) {
+							if (reader.getEvent() == JSONEvent.START_OBJECT) {
+								// Add the new layer to the legend.
+								legend.getLayers().add(this.createLayer(mapServiceUrl, reader));
+							} else {
+								reader.skipChildren();
+							}
+						}
+					}
+				} else {
+					reader.skipValue();
 				}
+			}
+		}
+	}
 
-				// Add the new layer to the legend.
-				legend.getLayers().add(legendLayer);
-
-				JSONArray symbology = layer.getJSONArray("legend");
-				if (symbology != null) {
-					for (int j = 0; j < symbology.length(); j++) {
-						JSONObject symbol = symbology.getJSONObject(j);
-
-						// Build a new legend layer symbol.
-						LegendLayerSymbolMetadata lls = new LegendLayerSymbolMetadata();
-						if (symbol.has("label")) {
-							lls.setLabel(symbol.getString("label"));
-						}
-						if (symbol.has("url")) {
-							lls.setUrl(String.format("%s/%s/images/%s", mapServiceUrl, legendLayer.getLayerId(), symbol.getString("url")));
-						}
-						if (symbol.has("imageData")) {
-							lls.setImageData(symbol.getString("imageData"));
-						}
-						if (symbol.has("contentType")) {
-							lls.setContentType(symbol.getString("contentType"));
-						}
-						if (symbol.has("height")) {
-							lls.setHeight(Integer.valueOf(symbol.getString("height")));
-						}
-						if (symbol.has("width")) {
-							lls.setWidth(Integer.valueOf(symbol.getString("width")));
+	/**
+	 * Method to create a legend layer from the current JSON object.
+	 * 
+	 * @param mapServiceUrl Map service URL.
+	 * @param reader        JSON data reader positioned on the layer object.
+	 * @return LegendLayerMetadata
+	 * @throws JSONException
+	 */
+	private LegendLayerMetadata createLayer(String mapServiceUrl, JSONReader reader) throws JSONException {
+		// Build a new legend layer.
+		LegendLayerMetadata legendLayer = new LegendLayerMetadata();
+
+		String key;
+		while ((key = reader.nextField()) != null) {
+			if ("layerId".equals(key)) {
+				legendLayer.setLayerId(reader.nextInt(legendLayer.getLayerId()));
+			} else if ("layerName".equals(key)) {
+				legendLayer.setLayerName(reader.nextString());
+			} else if ("layerType".equals(key)) {
+				legendLayer.setLayerType(reader.nextString());
+			} else if ("minScale".equals(key)) {
+				legendLayer.setMinScale(reader.nextInt(legendLayer.getMinScale()));
+			} else if ("maxScale".equals(key)) {
+				legendLayer.setMaxScale(reader.nextInt(legendLayer.getMaxScale()));
+			} else if ("legend".equals(key)) {
+				if (reader.nextArray()) {
+					while (reader.next() != JSONEvent.END_ARRAY) {
+						if (reader.getEvent() == JSONEvent.START_OBJECT) {
+							// Add the new symbol to the legend layer.
+							legendLayer.getSymbology().add(this.createSymbol(reader));
+						} else {
+							reader.skipChildren();
 						}
-
-						// Add the new symbol to the legend layer.
-						legendLayer.getSymbology().add(lls);
 					}
 				}
+			} else {
+				reader.skipValue();
+			}
+		}
+
+		// Resolve the symbol image names once the layer ID is known.
+		for (LegendLayerSymbolMetadata lls : legendLayer.getSymbology()) {
+			if (lls.getUrl() != null) {
+				lls.setUrl(String.format("%s/%s/images/%s", mapServiceUrl, legendLayer.getLayerId(), lls.getUrl()));
 			}
 		}
+
+		return legendLayer;
 	}
 
+	/**
+	 * Method to create a legend layer symbol from the current JSON object. The
+	 * symbol URL is left as the raw image name.
+	 * 
+	 * @param reader JSON data reader positioned on the symbol object.
+	 * @return LegendLayerSymbolMetadata
+	 * @throws JSONException
+	 */
+	private LegendLayerSymbolMetadata createSymbol(JSONReader reader) throws JSONException {
+		// Build a new legend layer symbol.
+		LegendLayerSymbolMetadata lls = new LegendLayerSymbolMetadata();
+
+		String key;
+		while ((key = reader.nextField()) != null) {
+			if ("label".equals(key)) {
+				lls.setLabel(reader.nextString());
+			} else if ("url".equals(key)) {
+				lls.setUrl(reader.nextString());
+			} else if ("imageData".equals(key)) {
+				lls.setImageData(reader.nextString());
+			} else if ("contentType".equals(key)) {
+				lls.setContentType(reader.nextString());
+			} else if ("height".equals(key)) {
+				lls.setHeight(reader.nextInt(lls.getHeight()));
+			} else if ("width".equals(key)) {
+				lls.setWidth(reader.nextInt(lls.getWidth()));
+			} else {
+				reader.skipValue();
+			}
+		}
+
+		return lls;
+	}
 	/*
 	 * public static void main(String[] args) throws IOException, JSONException {
 	 * LegendMetadataBuilder builder = new LegendMetadataBuilder(); LegendMetadata
@@ -25,6 +25,7 @@
 package com.gisfaces.model.map;
 
 import com.gisfaces.component.Constants;
+import com.gisfaces.model.geometry.Extent;
 import java.io.Serializable;
 
 /**
@@ -48,6 +49,9 @@ public class Viewpoint implements Serializable {
 	/** Map zoom level. Most ESRI background layers range from 0 to 16 or 23. */
 	private double zoom;
 
+	/** Map view extent in geographic units, if reported by the client. */
+	private Extent extent;
+
 	/**
 	 * Constructor.
 	 */
@@ -111,4 +115,22 @@ public class Viewpoint implements Serializable {
 	public void setZoom(double zoom) {
 		this.zoom = zoom;
 	}
+
+	/**
+	 * Method to get the map view extent.
+	 * 
+	 * @return Extent in geographic units, or <code>null</code> if not reported.
+	 */
+	public Extent getExtent() {
+		return extent;
+	}
+
+	/**
+	 * Method to set the map view extent.
+	 * 
+	 * @param extent Extent in geographic units.
+	 */
+	public void setExtent(Extent extent) {
+		this.extent = extent;
+	}
 }
@@ -25,11 +25,12 @@
 package com.gisfaces.model.service;
 
 import com.gisfaces.utilities.ArcGisJsonUtilities;
-import com.gisfaces.utilities.json.JSONArray;
+import com.gisfaces.utilities.json.JSONEvent;
 import com.gisfaces.utilities.json.JSONException;
-import com.gisfaces.utilities.json.JSONObject;
+import com.gisfaces.utilities.json.JSONReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service directory metadata builder class.
@@ -61,69 +62,92 @@ public class ServiceDirectoryMetadataBuilder {
 		ServiceDirectoryMetadata metadata = new ServiceDirectoryMetadata();
 		metadata.setUrl(url);
 
-		// Get the JSON query results.
-		String json = ArcGisJsonUtilities.executeJsonQuery(url);
+		// Populate the metadata while streaming the JSON query results.
+		List<String[]> services = new ArrayList<String[]>();
+		JSONReader reader = ArcGisJsonUtilities.openJsonQuery(url);
+		try {
+			this.populate(metadata, reader, services);
+		} finally {
+			reader.close();
+		}
+
+		if (!services.isEmpty()) {
+			ServiceMetadataBuilder builder = new ServiceMetadataBuilder();
+
+			// Create the list of services.
+			metadata.setServices(new ArrayList<ServiceMetadata>());
 
-		// Populate the metadata using the JSON query results.
-		this.populate(metadata, json);
+			for (String[] service : services) {
+				// Remove the prepended sub directory, if present.
+				String name = service[0].replaceFirst(".*\\/", "");
+				String type = service[1];
+
+				// Build a URL to the specified map service.
+				String location = String.format("%s/%s/%s", metadata.getUrl(), name, type);
+
+				// Add new service.
+				metadata.getServices().add(builder.build(location, name, type));
+			}
+		}
 
 		return metadata;
 	}
 
 	/**
-	 * Method to populate the metadata object from the JSON query results.
+	 * Method to populate the metadata object from the JSON query results. Only
+	 * the bound properties are read, and all other values are skipped. Services
+	 * are built after the results are closed.
 	 * 
 	 * @param metadata Target metadata object.
-	 * @param json     JSON query results.
-	 * @throws IOException
+	 * @param reader   JSON query results reader.
+	 * @param services Target list of service name and type pairs.
 	 * @throws JSONException
 	 */
-	private void populate(ServiceDirectoryMetadata metadata, String json) throws IOException, JSONException {
-		JSONObject obj = new JSONObject(json);
-
-		if (obj != null) {
-			if (obj.has("currentVersion")) {
-				metadata.setVersion(obj.getString("currentVersion"));
-			}
-
-			if (obj.has("folders")) {
-				JSONArray folders = obj.getJSONArray("folders");
-				for (int i = 0; i < folders.length(); i++) {
-					String folder = folders.getString(i);
-
-					metadata.getFolders().add(folder);
-				}
-			}
-
-			if (obj.has("services")) {
-				ServiceMetadataBuilder builder = new ServiceMetadataBuilder();
-
-				JSONArray services = obj.getJSONArray("services");
-
-				if (services.length() > 0) {
-					// Create the list of services.
-					metadata.setServices(new ArrayList<ServiceMetadata>());
-
-					for (int i = 0; i < services.length(); i++) {
-						// Get the service name and type.
-						JSONObject service = services.getJSONObject(i);
-						String name = service.getString("name");
-						String type = service.getString("type");
-
-						// Remove the prepended sub directory, if present.
-						name = name.replaceFirst(".*\\/", "");
-
-						// Build a URL to the specified map service.
-						String url = String.format("%s/%s/%s", metadata.getUrl(), name, type);
-
-						// Add new service.
-						metadata.getServices().add(builder.build(url, name, type));
+	private void populate(ServiceDirectoryMetadata metadata, JSONReader reader, List<String[]> services) throws JSONException {
+		if (reader.nextObject()) {
+			String key;
+			while ((key = reader.nextField()) != null) {
+				if ("currentVersion".equals(key)) {
+					metadata.setVersion(reader.nextString());
+				} else if ("folders".equals(key)) {
+					if (reader.nextArray()) {
+						while (reader.next() != JSONEvent.END_ARRAY) {
+							if (reader.getEvent().isScalarValue()) {
+								metadata.getFolders().add(reader.getText());
+							} else {
+								reader.skipChildren();
+							}
+						}
 					}
+				} else if ("services".equals(key)) {
+					if (reader.nextArray()) {
+						while (reader.next() != JSONEvent.END_ARRAY) {
+							if (reader.getEvent() == JSONEvent.START_OBJECT) {
+								// Get the service name and type.
+								String[] service = new String[2];
+								while ((key = reader.nextField()) != null) {
+									if ("name".equals(key)) {
+										service[0] = reader.nextString();
+									} else if ("type".equals(key)) {
+										service[1] = reader.nextString();
+									} else {
+										reader.skipValue();
+									}
+								}
+								if (service[0] != null) {
+									services.add(service);
+								}
+							} else {
+								reader.skipChildren();
+							}
+						}
+					}
+				} else {
+					reader.skipValue();
 				}
 			}
 		}
 	}
-
 	/*
 	 * public static void main(String[] args) throws IOException, JSONException {
 	 * String url = "http://server.arcgisonline.com/arcgis/rest/services";
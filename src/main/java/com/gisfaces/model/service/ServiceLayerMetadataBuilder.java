@@ -25,9 +25,9 @@
 package com.gisfaces.model.service;
 
 import com.gisfaces.utilities.ArcGisJsonUtilities;
-import com.gisfaces.utilities.json.JSONArray;
+import com.gisfaces.utilities.json.JSONEvent;
 import com.gisfaces.utilities.json.JSONException;
-import com.gisfaces.utilities.json.JSONObject;
+import com.gisfaces.utilities.json.JSONReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -64,81 +64,126 @@ public class ServiceLayerMetadataBuilder {
 		metadata.setUrl(url);
 		metadata.setId(id);
 
-		// Get the JSON query results.
-		String json = ArcGisJsonUtilities.executeJsonQuery(url);
-
-		// Populate the metadata using the JSON query results.
-		this.populate(metadata, json);
+		// Populate the metadata while streaming the JSON query results.
+		JSONReader reader = ArcGisJsonUtilities.openJsonQuery(url);
+		try {
+			this.populate(metadata, reader);
+		} finally {
+			reader.close();
+		}
 
 		return metadata;
 	}
 
 	/**
-	 * Method to populate the metadata object from the JSON query results.
+	 * Method to populate the metadata object from the JSON query results. Only
+	 * the bound properties are read, and all other values are skipped.
 	 * 
 	 * @param metadata Target metadata object.
-	 * @param json     JSON query results.
-	 * @throws IOException
+	 * @param reader   JSON query results reader.
 	 * @throws JSONException
 	 */
-	private void populate(ServiceLayerMetadata metadata, String json) throws IOException, JSONException {
-		JSONObject obj = new JSONObject(json);
-
-		if (obj != null) {
-			if (obj.has("name")) {
-				metadata.setName(obj.getString("name"));
-			}
-
-			if (obj.has("type")) {
-				metadata.setType(obj.getString("type"));
-			}
-
-			if (obj.has("geometryType")) {
-				metadata.setGeometryType(obj.getString("geometryType"));
+	private void populate(ServiceLayerMetadata metadata, JSONReader reader) throws JSONException {
+		if (reader.nextObject()) {
+			String key;
+			while ((key = reader.nextField()) != null) {
+				if ("name".equals(key)) {
+					metadata.setName(reader.nextString());
+				} else if ("type".equals(key)) {
+					metadata.setType(reader.nextString());
+				} else if ("geometryType".equals(key)) {
+					metadata.setGeometryType(reader.nextString());
+				} else if ("fields".equals(key)) {
+					if (reader.nextArray()) {
+						while (reader.next() != JSONEvent.END_ARRAY) {
+							if (reader.getEvent() == JSONEvent.START_OBJECT) {
+								if (metadata.getFields() == null) {
+									// Create the list of service layer fields.
+									metadata.setFields(new ArrayList<ServiceLayerFieldMetadata>());
+								}
+								metadata.getFields().add(this.createField(reader));
+							} else {
+								reader.skipChildren();
+							}
+						}
+					}
+				} else {
+					reader.skipValue();
+				}
 			}
+		}
+	}
 
-			if ((obj.has("fields")) && (!obj.getString("fields").equals("null"))) {
-				JSONArray fields = obj.getJSONArray("fields");
-
-				if (fields.length() > 0) {
-					// Create the list of service layer fields.
-					metadata.setFields(new ArrayList<ServiceLayerFieldMetadata>());
-
-					for (int i = 0; i < fields.length(); i++) {
-						JSONObject f = fields.getJSONObject(i);
-
-						ServiceLayerFieldMetadata field = new ServiceLayerFieldMetadata();
-						if (f.has("name")) {
-							field.setName(f.getString("name"));
-						}
-						if (f.has("type")) {
-							field.setType(f.getString("type"));
-						}
-						if (f.has("alias")) {
-							field.setAlias(f.getString("alias"));
-						}
-						if (f.has("length")) {
-							field.setLength(f.getInt("length"));
+	/**
+	 * Method to create a field from the current JSON object.
+	 * 
+	 * @param reader JSON reader positioned on the start of a field object.
+	 * @return ServiceLayerFieldMetadata
+	 * @throws JSONException
+	 */
+	private ServiceLayerFieldMetadata createField(JSONReader reader) throws JSONException {
+		ServiceLayerFieldMetadata field = new ServiceLayerFieldMetadata();
+
+		String key;
+		while ((key = reader.nextField()) != null) {
+			if ("name".equals(key)) {
+				field.setName(reader.nextString());
+			} else if ("type".equals(key)) {
+				field.setType(reader.nextString());
+			} else if ("alias".equals(key)) {
+				field.setAlias(reader.nextString());
+			} else if ("length".equals(key)) {
+				field.setLength(reader.nextInt(field.getLength()));
+			} else if ("domain".equals(key)) {
+				if (reader.nextObject()) {
+					while ((key = reader.nextField()) != null) {
+						if ("codedValues".equals(key)) {
+							this.populateCodedValues(field, reader);
+						} else {
+							reader.skipValue();
 						}
-						if ((f.has("domain")) && (!f.getString("domain").equals("null"))) {
-							JSONObject d = f.getJSONObject("domain");
-
-							if (d.has("codedValues")) {
-								// Create the map for service layer field domains.
-								field.setValues(new LinkedHashMap<String, String>());
-
-								JSONArray values = d.getJSONArray("codedValues");
+					}
+				}
+			} else {
+				reader.skipValue();
+			}
+		}
 
-								for (int j = 0; j < values.length(); j++) {
-									JSONObject value = values.getJSONObject(j);
+		return field;
+	}
 
-									field.getValues().put(value.getString("code"), value.getString("name"));
-								}
-							}
+	/**
+	 * Method to populate the field values from a JSON array of domain coded
+	 * values.
+	 * 
+	 * @param field  Target field.
+	 * @param reader JSON reader positioned on the coded values field name.
+	 * @throws JSONException
+	 */
+	private void populateCodedValues(ServiceLayerFieldMetadata field, JSONReader reader) throws JSONException {
+		if (reader.nextArray()) {
+			// Create the map for service layer field domains.
+			field.setValues(new LinkedHashMap<String, String>());
+
+			while (reader.next() != JSONEvent.END_ARRAY) {
+				if (reader.getEvent() == JSONEvent.START_OBJECT) {
+					String code = null;
+					String name = null;
+
+					String key;
+					while ((key = reader.nextField()) != null) {
+						if ("code".equals(key)) {
+							code = reader.nextString();
+						} else if ("name".equals(key)) {
+							name = reader.nextString();
+						} else {
+							reader.skipValue();
 						}
-
-						metadata.getFields().add(field);
 					}
+
+					field.getValues().put(code, name);
+				} else {
+					reader.skipChildren();
 				}
 			}
 		}
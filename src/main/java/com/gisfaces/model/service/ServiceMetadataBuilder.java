@@ -25,11 +25,12 @@
 package com.gisfaces.model.service;
 
 import com.gisfaces.utilities.ArcGisJsonUtilities;
-import com.gisfaces.utilities.json.JSONArray;
+import com.gisfaces.utilities.json.JSONEvent;
 import com.gisfaces.utilities.json.JSONException;
-import com.gisfaces.utilities.json.JSONObject;
+import com.gisfaces.utilities.json.JSONReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service metadata builder class.
@@ -65,55 +66,70 @@ public class ServiceMetadataBuilder {
 		metadata.setName(name);
 		metadata.setType(type);
 
-		// Get the JSON query results.
-		String json = ArcGisJsonUtilities.executeJsonQuery(url);
+		// Populate the metadata while streaming the JSON query results.
+		List<String> ids = new ArrayList<String>();
+		JSONReader reader = ArcGisJsonUtilities.openJsonQuery(url);
+		try {
+			this.populate(metadata, reader, ids);
+		} finally {
+			reader.close();
+		}
+
+		if (!ids.isEmpty()) {
+			ServiceLayerMetadataBuilder builder = new ServiceLayerMetadataBuilder();
+
+			// Create the list of service layers.
+			metadata.setLayers(new ArrayList<ServiceLayerMetadata>());
 
-		// Populate the metadata using the JSON query results.
-		this.populate(metadata, json);
+			for (String id : ids) {
+				// Build a URL to the specified map service layer.
+				String layerUrl = String.format("%s/%s", metadata.getUrl(), id);
+
+				// Add new service layer.
+				metadata.getLayers().add(builder.build(layerUrl, id));
+			}
+		}
 
 		return metadata;
 	}
 
 	/**
-	 * Method to populate the metadata object from the JSON query results.
+	 * Method to populate the metadata object from the JSON query results. Only
+	 * the bound properties are read, and all other values are skipped. Service
+	 * layers are built after the results are closed.
 	 * 
 	 * @param metadata Target metadata object.
-	 * @param json     JSON query results.
-	 * @throws IOException
+	 * @param reader   JSON query results reader.
+	 * @param ids      Target list of service layer IDs.
 	 * @throws JSONException
 	 */
-	private void populate(ServiceMetadata metadata, String json) throws IOException, JSONException {
-		JSONObject obj = new JSONObject(json);
-
-		if (obj != null) {
-			if (obj.has("currentVersion")) {
-				metadata.setVersion(obj.getString("currentVersion"));
-			}
-
-			if (obj.has("serviceDescription")) {
-				metadata.setDescription(obj.getString("serviceDescription"));
-			}
-
-			if (obj.has("layers")) {
-				ServiceLayerMetadataBuilder builder = new ServiceLayerMetadataBuilder();
-
-				JSONArray layers = obj.getJSONArray("layers");
-
-				if (layers.length() > 0) {
-					// Create the list of service layers.
-					metadata.setLayers(new ArrayList<ServiceLayerMetadata>());
-
-					for (int i = 0; i < layers.length(); i++) {
-						// Get the service name and type.
-						JSONObject layer = layers.getJSONObject(i);
-						String id = layer.getString("id");
-
-						// Build a URL to the specified map service.
-						String url = String.format("%s/%s", metadata.getUrl(), id);
-
-						// Add new service layer.
-						metadata.getLayers().add(builder.build(url, id));
+	private void populate(ServiceMetadata metadata, JSONReader reader, List<String> ids) throws JSONException {
+		if (reader.nextObject()) {
+			String key;
+			while ((key = reader.nextField()) != null) {
+				if ("currentVersion".equals(key)) {
+					metadata.setVersion(reader.nextString());
+				} else if ("serviceDescription".equals(key)) {
+					metadata.setDescription(reader.nextString());
+				} else if ("layers".equals(key)) {
+					if (reader.nextArray()) {
+						while (reader.next() != JSONEvent.END_ARRAY) {
+							if (reader.getEvent() == JSONEvent.START_OBJECT) {
+								// Get the service layer ID.
+								while ((key = reader.nextField()) != null) {
+									if ("id".equals(key)) {
+										ids.add(reader.nextString());
+									} else {
+										reader.skipValue();
+									}
+								}
+							} else {
+								reader.skipChildren();
+							}
+						}
 					}
+				} else {
+					reader.skipValue();
 				}
 			}
 		}
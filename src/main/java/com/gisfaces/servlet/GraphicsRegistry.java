@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.servlet;
+
+import com.gisfaces.model.graphic.Graphic;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Graphics registry class. A session scoped registry of graphics layer
+ * snapshots served out of band by the <code>GraphicsServlet</code>. Each
+ * snapshot is identified by a token and carries the version token that the
+ * client must present when fetching pages. The registry retains a bounded
+ * number of snapshots and evicts the least recently used, so snapshots of
+ * abandoned views do not accumulate in the session.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class GraphicsRegistry implements Serializable {
+	/** Serial Version UID. */
+	private static final long serialVersionUID = 5140981728364652917L;
+
+	/** Session attribute name. */
+	public static final String SESSION_KEY = GraphicsRegistry.class.getName();
+
+	/** Session mutex attribute name. */
+	public static final String MUTEX_KEY = GraphicsRegistry.class.getName() + ".MUTEX";
+
+	/** Maximum number of snapshots retained per session. */
+	public static final int MAX_SNAPSHOTS = 32;
+
+	/** Graphics snapshots by token, in access order. */
+	private final LinkedHashMap<String, Snapshot> snapshots;
+
+	/**
+	 * Constructor.
+	 */
+	public GraphicsRegistry() {
+		super();
+		this.snapshots = new LinkedHashMap<String, Snapshot>(16, 0.75f, true);
+	}
+
+	/**
+	 * Method to get the registry of a session, creating it if necessary.
+	 * 
+	 * @param session HttpSession
+	 * @return GraphicsRegistry
+	 */
+	public static GraphicsRegistry getInstance(HttpSession session) {
+		synchronized (getMutex(session)) {
+			GraphicsRegistry registry = (GraphicsRegistry) session.getAttribute(SESSION_KEY);
+			if (registry == null) {
+				registry = new GraphicsRegistry();
+				session.setAttribute(SESSION_KEY, registry);
+			}
+			return registry;
+		}
+	}
+
+	/**
+	 * Method to get the mutex of a session. The mutex is set by the
+	 * <code>GraphicsSessionListener</code> when the session is created, and
+	 * falls back to the session itself if the listener is not registered.
+	 * 
+	 * @param session HttpSession
+	 * @return Session mutex.
+	 */
+	public static Object getMutex(HttpSession session) {
+		Object mutex = session.getAttribute(MUTEX_KEY);
+		return (mutex != null) ? mutex : session;
+	}
+
+	/**
+	 * Method to register a graphics snapshot. The graphics list is copied, so
+	 * later changes to the list are not visible to pending page requests. The
+	 * least recently used snapshots are evicted beyond the maximum.
+	 * 
+	 * @param token    Snapshot token.
+	 * @param version  Version token.
+	 * @param graphics Graphics.
+	 */
+	public void register(String token, String version, List<Graphic> graphics) {
+		List<Graphic> copy = (graphics != null) ? new ArrayList<Graphic>(graphics) : new ArrayList<Graphic>();
+		Snapshot snapshot = new Snapshot(version, Collections.unmodifiableList(copy));
+
+		synchronized (this.snapshots) {
+			this.snapshots.put(token, snapshot);
+
+			Iterator<String> i = this.snapshots.keySet().iterator();
+			while (this.snapshots.size() > MAX_SNAPSHOTS) {
+				i.next();
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Method to remove a graphics snapshot.
+	 * 
+	 * @param token Snapshot token.
+	 */
+	public void unregister(String token) {
+		synchronized (this.snapshots) {
+			this.snapshots.remove(token);
+		}
+	}
+
+	/**
+	 * Method to get a graphics snapshot.
+	 * 
+	 * @param token Snapshot token.
+	 * @return Snapshot, or null if not registered.
+	 */
+	public Snapshot getSnapshot(String token) {
+		if (token == null) {
+			return null;
+		}
+
+		synchronized (this.snapshots) {
+			return this.snapshots.get(token);
+		}
+	}
+
+	/**
+	 * Session mutex class.
+	 */
+	public static class Mutex implements Serializable {
+		/** Serial Version UID. */
+		private static final long serialVersionUID = -2938417705526114093L;
+	}
+
+	/**
+	 * Graphics snapshot class.
+	 */
+	public static class Snapshot implements Serializable {
+		/** Serial Version UID. */
+		private static final long serialVersionUID = 6021593349887421530L;
+
+		/** Version token. */
+		private final String version;
+
+		/** Graphics. */
+		private final List<Graphic> graphics;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param version  Version token.
+		 * @param graphics Graphics.
+		 */
+		public Snapshot(String version, List<Graphic> graphics) {
+			super();
+			this.version = version;
+			this.graphics = graphics;
+		}
+
+		/**
+		 * Method to get the version token.
+		 * 
+		 * @return Version token.
+		 */
+		public String getVersion() {
+			return version;
+		}
+
+		/**
+		 * Method to get the graphics.
+		 * 
+		 * @return Graphics.
+		 */
+		public List<Graphic> getGraphics() {
+			return graphics;
+		}
+	}
+}
@@ -0,0 +1,419 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.servlet;
+
+import com.gisfaces.model.geometry.Extent;
+import com.gisfaces.model.geometry.Geometry;
+import com.gisfaces.model.geometry.PackedCoordinates;
+import com.gisfaces.model.geometry.Point;
+import com.gisfaces.model.geometry.Polygon;
+import com.gisfaces.model.geometry.Polyline;
+import com.gisfaces.model.geometry.SpatialReference;
+import com.gisfaces.model.graphic.Graphic;
+import com.gisfaces.utilities.json.JSONBeanSerializer;
+import com.gisfaces.utilities.json.JSONBeanWriter;
+import com.gisfaces.utilities.json.JSONException;
+import com.gisfaces.utilities.json.JSONNumberFormatter;
+import com.gisfaces.utilities.json.JSONObject;
+import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Graphics servlet class. Serves a page of the graphics registered in the
+ * session <code>GraphicsRegistry</code> as a GeoJSON feature collection. The
+ * graphic symbol, title, visibility and other properties are written as
+ * foreign members of each feature. Each page is built in full before the
+ * response is committed, so a failure is reported as an error status rather
+ * than a truncated page. Responses are gzip compressed when accepted by the
+ * client.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+@WebServlet(urlPatterns = GraphicsServlet.PATH)
+public class GraphicsServlet extends HttpServlet {
+	/** Serial Version UID. */
+	private static final long serialVersionUID = 8362204917853620471L;
+
+	/** Logger. */
+	private static final Logger logger = Logger.getLogger(GraphicsServlet.class.getCanonicalName());
+
+	/** Servlet path. */
+	public static final String PATH = "/gisfaces/graphics";
+
+	/** Maximum number of graphics per page. */
+	private static final int MAX_PAGE_SIZE = 50000;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
+	 * javax.servlet.http.HttpServletResponse)
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		HttpSession session = request.getSession(false);
+		GraphicsRegistry registry = (session != null) ? (GraphicsRegistry) session.getAttribute(GraphicsRegistry.SESSION_KEY) : null;
+		GraphicsRegistry.Snapshot snapshot = (registry != null) ? registry.getSnapshot(request.getParameter("token")) : null;
+
+		if (snapshot == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		// Reject requests for a superseded version.
+		if (!snapshot.getVersion().equals(request.getParameter("version"))) {
+			response.sendError(HttpServletResponse.SC_CONFLICT);
+			return;
+		}
+
+		List<Graphic> graphics = snapshot.getGraphics();
+		int offset = Math.min(Math.max(this.getIntParameter(request, "offset", 0), 0), graphics.size());
+		int limit = Math.min(Math.max(this.getIntParameter(request, "limit", MAX_PAGE_SIZE), 1), MAX_PAGE_SIZE);
+		int end = (int) Math.min((long) offset + limit, graphics.size());
+
+		// Build the page before committing the response.
+		CharArrayWriter page = new CharArrayWriter(Math.max(end - offset, 1) * 256);
+		try {
+			this.writeFeatureCollection(page, snapshot.getVersion(), graphics, offset, end);
+		} catch (JSONException e) {
+			logger.log(Level.SEVERE, "An error occurred processing JSON nodes.", e);
+			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			return;
+		}
+
+		response.setContentType("application/geo+json");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "private, max-age=3600");
+
+		// Compress the response if accepted.
+		OutputStream stream = response.getOutputStream();
+		String encoding = request.getHeader("Accept-Encoding");
+		if ((encoding != null) && encoding.contains("gzip")) {
+			response.setHeader("Content-Encoding", "gzip");
+			response.setHeader("Vary", "Accept-Encoding");
+			stream = new GZIPOutputStream(stream, 8192, true);
+		}
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"), 16384);
+		try {
+			page.writeTo(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Method to write a page of graphics as a GeoJSON feature collection.
+	 * 
+	 * @param writer   Writer
+	 * @param version  Version token.
+	 * @param graphics Graphics.
+	 * @param start    Start index, inclusive.
+	 * @param end      End index, exclusive.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeFeatureCollection(Writer writer, String version, List<Graphic> graphics, int start, int end) throws IOException, JSONException {
+		JSONBeanWriter jbw = new JSONBeanWriter(writer);
+
+		writer.write("{\"type\":\"FeatureCollection\",\"version\":");
+		writer.write(JSONObject.quote(version));
+		writer.write(",\"total\":");
+		writer.write(Integer.toString(graphics.size()));
+		writer.write(",\"offset\":");
+		writer.write(Integer.toString(start));
+		writer.write(",\"features\":[");
+
+		for (int i = start; i < end; i++) {
+			if (i > start) {
+				writer.write(',');
+			}
+			this.writeFeature(writer, jbw, graphics.get(i));
+		}
+
+		writer.write("]}");
+	}
+
+	/**
+	 * Method to write a graphic as a GeoJSON feature.
+	 * 
+	 * @param writer  Writer
+	 * @param jbw     JSONBeanWriter
+	 * @param graphic Graphic
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeFeature(Writer writer, JSONBeanWriter jbw, Graphic graphic) throws IOException, JSONException {
+		writer.write("{\"type\":\"Feature\",\"id\":");
+		jbw.writeValue(graphic.getId());
+		writer.write(",\"geometry\":");
+		this.writeGeometry(writer, graphic.getGeometry());
+		writer.write(",\"properties\":");
+		jbw.writeValue(graphic.getAttributes());
+
+		// Write the remaining graphic properties as foreign members.
+		JSONBeanSerializer serializer = JSONBeanSerializer.forClass(graphic.getClass());
+		for (int i = 0; i < serializer.length(); i++) {
+			String name = serializer.getName(i);
+			if (!"id".equals(name) && !"geometry".equals(name) && !"attributes".equals(name) && !"type".equals(name)) {
+				Object value = serializer.getValue(graphic, i);
+				if (!JSONObject.NULL.equals(value)) {
+					writer.write(',');
+					writer.write(JSONObject.quote(name));
+					writer.write(':');
+					jbw.writeValue(value);
+				}
+			}
+		}
+
+		writer.write('}');
+	}
+
+	/**
+	 * Method to write a geometry as a GeoJSON geometry. Polyline paths are
+	 * written as a MultiLineString, polygon rings as a Polygon or MultiPolygon,
+	 * and extents as a Polygon. Geometries in a spatial reference other than
+	 * WGS84 carry it as a foreign member, with X/Y-coordinates. Unsupported
+	 * geometries are written as null.
+	 * 
+	 * @param writer   Writer
+	 * @param geometry Geometry
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeGeometry(Writer writer, Geometry geometry) throws IOException, JSONException {
+		if ((geometry instanceof Point) && (((Point) geometry).getLatitude() != null) && (((Point) geometry).getLongitude() != null)) {
+			Point p = (Point) geometry;
+			writer.write("{\"type\":\"Point\",\"coordinates\":[");
+			JSONNumberFormatter.write(writer, p.getLongitude());
+			writer.write(',');
+			JSONNumberFormatter.write(writer, p.getLatitude());
+			writer.write(']');
+			this.writeSpatialReference(writer, p.getSpatialReference());
+			writer.write('}');
+		} else if ((geometry instanceof Polyline) && (((Polyline) geometry).getCoordinates() != null)) {
+			writer.write("{\"type\":\"MultiLineString\",\"coordinates\":");
+			((Polyline) geometry).getCoordinates().write(writer);
+			this.writeSpatialReference(writer, ((Polyline) geometry).getSpatialReference());
+			writer.write('}');
+		} else if ((geometry instanceof Polygon) && (((Polygon) geometry).getCoordinates() != null)) {
+			this.writePolygon(writer, (Polygon) geometry);
+		} else if (geometry instanceof Extent) {
+			Extent e = (Extent) geometry;
+			double[] ring = { e.getXmin(), e.getYmin(), e.getXmin(), e.getYmax(), e.getXmax(), e.getYmax(), e.getXmax(), e.getYmin(), e.getXmin(), e.getYmin() };
+			writer.write("{\"type\":\"Polygon\",\"coordinates\":");
+			PackedCoordinates.wrap(ring, new int[] { 0, 5 }, false).write(writer);
+			this.writeSpatialReference(writer, e.getSpatialReference());
+			writer.write('}');
+		} else {
+			writer.write("null");
+		}
+	}
+
+	/**
+	 * Method to write polygon rings as a GeoJSON geometry. Clockwise rings are
+	 * outer rings and counterclockwise rings are holes. A polygon with several
+	 * outer rings is written as a MultiPolygon, with each hole grouped with the
+	 * smallest outer ring containing it. Holes outside of every outer ring are
+	 * written as polygons of their own. Rings without a clockwise outer ring are
+	 * written as a single Polygon in their original order.
+	 * 
+	 * @param writer  Writer
+	 * @param polygon Polygon
+	 * @throws IOException
+	 */
+	private void writePolygon(Writer writer, Polygon polygon) throws IOException {
+		PackedCoordinates rings = polygon.getCoordinates();
+
+		// Classify the rings by orientation.
+		int count = rings.getPartCount();
+		double[] areas = new double[count];
+		List<Integer> outers = new ArrayList<Integer>();
+		for (int r = 0; r < count; r++) {
+			areas[r] = getSignedArea(rings, r);
+			if (areas[r] < 0) {
+				outers.add(r);
+			}
+		}
+
+		if (outers.size() <= 1) {
+			// Write a single polygon, with the outer ring first.
+			writer.write("{\"type\":\"Polygon\",\"coordinates\":[");
+			int first = outers.isEmpty() ? -1 : outers.get(0);
+			if (first >= 0) {
+				rings.writePart(writer, first);
+			}
+			for (int r = 0; r < count; r++) {
+				if (r != first) {
+					if ((r > 0) || (first >= 0)) {
+						writer.write(',');
+					}
+					rings.writePart(writer, r);
+				}
+			}
+			writer.write(']');
+			this.writeSpatialReference(writer, polygon.getSpatialReference());
+			writer.write('}');
+			return;
+		}
+
+		// Group each hole with the smallest outer ring containing it.
+		Map<Integer, List<Integer>> polygons = new LinkedHashMap<Integer, List<Integer>>();
+		for (Integer outer : outers) {
+			polygons.put(outer, new ArrayList<Integer>());
+		}
+		for (int r = 0; r < count; r++) {
+			if (areas[r] >= 0) {
+				int owner = -1;
+				double x = rings.getX(rings.getPartStart(r));
+				double y = rings.getY(rings.getPartStart(r));
+				for (Integer outer : outers) {
+					if (((owner < 0) || (-areas[outer] < -areas[owner])) && contains(rings, outer, x, y)) {
+						owner = outer;
+					}
+				}
+				if (owner >= 0) {
+					polygons.get(owner).add(r);
+				} else {
+					polygons.put(r, new ArrayList<Integer>());
+				}
+			}
+		}
+
+		writer.write("{\"type\":\"MultiPolygon\",\"coordinates\":[");
+		boolean next = false;
+		for (Map.Entry<Integer, List<Integer>> entry : polygons.entrySet()) {
+			if (next) {
+				writer.write(',');
+			}
+			writer.write('[');
+			rings.writePart(writer, entry.getKey());
+			for (Integer hole : entry.getValue()) {
+				writer.write(',');
+				rings.writePart(writer, hole);
+			}
+			writer.write(']');
+			next = true;
+		}
+		writer.write(']');
+		this.writeSpatialReference(writer, polygon.getSpatialReference());
+		writer.write('}');
+	}
+
+	/**
+	 * Method to write a spatial reference other than WGS84 as a foreign member
+	 * of a GeoJSON geometry.
+	 * 
+	 * @param writer Writer
+	 * @param sr     Spatial reference, or null.
+	 * @throws IOException
+	 */
+	private void writeSpatialReference(Writer writer, SpatialReference sr) throws IOException {
+		if ((sr != null) && (sr.getWkid() != SpatialReference.WKID_WGS84)) {
+			writer.write(",\"spatialReference\":{\"wkid\":");
+			writer.write(Integer.toString(sr.getWkid()));
+			writer.write('}');
+		}
+	}
+
+	/**
+	 * Method to get the signed area of a ring. The area is negative for clockwise
+	 * rings and positive for counterclockwise rings.
+	 * 
+	 * @param rings Polygon rings.
+	 * @param ring  Ring index.
+	 * @return Signed area.
+	 */
+	private static double getSignedArea(PackedCoordinates rings, int ring) {
+		double area = 0;
+		int start = rings.getPartStart(ring);
+		int end = rings.getPartEnd(ring);
+		for (int i = start; i < end; i++) {
+			int j = (i + 1 < end) ? i + 1 : start;
+			area += (rings.getX(i) * rings.getY(j)) - (rings.getX(j) * rings.getY(i));
+		}
+		return area / 2;
+	}
+
+	/**
+	 * Method to determine if a ring contains a point, by ray casting.
+	 * 
+	 * @param rings Polygon rings.
+	 * @param ring  Ring index.
+	 * @param x     X-value.
+	 * @param y     Y-value.
+	 * @return True if the ring contains the point.
+	 */
+	private static boolean contains(PackedCoordinates rings, int ring, double x, double y) {
+		boolean inside = false;
+		int start = rings.getPartStart(ring);
+		int end = rings.getPartEnd(ring);
+		for (int i = start, j = end - 1; i < end; j = i++) {
+			double xi = rings.getX(i);
+			double yi = rings.getY(i);
+			double xj = rings.getX(j);
+			double yj = rings.getY(j);
+			if (((yi > y) != (yj > y)) && (x < (((xj - xi) * (y - yi)) / (yj - yi)) + xi)) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Method to get an integer request parameter.
+	 * 
+	 * @param request      HttpServletRequest
+	 * @param name         Parameter name.
+	 * @param defaultValue Default value if missing or invalid.
+	 * @return Parameter value.
+	 */
+	private int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+		try {
+			String value = request.getParameter(name);
+			return (value != null) ? Integer.parseInt(value) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.gisfaces.servlet;
+
+import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+/**
+ * Graphics session listener class. Sets the session mutex used to create the
+ * session <code>GraphicsRegistry</code>, so registry creation never locks on
+ * container provided session objects.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+@WebListener
+public class GraphicsSessionListener implements HttpSessionListener {
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.servlet.http.HttpSessionListener#sessionCreated(javax.servlet.http.
+	 * HttpSessionEvent)
+	 */
+	@Override
+	public void sessionCreated(HttpSessionEvent event) {
+		event.getSession().setAttribute(GraphicsRegistry.MUTEX_KEY, new GraphicsRegistry.Mutex());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.servlet.http.HttpSessionListener#sessionDestroyed(javax.servlet.http.
+	 * HttpSessionEvent)
+	 */
+	@Override
+	public void sessionDestroyed(HttpSessionEvent event) {
+		// The session attributes are released with the session.
+	}
+}
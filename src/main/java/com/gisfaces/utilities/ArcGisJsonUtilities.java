@@ -24,6 +24,7 @@
 
 package com.gisfaces.utilities;
 
+import com.gisfaces.utilities.json.JSONReader;
 import java.io.IOException;
 
 /**
@@ -61,6 +62,30 @@ public class ArcGisJsonUtilities {
 		return GISUtilities.getUrlConnectionOutput(ArcGisJsonUtilities.buildArcGisLegendUrl(url));
 	}
 
+	/**
+	 * Method to open a pull reader over the specified ArcGIS JSON query. The
+	 * caller must close the reader.
+	 * 
+	 * @param url Map service URL.
+	 * @return JSON reader.
+	 * @throws IOException
+	 */
+	public static final JSONReader openJsonQuery(String url) throws IOException {
+		return new JSONReader(GISUtilities.getUrlConnectionReader(ArcGisJsonUtilities.buildArcGisUrl(url)));
+	}
+
+	/**
+	 * Method to open a pull reader over the specified ArcGIS JSON legend query.
+	 * The caller must close the reader.
+	 * 
+	 * @param url Map service URL.
+	 * @return JSON reader.
+	 * @throws IOException
+	 */
+	public static final JSONReader openJsonLegendQuery(String url) throws IOException {
+		return new JSONReader(GISUtilities.getUrlConnectionReader(ArcGisJsonUtilities.buildArcGisLegendUrl(url)));
+	}
+
 	/**
 	 * Method to build an ArcGIS query URL.
 	 * 
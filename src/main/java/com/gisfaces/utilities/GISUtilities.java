@@ -25,11 +25,12 @@
 package com.gisfaces.utilities;
 
 import com.gisfaces.model.geometry.Point;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.Charset;
 import java.util.List;
 
 /**
@@ -122,23 +123,37 @@ public class GISUtilities {
 	 * @throws IOException
 	 */
 	public static final String getUrlConnectionOutput(String spec) throws IOException {
-		StringBuffer sb = new StringBuffer();
-
-		URL url = new URL(spec);
-		URLConnection connection = url.openConnection();
-		BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-		String line;
-		while ((line = reader.readLine()) != null) {
-			sb.append(line);
-			sb.append(System.getProperty("line.separator"));
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[8192];
+
+		Reader reader = GISUtilities.getUrlConnectionReader(spec);
+		try {
+			int n;
+			while ((n = reader.read(buffer)) >= 0) {
+				sb.append(buffer, 0, n);
+			}
+		} finally {
+			reader.close();
 		}
 
-		reader.close();
-
 		return sb.toString();
 	}
 
+	/**
+	 * Method to get a reader of URL output, so the output can be parsed as it
+	 * streams rather than read into memory first. The caller must close the
+	 * reader.
+	 * 
+	 * @param spec URL text.
+	 * @return UTF-8 reader.
+	 * @throws IOException
+	 */
+	public static final Reader getUrlConnectionReader(String spec) throws IOException {
+		URL url = new URL(spec);
+		URLConnection connection = url.openConnection();
+		return new InputStreamReader(connection.getInputStream(), Charset.forName("UTF-8"));
+	}
+
 	/**
 	 * Method to format the specified points for use with JavaScript methods.
 	 * 
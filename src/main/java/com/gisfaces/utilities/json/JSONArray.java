@@ -399,7 +399,7 @@ public class JSONArray {
 	 */
 	public String join(String separator) throws JSONException {
 		int len = length();
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
 
 		for (int i = 0; i < len; i += 1) {
 			if (i > 0) {
@@ -839,8 +839,10 @@ public class JSONArray {
 	 * @return a printable, displayable, transmittable representation of the array.
 	 */
 	public String toString() {
+		StringBuilder sb = JSONObject.acquireBuffer();
 		try {
-			return '[' + join(",") + ']';
+			write(sb);
+			return JSONObject.releaseBuffer(sb);
 		} catch (Exception e) {
 			return null;
 		}
@@ -875,7 +877,7 @@ public class JSONArray {
 			return "[]";
 		}
 		int i;
-		StringBuffer sb = new StringBuffer("[");
+		StringBuilder sb = new StringBuilder("[");
 		if (len == 1) {
 			sb.append(JSONObject.valueToString(this.myArrayList.get(0), indentFactor, indent));
 		} else {
@@ -901,7 +903,8 @@ public class JSONArray {
 
 	/**
 	 * Write the contents of the JSONArray as JSON text to a writer. For
-	 * compactness, no whitespace is added.
+	 * compactness, no whitespace is added. Small writes are gathered in an
+	 * unsynchronized buffer before they are passed to the writer.
 	 * <p>
 	 * Warning: This method assumes that the data structure is acyclical.
 	 *
@@ -910,29 +913,32 @@ public class JSONArray {
 	 */
 	public Writer write(Writer writer) throws JSONException {
 		try {
-			boolean b = false;
-			int len = length();
-
-			writer.write('[');
-
-			for (int i = 0; i < len; i += 1) {
-				if (b) {
-					writer.write(',');
-				}
-				Object v = this.myArrayList.get(i);
-				if (v instanceof JSONObject) {
-					((JSONObject) v).write(writer);
-				} else if (v instanceof JSONArray) {
-					((JSONArray) v).write(writer);
-				} else {
-					writer.write(JSONObject.valueToString(v));
-				}
-				b = true;
-			}
-			writer.write(']');
+			JSONBufferedWriter buffer = JSONBufferedWriter.wrap(writer);
+			write((Appendable) buffer);
+			buffer.flushBuffer();
 			return writer;
 		} catch (IOException e) {
 			throw new JSONException(e);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Write the contents of the JSONArray as JSON text to an appendable. For
+	 * compactness, no whitespace is added. Every value is written directly to the
+	 * appendable without building intermediate strings.
+	 * <p>
+	 * Warning: This method assumes that the data structure is acyclical.
+	 *
+	 * @param out The target appendable.
+	 * @return The appendable.
+	 * @throws JSONException
+	 */
+	public <A extends Appendable> A write(A out) throws JSONException {
+		try {
+			JSONObject.writeIterator(out, this.myArrayList.iterator());
+			return out;
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+}
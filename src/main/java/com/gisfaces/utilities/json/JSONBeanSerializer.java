@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JSON bean serializer class. The bean getter properties of a class are
+ * resolved once into method handles and cached with the class, so repeated
+ * serialization of the same model classes does not repeat the reflective
+ * method lookups. The cache does not prevent the classes of redeployed
+ * applications from being unloaded.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public final class JSONBeanSerializer {
+	/** Cached serializers by bean class. */
+	private static final ClassValue<JSONBeanSerializer> SERIALIZERS = new ClassValue<JSONBeanSerializer>() {
+		@Override
+		protected JSONBeanSerializer computeValue(Class<?> klass) {
+			return new JSONBeanSerializer(klass);
+		}
+	};
+
+	/** Generic getter method type. */
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	/** Property names sorted alphabetically. */
+	private final String[] names;
+
+	/** Property getter method handles. */
+	private final MethodHandle[] getters;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param klass Bean class.
+	 */
+	private JSONBeanSerializer(Class<?> klass) {
+		super();
+
+		// Resolve the getter methods by property name.
+		Map<String, Method> methods = new TreeMap<String, Method>();
+		for (Method method : klass.getMethods()) {
+			String key = JSONBeanSerializer.getPropertyName(method);
+			if ((key != null) && !"class".equals(key) && !methods.containsKey(key)) {
+				methods.put(key, method);
+			}
+		}
+
+		this.names = new String[methods.size()];
+		this.getters = new MethodHandle[methods.size()];
+
+		int i = 0;
+		for (Map.Entry<String, Method> e : methods.entrySet()) {
+			this.names[i] = e.getKey();
+			this.getters[i] = JSONBeanSerializer.unreflect(e.getValue());
+			i++;
+		}
+	}
+
+	/**
+	 * Method to get the cached serializer for the specified bean class.
+	 * 
+	 * @param klass Bean class.
+	 * @return JSONBeanSerializer
+	 */
+	public static JSONBeanSerializer forClass(Class<?> klass) {
+		return SERIALIZERS.get(klass);
+	}
+
+	/**
+	 * Method to get the number of bean properties.
+	 * 
+	 * @return Number of properties.
+	 */
+	public int length() {
+		return this.names.length;
+	}
+
+	/**
+	 * Method to get a bean property name.
+	 * 
+	 * @param index Property index.
+	 * @return Property name.
+	 */
+	public String getName(int index) {
+		return this.names[index];
+	}
+
+	/**
+	 * Method to find a bean property by name.
+	 * 
+	 * @param name Property name.
+	 * @return Property index, or a negative value if not found.
+	 */
+	public int indexOf(String name) {
+		return Arrays.binarySearch(this.names, name);
+	}
+
+	/**
+	 * Method to get a bean property value.
+	 * 
+	 * @param bean  Bean object.
+	 * @param index Property index.
+	 * @return Property value.
+	 * @throws JSONException If the getter fails.
+	 */
+	public Object getValue(Object bean, int index) throws JSONException {
+		try {
+			return (Object) this.getters[index].invokeExact(bean);
+		} catch (Throwable t) {
+			throw new JSONException(t);
+		}
+	}
+
+	/**
+	 * Method to convert a getter method into a generic method handle.
+	 * 
+	 * @param method Getter method.
+	 * @return MethodHandle with an <code>(Object)Object</code> signature.
+	 */
+	private static MethodHandle unreflect(Method method) {
+		try {
+			// Public methods declared by non-public classes require access override.
+			if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+				method.setAccessible(true);
+			}
+			return MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+		} catch (Exception e) {
+			throw new IllegalArgumentException(String.format("Unable to access bean getter '%s'.", method), e);
+		}
+	}
+
+	/**
+	 * Method to get the JSON property name of a bean getter method. The naming
+	 * rules match the <code>JSONObject</code> bean constructor.
+	 * 
+	 * @param method Method.
+	 * @return Property name, or null if the method is not a bean getter.
+	 */
+	static String getPropertyName(Method method) {
+		String key = null;
+
+		if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()
+				&& (method.getParameterTypes().length == 0) && (method.getReturnType() != void.class)) {
+			String name = method.getName();
+			if (name.startsWith("get")) {
+				key = name.substring(3);
+			} else if (name.startsWith("is")) {
+				key = name.substring(2);
+			}
+
+			if ((key != null) && (key.length() > 0) && Character.isUpperCase(key.charAt(0))) {
+				if (key.length() == 1) {
+					key = key.toLowerCase();
+				} else if (!Character.isUpperCase(key.charAt(1))) {
+					key = key.substring(0, 1).toLowerCase() + key.substring(1);
+				}
+			} else {
+				key = null;
+			}
+		}
+
+		return key;
+	}
+}
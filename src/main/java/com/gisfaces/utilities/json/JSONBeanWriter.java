@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JSON bean writer class. Bean getter properties are streamed directly to the
+ * writer as JSON text without building an intermediate JSONObject tree. Null
+ * values and the <code>class</code> property are omitted from all objects.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class JSONBeanWriter {
+	/** Target writer. */
+	private final Writer writer;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param writer Target writer.
+	 */
+	public JSONBeanWriter(Writer writer) {
+		super();
+		this.writer = writer;
+	}
+
+	/**
+	 * Method to write a bean as a JSON object.
+	 * 
+	 * @param bean     Bean object.
+	 * @param excludes Top level property names to omit.
+	 * @return this.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public JSONBeanWriter write(Object bean, String... excludes) throws IOException, JSONException {
+		if (bean == null) {
+			this.writer.write("null");
+		} else {
+			this.writeBean(bean, excludes);
+		}
+		return this;
+	}
+
+	/**
+	 * Method to write a bean as a JSON array of property values aligned to a
+	 * shared list of property names. Missing and null properties are written as
+	 * null, and trailing nulls are omitted.
+	 * 
+	 * @param bean Bean object.
+	 * @param keys Shared property names.
+	 * @return this.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public JSONBeanWriter writeRow(Object bean, String[] keys) throws IOException, JSONException {
+		JSONBeanSerializer serializer = JSONBeanSerializer.forClass(bean.getClass());
+		int nulls = 0;
+		boolean b = false;
+
+		this.writer.write('[');
+
+		for (String key : keys) {
+			int index = serializer.indexOf(key);
+			Object value = (index < 0) ? null : serializer.getValue(bean, index);
+
+			if (JSONObject.NULL.equals(value)) {
+				// Defer nulls until a following value is written.
+				nulls++;
+			} else {
+				for (; nulls > 0; nulls--) {
+					this.writer.write(b ? ",null" : "null");
+					b = true;
+				}
+				if (b) {
+					this.writer.write(',');
+				}
+				this.writeValue(value);
+				b = true;
+			}
+		}
+
+		this.writer.write(']');
+		return this;
+	}
+
+	/**
+	 * Method to write any supported value as JSON text.
+	 * 
+	 * @param value Value object.
+	 * @return this.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	public JSONBeanWriter writeValue(Object value) throws IOException, JSONException {
+		if (JSONObject.NULL.equals(value)) {
+			this.writer.write("null");
+		} else if (value instanceof JSONWritable) {
+			((JSONWritable) value).write(this.writer);
+		} else if (value instanceof JSONString) {
+			JSONObject.writeValue(this.writer, value);
+		} else if (value instanceof Number) {
+			this.writeNumber((Number) value);
+		} else if (value instanceof Boolean) {
+			this.writer.write(value.toString());
+		} else if ((value instanceof String) || (value instanceof Character)) {
+			JSONObject.quote(this.writer, value.toString());
+		} else if ((value instanceof JSONObject) || (value instanceof JSONArray)) {
+			JSONObject.writeValue(this.writer, value);
+		} else if (value instanceof Map) {
+			this.writeMap((Map<?, ?>) value);
+		} else if (value instanceof Collection) {
+			this.writeIterator(((Collection<?>) value).iterator());
+		} else if (value.getClass().isArray()) {
+			this.writeArray(value);
+		} else if ((value instanceof Enum) || (value.getClass().getClassLoader() == null)) {
+			// System classes and enumerations are written as text.
+			JSONObject.quote(this.writer, value.toString());
+		} else {
+			this.writeBean(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Method to write a number. Non-finite numbers are written as null.
+	 * 
+	 * @param n Number.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeNumber(Number n) throws IOException, JSONException {
+		if (n instanceof Double) {
+			JSONNumberFormatter.write(this.writer, n.doubleValue());
+		} else if ((n instanceof Float) && (((Float) n).isInfinite() || ((Float) n).isNaN())) {
+			this.writer.write("null");
+		} else {
+			this.writer.write(JSONObject.numberToString(n));
+		}
+	}
+
+	/**
+	 * Method to write the bean getter properties as a JSON object. The property
+	 * accessors are resolved once per class by <code>JSONBeanSerializer</code>.
+	 * 
+	 * @param bean     Bean object.
+	 * @param excludes Property names to omit.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeBean(Object bean, String... excludes) throws IOException, JSONException {
+		JSONBeanSerializer serializer = JSONBeanSerializer.forClass(bean.getClass());
+		boolean b = false;
+
+		this.writer.write('{');
+
+		for (int i = 0; i < serializer.length(); i++) {
+			String key = serializer.getName(i);
+
+			if (!JSONBeanWriter.isExcluded(key, excludes)) {
+				Object value = serializer.getValue(bean, i);
+
+				// Omit null properties.
+				if (!JSONObject.NULL.equals(value)) {
+					if (b) {
+						this.writer.write(',');
+					}
+					JSONObject.quote(this.writer, key);
+					this.writer.write(':');
+					this.writeValue(value);
+					b = true;
+				}
+			}
+		}
+
+		this.writer.write('}');
+	}
+
+	/**
+	 * Method to determine if a property name is excluded.
+	 * 
+	 * @param key      Property name.
+	 * @param excludes Property names to omit.
+	 * @return <code>true</code> if excluded, <code>false</code> otherwise.
+	 */
+	private static boolean isExcluded(String key, String... excludes) {
+		for (String exclude : excludes) {
+			if (key.equals(exclude)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Method to write a map as a JSON object.
+	 * 
+	 * @param map Map.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeMap(Map<?, ?> map) throws IOException, JSONException {
+		boolean b = false;
+
+		this.writer.write('{');
+
+		for (Map.Entry<?, ?> e : map.entrySet()) {
+			// Omit null keys and values.
+			if ((e.getKey() != null) && !JSONObject.NULL.equals(e.getValue())) {
+				if (b) {
+					this.writer.write(',');
+				}
+				JSONObject.quote(this.writer, e.getKey().toString());
+				this.writer.write(':');
+				this.writeValue(e.getValue());
+				b = true;
+			}
+		}
+
+		this.writer.write('}');
+	}
+
+	/**
+	 * Method to write an iteration of values as a JSON array.
+	 * 
+	 * @param iter Iterator.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeIterator(Iterator<?> iter) throws IOException, JSONException {
+		this.writer.write('[');
+
+		while (iter.hasNext()) {
+			this.writeValue(iter.next());
+
+			if (iter.hasNext()) {
+				this.writer.write(',');
+			}
+		}
+
+		this.writer.write(']');
+	}
+
+	/**
+	 * Method to write an object or primitive array as a JSON array.
+	 * 
+	 * @param array Array object.
+	 * @throws IOException
+	 * @throws JSONException
+	 */
+	private void writeArray(Object array) throws IOException, JSONException {
+		int length = Array.getLength(array);
+
+		this.writer.write('[');
+
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				this.writer.write(',');
+			}
+			this.writeValue(Array.get(array, i));
+		}
+
+		this.writer.write(']');
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON buffered writer class. Small writes are gathered in an unsynchronized
+ * character buffer and passed to the target writer in blocks, which avoids the
+ * per-call locking and encoding overhead of typical response writers. The
+ * target writer itself is never flushed or closed.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+final class JSONBufferedWriter extends Writer {
+	/** Buffer size, in characters. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Target writer. */
+	private final Writer writer;
+
+	/** Character buffer. */
+	private final char[] buffer;
+
+	/** Number of buffered characters. */
+	private int count;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param writer Target writer.
+	 */
+	private JSONBufferedWriter(Writer writer) {
+		super();
+		this.writer = writer;
+		this.buffer = new char[BUFFER_SIZE];
+	}
+
+	/**
+	 * Factory method to wrap a writer in a buffered writer. A writer that is
+	 * already buffered is returned unchanged, so nested serialization shares the
+	 * enclosing buffer.
+	 * 
+	 * @param writer Target writer.
+	 * @return Buffered writer.
+	 */
+	static JSONBufferedWriter wrap(Writer writer) {
+		return (writer instanceof JSONBufferedWriter) ? (JSONBufferedWriter) writer : new JSONBufferedWriter(writer);
+	}
+
+	/**
+	 * Method to pass the buffered characters to the target writer.
+	 * 
+	 * @throws IOException
+	 */
+	void flushBuffer() throws IOException {
+		if (this.count > 0) {
+			this.writer.write(this.buffer, 0, this.count);
+			this.count = 0;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#write(int)
+	 */
+	@Override
+	public void write(int c) throws IOException {
+		if (this.count == this.buffer.length) {
+			this.flushBuffer();
+		}
+		this.buffer[this.count++] = (char) c;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#write(char[], int, int)
+	 */
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (len > this.buffer.length) {
+			this.flushBuffer();
+			this.writer.write(cbuf, off, len);
+		} else {
+			if (len > this.buffer.length - this.count) {
+				this.flushBuffer();
+			}
+			System.arraycopy(cbuf, off, this.buffer, this.count, len);
+			this.count += len;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#write(java.lang.String, int, int)
+	 */
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		if (len > this.buffer.length) {
+			this.flushBuffer();
+			this.writer.write(str, off, len);
+		} else {
+			if (len > this.buffer.length - this.count) {
+				this.flushBuffer();
+			}
+			str.getChars(off, off + len, this.buffer, this.count);
+			this.count += len;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#append(java.lang.CharSequence)
+	 */
+	@Override
+	public Writer append(CharSequence csq) throws IOException {
+		String s = String.valueOf(csq);
+		this.write(s, 0, s.length());
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#append(char)
+	 */
+	@Override
+	public Writer append(char c) throws IOException {
+		this.write(c);
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.flushBuffer();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Writer#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.flushBuffer();
+	}
+}
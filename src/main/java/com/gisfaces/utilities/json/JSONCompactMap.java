@@ -0,0 +1,383 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * JSON compact map class. Small objects keep their keys and values interleaved
+ * in a single array and are searched linearly, which needs a fraction of the
+ * memory of a hash map and no per-entry allocation. The entries are moved to a
+ * linked hash map once the threshold is exceeded. Insertion order is kept in
+ * both forms.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+final class JSONCompactMap extends AbstractMap<Object, Object> {
+	/** Largest number of entries kept in the array. */
+	static final int THRESHOLD = 8;
+
+	/** Initial number of array entries. */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/** Interleaved keys and values. */
+	private Object[] table;
+
+	/** Number of array entries. */
+	private int size;
+
+	/** Hash map, once the threshold has been exceeded. */
+	private Map<Object, Object> map;
+
+	/** Entry set view. */
+	private Set<Map.Entry<Object, Object>> entries;
+
+	/**
+	 * Constructor.
+	 */
+	JSONCompactMap() {
+		super();
+	}
+
+	/**
+	 * Method to find the table index of a key.
+	 * 
+	 * @param key Key.
+	 * @return Index of the key, or -1 if not found.
+	 */
+	private int indexOf(Object key) {
+		int length = this.size << 1;
+
+		// Parsed keys are usually interned, so try identity first.
+		for (int i = 0; i < length; i += 2) {
+			if (this.table[i] == key) {
+				return i;
+			}
+		}
+		if (key != null) {
+			for (int i = 0; i < length; i += 2) {
+				if (key.equals(this.table[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Method to remove the table entry at an index.
+	 * 
+	 * @param index Index of the key.
+	 * @return Previous value.
+	 */
+	private Object removeAt(int index) {
+		Object value = this.table[index + 1];
+		int length = this.size << 1;
+		System.arraycopy(this.table, index + 2, this.table, index, length - index - 2);
+		this.table[length - 2] = null;
+		this.table[length - 1] = null;
+		this.size--;
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size() {
+		return (this.map != null) ? this.map.size() : this.size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return (this.map != null) ? this.map.containsKey(key) : (this.indexOf(key) >= 0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	public Object get(Object key) {
+		if (this.map != null) {
+			return this.map.get(key);
+		}
+		int index = this.indexOf(key);
+		return (index >= 0) ? this.table[index + 1] : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Object put(Object key, Object value) {
+		if (this.map != null) {
+			return this.map.put(key, value);
+		}
+
+		int index = this.indexOf(key);
+		if (index >= 0) {
+			Object previous = this.table[index + 1];
+			this.table[index + 1] = value;
+			return previous;
+		}
+
+		if (this.size == THRESHOLD) {
+			// Move the entries to a hash map.
+			this.map = new LinkedHashMap<Object, Object>(THRESHOLD * 4);
+			for (int i = 0; i < (this.size << 1); i += 2) {
+				this.map.put(this.table[i], this.table[i + 1]);
+			}
+			this.table = null;
+			this.size = 0;
+			return this.map.put(key, value);
+		}
+
+		if (this.table == null) {
+			this.table = new Object[INITIAL_CAPACITY << 1];
+		} else if ((this.size << 1) == this.table.length) {
+			Object[] grown = new Object[this.table.length << 1];
+			System.arraycopy(this.table, 0, grown, 0, this.table.length);
+			this.table = grown;
+		}
+
+		this.table[this.size << 1] = key;
+		this.table[(this.size << 1) + 1] = value;
+		this.size++;
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#remove(java.lang.Object)
+	 */
+	@Override
+	public Object remove(Object key) {
+		if (this.map != null) {
+			return this.map.remove(key);
+		}
+		int index = this.indexOf(key);
+		return (index >= 0) ? this.removeAt(index) : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#clear()
+	 */
+	@Override
+	public void clear() {
+		this.table = null;
+		this.size = 0;
+		this.map = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set<Map.Entry<Object, Object>> entrySet() {
+		if (this.entries == null) {
+			this.entries = new EntrySet();
+		}
+		return this.entries;
+	}
+
+	/**
+	 * Entry set view class.
+	 */
+	private final class EntrySet extends AbstractSet<Map.Entry<Object, Object>> {
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return JSONCompactMap.this.size();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.AbstractCollection#iterator()
+		 */
+		@Override
+		public Iterator<Map.Entry<Object, Object>> iterator() {
+			if (JSONCompactMap.this.map != null) {
+				return JSONCompactMap.this.map.entrySet().iterator();
+			}
+			return new EntryIterator();
+		}
+	}
+
+	/**
+	 * Array entry iterator class.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<Object, Object>> {
+		/** Table index of the next entry. */
+		private int next;
+
+		/** Table index of the last returned entry. */
+		private int last = -1;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext() {
+			return this.next < (JSONCompactMap.this.size << 1);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		public Map.Entry<Object, Object> next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.next;
+			this.next += 2;
+			return new Entry(this.last);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Iterator#remove()
+		 */
+		@Override
+		public void remove() {
+			if (this.last < 0) {
+				throw new IllegalStateException();
+			}
+			JSONCompactMap.this.removeAt(this.last);
+			this.next = this.last;
+			this.last = -1;
+		}
+	}
+
+	/**
+	 * Array entry class, which writes values through to the table.
+	 */
+	private final class Entry implements Map.Entry<Object, Object> {
+		/** Table index of the key. */
+		private final int index;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param index Table index of the key.
+		 */
+		Entry(int index) {
+			super();
+			this.index = index;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Map.Entry#getKey()
+		 */
+		@Override
+		public Object getKey() {
+			return JSONCompactMap.this.table[this.index];
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Map.Entry#getValue()
+		 */
+		@Override
+		public Object getValue() {
+			return JSONCompactMap.this.table[this.index + 1];
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Map.Entry#setValue(java.lang.Object)
+		 */
+		@Override
+		public Object setValue(Object value) {
+			Object previous = JSONCompactMap.this.table[this.index + 1];
+			JSONCompactMap.this.table[this.index + 1] = value;
+			return previous;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) obj;
+			Object key = this.getKey();
+			Object value = this.getValue();
+			return ((key == null) ? (e.getKey() == null) : key.equals(e.getKey())) && ((value == null) ? (e.getValue() == null) : value.equals(e.getValue()));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			Object key = this.getKey();
+			Object value = this.getValue();
+			return ((key == null) ? 0 : key.hashCode()) ^ ((value == null) ? 0 : value.hashCode());
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON number formatter class. Doubles are written into a character buffer as
+ * the shortest plain decimal that parses back to the same double, without the
+ * string building and trailing zero trimming of <code>Double.toString</code>.
+ * The decimal is found by scaling with exact powers of ten, and a candidate is
+ * accepted only when the correctly rounded quotient <code>m / 10^k</code>
+ * equals the double, which is exactly what parsing the decimal produces. Values
+ * outside the fast path range fall back to <code>Double.toString</code>.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public final class JSONNumberFormatter {
+	/** Maximum formatted length, in characters. */
+	public static final int MAX_LENGTH = 32;
+
+	/** Largest integer with an exact double representation. */
+	private static final double MAX_EXACT = 9007199254740992.0;
+
+	/** Smallest magnitude of the fast path. */
+	private static final double MIN_FAST = 1e-3;
+
+	/** Largest magnitude of the fast path, exclusive. */
+	private static final double MAX_FAST = 1e15;
+
+	/** Exact powers of ten. */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18 };
+
+	/**
+	 * Constructor.
+	 */
+	private JSONNumberFormatter() {
+		// Static methods only.
+	}
+
+	/**
+	 * Method to format a double as a JSON number. Non-finite numbers are
+	 * formatted as null.
+	 * 
+	 * @param d Double.
+	 * @return JSON number text.
+	 */
+	public static String toString(double d) {
+		char[] buffer = new char[MAX_LENGTH];
+		return new String(buffer, 0, JSONNumberFormatter.format(d, buffer, 0));
+	}
+
+	/**
+	 * Method to write a double as a JSON number. Non-finite numbers are written
+	 * as null.
+	 * 
+	 * @param out Appendable
+	 * @param d   Double.
+	 * @throws IOException
+	 */
+	public static void write(Appendable out, double d) throws IOException {
+		char[] buffer = new char[MAX_LENGTH];
+		int length = JSONNumberFormatter.format(d, buffer, 0);
+
+		if (out instanceof Writer) {
+			((Writer) out).write(buffer, 0, length);
+		} else if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(buffer, 0, length);
+		} else {
+			for (int i = 0; i < length; i++) {
+				out.append(buffer[i]);
+			}
+		}
+	}
+
+	/**
+	 * Method to format a double as a JSON number into a character buffer.
+	 * Non-finite numbers are formatted as null.
+	 * 
+	 * @param d      Double.
+	 * @param buffer Character buffer with at least <code>MAX_LENGTH</code>
+	 *               characters from the offset.
+	 * @param offset Buffer offset.
+	 * @return Buffer offset after the number.
+	 */
+	public static int format(double d, char[] buffer, int offset) {
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			return JSONNumberFormatter.copy("null", buffer, offset);
+		}
+		if (d == 0) {
+			return JSONNumberFormatter.copy((1 / d < 0) ? "-0" : "0", buffer, offset);
+		}
+
+		double a = Math.abs(d);
+		if ((a >= MIN_FAST) && (a < MAX_FAST)) {
+			// Find the most decimal places with an exact scaled integer.
+			int max = 0;
+			while ((max + 1 < POW10.length) && (a * POW10[max + 1] < MAX_EXACT)) {
+				max++;
+			}
+
+			if (JSONNumberFormatter.isRoundTrip(a, max)) {
+				// Search for the fewest decimal places that round trip.
+				int low = 0;
+				int high = max;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (JSONNumberFormatter.isRoundTrip(a, mid)) {
+						high = mid;
+					} else {
+						low = mid + 1;
+					}
+				}
+
+				long m = (long) Math.rint(a * POW10[high]);
+				return JSONNumberFormatter.writeDecimal(d < 0, m, high, buffer, offset);
+			}
+		}
+
+		// Fall back to the plain or scientific notation of Double.toString.
+		String s = Double.toString(d);
+		int end = s.length();
+		if ((s.indexOf('E') < 0) && (s.indexOf('.') > 0)) {
+			// Shave off trailing zeros and decimal point.
+			while (s.charAt(end - 1) == '0') {
+				end--;
+			}
+			if (s.charAt(end - 1) == '.') {
+				end--;
+			}
+		}
+		s.getChars(0, end, buffer, offset);
+		return offset + end;
+	}
+
+	/**
+	 * Method to determine if a positive double round trips through a decimal with
+	 * the specified number of decimal places.
+	 * 
+	 * @param a        Positive double.
+	 * @param decimals Decimal places.
+	 * @return <code>true</code> if the decimal parses back to the double,
+	 *         <code>false</code> otherwise.
+	 */
+	private static boolean isRoundTrip(double a, int decimals) {
+		return Math.rint(a * POW10[decimals]) / POW10[decimals] == a;
+	}
+
+	/**
+	 * Method to write the decimal <code>m / 10^decimals</code> without trailing
+	 * zeros.
+	 * 
+	 * @param negative Indicator to write a minus sign.
+	 * @param m        Scaled integer.
+	 * @param decimals Decimal places.
+	 * @param buffer   Character buffer.
+	 * @param offset   Buffer offset.
+	 * @return Buffer offset after the number.
+	 */
+	private static int writeDecimal(boolean negative, long m, int decimals, char[] buffer, int offset) {
+		while ((decimals > 0) && ((m % 10) == 0)) {
+			m /= 10;
+			decimals--;
+		}
+
+		int digits = 1;
+		for (long v = m / 10; v > 0; v /= 10) {
+			digits++;
+		}
+
+		int length = (negative ? 1 : 0) + Math.max(digits - decimals, 1) + ((decimals > 0) ? decimals + 1 : 0);
+		int position = offset + length;
+		long v = m;
+
+		if (decimals > 0) {
+			for (int i = 0; i < decimals; i++) {
+				buffer[--position] = (char) ('0' + (v % 10));
+				v /= 10;
+			}
+			buffer[--position] = '.';
+		}
+		do {
+			buffer[--position] = (char) ('0' + (v % 10));
+			v /= 10;
+		} while (v > 0);
+		if (negative) {
+			buffer[--position] = '-';
+		}
+
+		return offset + length;
+	}
+
+	/**
+	 * Method to copy text into a character buffer.
+	 * 
+	 * @param s      Text.
+	 * @param buffer Character buffer.
+	 * @param offset Buffer offset.
+	 * @return Buffer offset after the text.
+	 */
+	private static int copy(String s, char[] buffer, int offset) {
+		s.getChars(0, s.length(), buffer, offset);
+		return offset + s.length();
+	}
+}
@@ -50,12 +50,12 @@ SOFTWARE.
 
 import java.io.IOException;
 import java.io.Writer;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeSet;
 
@@ -154,7 +154,8 @@ public class JSONObject {
 	}
 
 	/**
-	 * The map where the JSONObject's properties are kept.
+	 * The map where the JSONObject's properties are kept. Objects created by this
+	 * class use a compact map, which is array-backed for small key counts.
 	 */
 	private Map map;
 
@@ -166,11 +167,17 @@ public class JSONObject {
 	 */
 	public static final Object NULL = new Null();
 
+	/** Largest serialization buffer kept for reuse, in characters. */
+	private static final int MAX_BUFFER_CAPACITY = 65536;
+
+	/** Reusable serialization buffer of each thread. */
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>();
+
 	/**
 	 * Construct an empty JSONObject.
 	 */
 	public JSONObject() {
-		this.map = new LinkedHashMap();
+		this.map = new JSONCompactMap();
 	}
 
 	/**
@@ -214,7 +221,7 @@ public class JSONObject {
 				return;
 			default:
 				x.back();
-				key = x.nextValue().toString();
+				key = x.nextKey();
 			}
 
 			/*
@@ -258,7 +265,7 @@ public class JSONObject {
 	 *            JSONObject.
 	 */
 	public JSONObject(Map map) {
-		this.map = (map == null) ? new LinkedHashMap() : map;
+		this.map = (map == null) ? new JSONCompactMap() : map;
 	}
 
 	/**
@@ -271,7 +278,7 @@ public class JSONObject {
 	 *                          properties.
 	 */
 	public JSONObject(Map map, boolean includeSuperClass) {
-		this.map = new LinkedHashMap();
+		this.map = new JSONCompactMap();
 		if (map != null) {
 			Iterator i = map.entrySet().iterator();
 			while (i.hasNext()) {
@@ -340,7 +347,23 @@ public class JSONObject {
 			includeSuperClass = false;
 		}
 
-		Method[] methods = (includeSuperClass) ? klass.getMethods() : klass.getDeclaredMethods();
+		/*
+		 * Application classes use the cached getter method handles.
+		 */
+
+		if (includeSuperClass) {
+			JSONBeanSerializer serializer = JSONBeanSerializer.forClass(klass);
+			for (int i = 0; i < serializer.length(); i += 1) {
+				try {
+					putBeanValue(serializer.getName(i), serializer.getValue(bean, i), includeSuperClass);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return;
+		}
+
+		Method[] methods = klass.getDeclaredMethods();
 		for (int i = 0; i < methods.length; i += 1) {
 			try {
 				Method method = methods[i];
@@ -359,24 +382,7 @@ public class JSONObject {
 							key = key.substring(0, 1).toLowerCase() + key.substring(1);
 						}
 
-						Object result = method.invoke(bean, (Object[]) null);
-						if (result == null) {
-							map.put(key, NULL);
-						} else if (result.getClass().isArray()) {
-							map.put(key, new JSONArray(result, includeSuperClass));
-						} else if (result instanceof Collection) { // List or Set
-							map.put(key, new JSONArray((Collection) result, includeSuperClass));
-						} else if (result instanceof Map) {
-							map.put(key, new JSONObject((Map) result, includeSuperClass));
-						} else if (isStandardProperty(result.getClass())) { // Primitives, String and Wrapper
-							map.put(key, result);
-						} else {
-							if (result.getClass().getPackage().getName().startsWith("java") || result.getClass().getClassLoader() == null) {
-								map.put(key, result.toString());
-							} else { // User defined Objects
-								map.put(key, new JSONObject(result, includeSuperClass));
-							}
-						}
+						putBeanValue(key, method.invoke(bean, (Object[]) null), includeSuperClass);
 					}
 				}
 			} catch (Exception e) {
@@ -385,6 +391,28 @@ public class JSONObject {
 		}
 	}
 
+	private void putBeanValue(String key, Object result, boolean includeSuperClass) throws JSONException {
+		if (result == null) {
+			map.put(key, NULL);
+		} else if (result instanceof JSONString) { // Objects producing their own JSON text
+			map.put(key, result);
+		} else if (result.getClass().isArray()) {
+			map.put(key, new JSONArray(result, includeSuperClass));
+		} else if (result instanceof Collection) { // List or Set
+			map.put(key, new JSONArray((Collection) result, includeSuperClass));
+		} else if (result instanceof Map) {
+			map.put(key, new JSONObject((Map) result, includeSuperClass));
+		} else if (isStandardProperty(result.getClass())) { // Primitives, String and Wrapper
+			map.put(key, result);
+		} else {
+			if (result.getClass().getPackage().getName().startsWith("java") || result.getClass().getClassLoader() == null) {
+				map.put(key, result.toString());
+			} else { // User defined Objects
+				map.put(key, new JSONObject(result, includeSuperClass));
+			}
+		}
+	}
+
 	static boolean isStandardProperty(Class clazz) {
 		return clazz.isPrimitive() || clazz.isAssignableFrom(Byte.class) || clazz.isAssignableFrom(Short.class) || clazz.isAssignableFrom(Integer.class)
 				|| clazz.isAssignableFrom(Long.class) || clazz.isAssignableFrom(Float.class) || clazz.isAssignableFrom(Double.class)
@@ -489,22 +517,7 @@ public class JSONObject {
 	 * @return A String.
 	 */
 	static public String doubleToString(double d) {
-		if (Double.isInfinite(d) || Double.isNaN(d)) {
-			return "null";
-		}
-
-// Shave off trailing zeros and decimal point, if possible.
-
-		String s = Double.toString(d);
-		if (s.indexOf('.') > 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0) {
-			while (s.endsWith("0")) {
-				s = s.substring(0, s.length() - 1);
-			}
-			if (s.endsWith(".")) {
-				s = s.substring(0, s.length() - 1);
-			}
-		}
-		return s;
+		return JSONNumberFormatter.toString(d);
 	}
 
 	/**
@@ -737,6 +750,9 @@ public class JSONObject {
 			throw new JSONException("Null pointer");
 		}
 		testValidity(n);
+		if (n instanceof Double) {
+			return JSONNumberFormatter.toString(n.doubleValue());
+		}
 
 // Shave off trailing zeros and decimal point, if possible.
 
@@ -1083,55 +1099,103 @@ public class JSONObject {
 			return "\"\"";
 		}
 
+		StringBuilder sb = new StringBuilder(string.length() + 4);
+		try {
+			quote(sb, string);
+		} catch (IOException e) {
+			// A string builder does not throw I/O exceptions.
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Append a string in double quotes with backslash sequences in all the right
+	 * places, as for {@link #quote(String)}. Runs of characters that need no
+	 * escaping are appended as ranges of the source string.
+	 * 
+	 * @param out    The target appendable.
+	 * @param string A String
+	 * @throws IOException
+	 */
+	static void quote(Appendable out, String string) throws IOException {
+		if (string == null || string.length() == 0) {
+			out.append("\"\"");
+			return;
+		}
+
 		char b;
 		char c = 0;
-		int i;
 		int len = string.length();
-		StringBuffer sb = new StringBuffer(len + 4);
-		String t;
+		int start = 0;
 
-		sb.append('"');
-		for (i = 0; i < len; i += 1) {
+		out.append('"');
+		for (int i = 0; i < len; i += 1) {
 			b = c;
 			c = string.charAt(i);
+			String escape;
 			switch (c) {
 			case '\\':
+				escape = "\\\\";
+				break;
 			case '"':
-				sb.append('\\');
-				sb.append(c);
+				escape = "\\\"";
 				break;
 			case '/':
-				if (b == '<') {
-					sb.append('\\');
-				}
-				sb.append(c);
+				escape = (b == '<') ? "\\/" : null;
 				break;
 			case '\b':
-				sb.append("\\b");
+				escape = "\\b";
 				break;
 			case '\t':
-				sb.append("\\t");
+				escape = "\\t";
 				break;
 			case '\n':
-				sb.append("\\n");
+				escape = "\\n";
 				break;
 			case '\f':
-				sb.append("\\f");
+				escape = "\\f";
 				break;
 			case '\r':
-				sb.append("\\r");
+				escape = "\\r";
 				break;
 			default:
-				if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
-					t = "000" + Integer.toHexString(c);
-					sb.append("\\u" + t.substring(t.length() - 4));
+				escape = (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) ? "" : null;
+			}
+			if (escape != null) {
+				append(out, string, start, i);
+				if (escape.isEmpty()) {
+					out.append("\\u");
+					for (int shift = 12; shift >= 0; shift -= 4) {
+						out.append(Character.forDigit((c >> shift) & 0xf, 16));
+					}
 				} else {
-					sb.append(c);
+					out.append(escape);
 				}
+				start = i + 1;
+			}
+		}
+		append(out, string, start, len);
+		out.append('"');
+	}
+
+	/**
+	 * Append a range of a string. Writers are given the range directly, since
+	 * their <code>append</code> method copies the range into a new string.
+	 * 
+	 * @param out    The target appendable.
+	 * @param string A String
+	 * @param start  The start index, inclusive.
+	 * @param end    The end index, exclusive.
+	 * @throws IOException
+	 */
+	private static void append(Appendable out, String string, int start, int end) throws IOException {
+		if (start < end) {
+			if (out instanceof Writer) {
+				((Writer) out).write(string, start, end - start);
+			} else {
+				out.append(string, start, end);
 			}
 		}
-		sb.append('"');
-		return sb.toString();
 	}
 
 	/**
@@ -1271,21 +1335,10 @@ public class JSONObject {
 	 *         brace)</small>.
 	 */
 	public String toString() {
+		StringBuilder sb = acquireBuffer();
 		try {
-			Iterator keys = keys();
-			StringBuffer sb = new StringBuffer("{");
-
-			while (keys.hasNext()) {
-				if (sb.length() > 1) {
-					sb.append(',');
-				}
-				Object o = keys.next();
-				sb.append(quote(o.toString()));
-				sb.append(':');
-				sb.append(valueToString(this.map.get(o)));
-			}
-			sb.append('}');
-			return sb.toString();
+			write(sb);
+			return releaseBuffer(sb);
 		} catch (Exception e) {
 			return null;
 		}
@@ -1326,7 +1379,7 @@ public class JSONObject {
 			return "{}";
 		}
 		Iterator keys = sortedKeys();
-		StringBuffer sb = new StringBuffer("{");
+		StringBuilder sb = new StringBuilder("{");
 		int newindent = indent + indentFactor;
 		Object o;
 		if (n == 1) {
@@ -1384,34 +1437,19 @@ public class JSONObject {
 		if (value == null || value.equals(null)) {
 			return "null";
 		}
-		if (value instanceof JSONString) {
-			Object o;
-			try {
-				o = ((JSONString) value).toJSONString();
-			} catch (Exception e) {
-				throw new JSONException(e);
-			}
-			if (o instanceof String) {
-				return (String) o;
-			}
-			throw new JSONException("Bad value from toJSONString: " + o);
+		if (value instanceof String) {
+			return quote((String) value);
 		}
 		if (value instanceof Number) {
 			return numberToString((Number) value);
 		}
-		if (value instanceof Boolean || value instanceof JSONObject || value instanceof JSONArray) {
-			return value.toString();
-		}
-		if (value instanceof Map) {
-			return new JSONObject((Map) value).toString();
-		}
-		if (value instanceof Collection) {
-			return new JSONArray((Collection) value).toString();
-		}
-		if (value.getClass().isArray()) {
-			return new JSONArray(value).toString();
+		StringBuilder sb = acquireBuffer();
+		try {
+			writeValue(sb, value);
+		} catch (IOException e) {
+			throw new JSONException(e);
 		}
-		return quote(value.toString());
+		return releaseBuffer(sb);
 	}
 
 	/**
@@ -1467,7 +1505,8 @@ public class JSONObject {
 
 	/**
 	 * Write the contents of the JSONObject as JSON text to a writer. For
-	 * compactness, no whitespace is added.
+	 * compactness, no whitespace is added. Small writes are gathered in an
+	 * unsynchronized buffer before they are passed to the writer.
 	 * <p>
 	 * Warning: This method assumes that the data structure is acyclical.
 	 *
@@ -1476,31 +1515,179 @@ public class JSONObject {
 	 */
 	public Writer write(Writer writer) throws JSONException {
 		try {
-			boolean b = false;
-			Iterator keys = keys();
-			writer.write('{');
-
-			while (keys.hasNext()) {
-				if (b) {
-					writer.write(',');
-				}
-				Object k = keys.next();
-				writer.write(quote(k.toString()));
-				writer.write(':');
-				Object v = this.map.get(k);
-				if (v instanceof JSONObject) {
-					((JSONObject) v).write(writer);
-				} else if (v instanceof JSONArray) {
-					((JSONArray) v).write(writer);
-				} else {
-					writer.write(valueToString(v));
-				}
-				b = true;
-			}
-			writer.write('}');
+			JSONBufferedWriter buffer = JSONBufferedWriter.wrap(writer);
+			write((Appendable) buffer);
+			buffer.flushBuffer();
 			return writer;
 		} catch (IOException e) {
 			throw new JSONException(e);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Write the contents of the JSONObject as JSON text to an appendable. For
+	 * compactness, no whitespace is added. Every value is written directly to the
+	 * appendable without building intermediate strings.
+	 * <p>
+	 * Warning: This method assumes that the data structure is acyclical.
+	 *
+	 * @param out The target appendable.
+	 * @return The appendable.
+	 * @throws JSONException
+	 */
+	public <A extends Appendable> A write(A out) throws JSONException {
+		try {
+			writeMap(out, this.map);
+			return out;
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	/**
+	 * Write a JSON text of an Object value to an appendable. The value is
+	 * serialized exactly as by {@link #valueToString(Object)}, but maps,
+	 * collections and arrays are written directly rather than wrapped in a new
+	 * JSONObject or JSONArray, and JSONWritable values write their own text
+	 * without an intermediate string.
+	 * <p>
+	 * Warning: This method assumes that the data structure is acyclical.
+	 * 
+	 * @param out   The target appendable.
+	 * @param value The value to be serialized.
+	 * @throws IOException
+	 * @throws JSONException If the value is or contains an invalid number.
+	 */
+	static void writeValue(Appendable out, Object value) throws IOException, JSONException {
+		if (value == null || value.equals(null)) {
+			out.append("null");
+		} else if (value instanceof String) {
+			quote(out, (String) value);
+		} else if (value instanceof JSONWritable) {
+			try {
+				((JSONWritable) value).write(out);
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new JSONException(e);
+			}
+		} else if (value instanceof JSONString) {
+			Object o;
+			try {
+				o = ((JSONString) value).toJSONString();
+			} catch (Exception e) {
+				throw new JSONException(e);
+			}
+			if (!(o instanceof String)) {
+				throw new JSONException("Bad value from toJSONString: " + o);
+			}
+			out.append((String) o);
+		} else if (value instanceof Double) {
+			testValidity(value);
+			JSONNumberFormatter.write(out, ((Double) value).doubleValue());
+		} else if (value instanceof Number) {
+			out.append(numberToString((Number) value));
+		} else if (value instanceof Boolean) {
+			out.append(((Boolean) value).booleanValue() ? "true" : "false");
+		} else if (value instanceof JSONObject) {
+			writeMap(out, ((JSONObject) value).map);
+		} else if (value instanceof JSONArray) {
+			((JSONArray) value).write(out);
+		} else if (value instanceof Map) {
+			writeMap(out, (Map) value);
+		} else if (value instanceof Collection) {
+			writeIterator(out, ((Collection) value).iterator());
+		} else if (value.getClass().isArray()) {
+			int length = Array.getLength(value);
+			out.append('[');
+			for (int i = 0; i < length; i += 1) {
+				if (i > 0) {
+					out.append(',');
+				}
+				writeValue(out, Array.get(value, i));
+			}
+			out.append(']');
+		} else {
+			quote(out, value.toString());
+		}
+	}
+
+	/**
+	 * Write the entries of a map as a JSON object to an appendable.
+	 * 
+	 * @param out The target appendable.
+	 * @param map The map.
+	 * @throws IOException
+	 * @throws JSONException If the map contains an invalid number.
+	 */
+	private static void writeMap(Appendable out, Map map) throws IOException, JSONException {
+		boolean b = false;
+		Iterator i = map.entrySet().iterator();
+
+		out.append('{');
+		while (i.hasNext()) {
+			Map.Entry e = (Map.Entry) i.next();
+			if (b) {
+				out.append(',');
+			}
+			quote(out, e.getKey().toString());
+			out.append(':');
+			writeValue(out, e.getValue());
+			b = true;
+		}
+		out.append('}');
+	}
+
+	/**
+	 * Write an iteration of values as a JSON array to an appendable.
+	 * 
+	 * @param out  The target appendable.
+	 * @param iter The iterator.
+	 * @throws IOException
+	 * @throws JSONException If the iteration contains an invalid number.
+	 */
+	static void writeIterator(Appendable out, Iterator iter) throws IOException, JSONException {
+		boolean b = false;
+
+		out.append('[');
+		while (iter.hasNext()) {
+			if (b) {
+				out.append(',');
+			}
+			writeValue(out, iter.next());
+			b = true;
+		}
+		out.append(']');
+	}
+
+	/**
+	 * Take the reusable serialization buffer of the current thread, or create a
+	 * new one if it is already in use by an enclosing serialization.
+	 * 
+	 * @return An empty string builder.
+	 */
+	static StringBuilder acquireBuffer() {
+		StringBuilder sb = BUFFER.get();
+		if (sb == null) {
+			return new StringBuilder(256);
+		}
+		BUFFER.set(null);
+		sb.setLength(0);
+		return sb;
+	}
+
+	/**
+	 * Return the contents of a serialization buffer and give the buffer back to
+	 * the current thread for reuse. Oversized buffers are dropped.
+	 * 
+	 * @param sb The string builder from {@link #acquireBuffer()}.
+	 * @return The buffer contents.
+	 */
+	static String releaseBuffer(StringBuilder sb) {
+		String s = sb.toString();
+		if (sb.capacity() <= MAX_BUFFER_CAPACITY) {
+			BUFFER.set(sb);
+		}
+		return s;
+	}
+}
@@ -0,0 +1,744 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+/**
+ * JSON pull reader class. The reader pulls through a JSON text one event at a
+ * time directly from a character buffer over the source reader, so callers can
+ * extract the values they need and skip uninteresting objects and arrays
+ * without building a <code>JSONObject</code> tree of the whole document.
+ * 
+ * <pre>
+ * JSONReader reader = new JSONReader(in);
+ * reader.next(); // START_OBJECT
+ * while (reader.nextField() != null) {
+ * 	if ("name".equals(reader.getText())) {
+ * 		reader.next();
+ * 		name = reader.getText();
+ * 	} else {
+ * 		reader.skipValue();
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+public class JSONReader implements Closeable {
+	/** Buffer size, in characters. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Object container context. */
+	private static final byte OBJECT = 1;
+
+	/** Array container context. */
+	private static final byte ARRAY = 2;
+
+	/** Source reader. */
+	private final Reader reader;
+
+	/** Character buffer. */
+	private final char[] buffer;
+
+	/** Buffer read position. */
+	private int position;
+
+	/** Buffer limit. */
+	private int limit;
+
+	/** Characters consumed before the buffer. */
+	private long offset;
+
+	/** Container context stack. */
+	private byte[] stack;
+
+	/** Container depth. */
+	private int depth;
+
+	/** Current event. */
+	private JSONEvent event;
+
+	/** Current field name, string or number text. */
+	private String text;
+
+	/** Scratch builder for escaped strings. */
+	private final StringBuilder builder;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader Source reader.
+	 */
+	public JSONReader(Reader reader) {
+		super();
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+		this.stack = new byte[16];
+		this.builder = new StringBuilder();
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param in Source UTF-8 input stream.
+	 */
+	public JSONReader(InputStream in) {
+		this(new InputStreamReader(in, Charset.forName("UTF-8")));
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param json Source JSON text.
+	 */
+	public JSONReader(String json) {
+		this(new StringReader(json));
+	}
+
+	/**
+	 * Method to get the current event.
+	 * 
+	 * @return Current event, or <code>null</code> before the first event and at the
+	 *         end of the document.
+	 */
+	public JSONEvent getEvent() {
+		return this.event;
+	}
+
+	/**
+	 * Method to get the current container depth.
+	 * 
+	 * @return Number of open objects and arrays.
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * Method to get the text of the current field name, string value or number
+	 * value.
+	 * 
+	 * @return Text, or <code>null</code> for other events.
+	 */
+	public String getText() {
+		return this.text;
+	}
+
+	/**
+	 * Method to get the current value as a double. Null values are returned as
+	 * <code>NaN</code>.
+	 * 
+	 * @return Double value.
+	 * @throws JSONException
+	 */
+	public double getDouble() throws JSONException {
+		if (this.event == JSONEvent.VALUE_NULL) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(this.getValueText());
+		} catch (NumberFormatException e) {
+			throw this.syntaxError(String.format("Value '%s' is not a number", this.text));
+		}
+	}
+
+	/**
+	 * Method to get the current value as an integer. Fractions are truncated.
+	 * 
+	 * @return Integer value.
+	 * @throws JSONException if the value is not a number within the integer
+	 *                       range.
+	 */
+	public int getInt() throws JSONException {
+		long value = this.getLong();
+		if ((value < Integer.MIN_VALUE) || (value > Integer.MAX_VALUE)) {
+			throw this.syntaxError(String.format("Value '%s' is out of integer range", this.text));
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Method to get the current value as a long. Fractions are truncated.
+	 * 
+	 * @return Long value.
+	 * @throws JSONException if the value is not a number within the long range.
+	 */
+	public long getLong() throws JSONException {
+		String s = this.getValueText();
+		try {
+			return Long.parseLong(s);
+		} catch (NumberFormatException e) {
+			// Fall back to a decimal or exponent value, rejecting values which do not fit.
+			double value = this.getDouble();
+			if (!((value >= Long.MIN_VALUE) && (value < -(double) Long.MIN_VALUE))) {
+				throw this.syntaxError(String.format("Value '%s' is out of long range", this.text));
+			}
+			return (long) value;
+		}
+	}
+
+	/**
+	 * Method to get the current value as a boolean.
+	 * 
+	 * @return Boolean value.
+	 * @throws JSONException
+	 */
+	public boolean getBoolean() throws JSONException {
+		if (this.event == JSONEvent.VALUE_TRUE) {
+			return true;
+		} else if (this.event == JSONEvent.VALUE_FALSE) {
+			return false;
+		} else if (this.event == JSONEvent.VALUE_STRING) {
+			return "true".equalsIgnoreCase(this.text);
+		} else {
+			throw this.syntaxError(String.format("Event %s is not a boolean", this.event));
+		}
+	}
+
+	/**
+	 * Method to get the text of a current string or number value.
+	 * 
+	 * @return Value text.
+	 * @throws JSONException
+	 */
+	private String getValueText() throws JSONException {
+		if ((this.event != JSONEvent.VALUE_NUMBER) && (this.event != JSONEvent.VALUE_STRING)) {
+			throw this.syntaxError(String.format("Event %s is not a number", this.event));
+		}
+		return this.text.trim();
+	}
+
+	/**
+	 * Method to pull the next event.
+	 * 
+	 * @return Next event, or <code>null</code> at the end of the document.
+	 * @throws JSONException
+	 */
+	public JSONEvent next() throws JSONException {
+		JSONEvent previous = this.event;
+		this.text = null;
+
+		int c = this.nextClean();
+
+		if (this.depth == 0) {
+			if (previous != null) {
+				// A single top level value is supported.
+				if (c >= 0) {
+					throw this.syntaxError("Unexpected text after the end of the document");
+				}
+				this.event = null;
+				return null;
+			}
+			if (c < 0) {
+				throw this.syntaxError("Unexpected end of the document");
+			}
+			return this.event = this.readValue(c);
+		}
+
+		byte context = this.stack[this.depth - 1];
+
+		if ((context == OBJECT) && (previous == JSONEvent.FIELD_NAME)) {
+			return this.event = this.readValue(c);
+		}
+
+		// Close the container, or read the separator before the next member.
+		boolean start = (previous == JSONEvent.START_OBJECT) || (previous == JSONEvent.START_ARRAY);
+		if (!start && (c == ',')) {
+			c = this.nextClean();
+		} else if (!start && (c != '}') && (c != ']')) {
+			throw this.syntaxError("Expected a ',' separator");
+		}
+
+		if (c == ((context == OBJECT) ? '}' : ']')) {
+			this.depth--;
+			return this.event = (context == OBJECT) ? JSONEvent.END_OBJECT : JSONEvent.END_ARRAY;
+		}
+
+		if (context == ARRAY) {
+			return this.event = this.readValue(c);
+		}
+
+		if (c != '"') {
+			throw this.syntaxError("Expected a quoted field name");
+		}
+		this.text = this.readString(true);
+		if (this.nextClean() != ':') {
+			throw this.syntaxError("Expected a ':' after a field name");
+		}
+		return this.event = JSONEvent.FIELD_NAME;
+	}
+
+	/**
+	 * Method to pull the next field name of the current object.
+	 * 
+	 * @return Field name, or <code>null</code> at the end of the object.
+	 * @throws JSONException
+	 */
+	public String nextField() throws JSONException {
+		JSONEvent e = this.next();
+		if (e == JSONEvent.FIELD_NAME) {
+			return this.text;
+		} else if (e == JSONEvent.END_OBJECT) {
+			return null;
+		} else {
+			throw this.syntaxError(String.format("Expected a field name, found %s", e));
+		}
+	}
+
+	/**
+	 * Method to pull the next value as a string. Numbers and booleans are returned
+	 * as their JSON text, and objects and arrays as compact JSON text.
+	 * 
+	 * @return String, or <code>null</code> for a null value.
+	 * @throws JSONException
+	 */
+	public String nextString() throws JSONException {
+		JSONEvent e = this.next();
+		if (e == JSONEvent.VALUE_NULL) {
+			return null;
+		} else if ((e == JSONEvent.VALUE_TRUE) || (e == JSONEvent.VALUE_FALSE)) {
+			return (e == JSONEvent.VALUE_TRUE) ? "true" : "false";
+		} else if ((e == JSONEvent.START_OBJECT) || (e == JSONEvent.START_ARRAY)) {
+			return this.readValue().toString();
+		} else if ((e == JSONEvent.VALUE_STRING) || (e == JSONEvent.VALUE_NUMBER)) {
+			return this.text;
+		} else {
+			throw this.syntaxError(String.format("Expected a value, found %s", e));
+		}
+	}
+
+	/**
+	 * Method to pull the next value as an integer. Numeric strings are converted,
+	 * and null values, objects and arrays are replaced by the default value.
+	 * 
+	 * @param defaultValue Default value.
+	 * @return Integer value.
+	 * @throws JSONException
+	 */
+	public int nextInt(int defaultValue) throws JSONException {
+		JSONEvent e = this.next();
+		if ((e == JSONEvent.VALUE_NUMBER) || (e == JSONEvent.VALUE_STRING)) {
+			return this.getInt();
+		}
+		this.skipChildren();
+		return defaultValue;
+	}
+
+	/**
+	 * Method to pull the next value and determine if it is an object. Other
+	 * values are skipped.
+	 * 
+	 * @return <code>true</code> if positioned on the start of an object,
+	 *         <code>false</code> otherwise.
+	 * @throws JSONException
+	 */
+	public boolean nextObject() throws JSONException {
+		if (this.next() == JSONEvent.START_OBJECT) {
+			return true;
+		}
+		this.skipChildren();
+		return false;
+	}
+
+	/**
+	 * Method to pull the next value and determine if it is an array. Other values
+	 * are skipped.
+	 * 
+	 * @return <code>true</code> if positioned on the start of an array,
+	 *         <code>false</code> otherwise.
+	 * @throws JSONException
+	 */
+	public boolean nextArray() throws JSONException {
+		if (this.next() == JSONEvent.START_ARRAY) {
+			return true;
+		}
+		this.skipChildren();
+		return false;
+	}
+
+	/**
+	 * Method to skip the children of the current object or array. After the call
+	 * the current event is the matching end event. Nothing is skipped for other
+	 * events.
+	 * 
+	 * @throws JSONException
+	 */
+	public void skipChildren() throws JSONException {
+		if ((this.event != JSONEvent.START_OBJECT) && (this.event != JSONEvent.START_ARRAY)) {
+			return;
+		}
+
+		// Scan the raw text for the matching end without reading any values.
+		int target = this.depth - 1;
+		while (this.depth > target) {
+			int c = this.read();
+			if (c < 0) {
+				throw this.syntaxError("Unexpected end of the document");
+			} else if (c == '"') {
+				this.skipString();
+			} else if ((c == '{') || (c == '[')) {
+				this.push((c == '{') ? OBJECT : ARRAY);
+			} else if ((c == '}') || (c == ']')) {
+				if (this.stack[this.depth - 1] != ((c == '}') ? OBJECT : ARRAY)) {
+					throw this.syntaxError(String.format("Mismatched '%s'", (char) c));
+				}
+				this.depth--;
+				this.event = (c == '}') ? JSONEvent.END_OBJECT : JSONEvent.END_ARRAY;
+			}
+		}
+		this.text = null;
+	}
+
+	/**
+	 * Method to skip the next value, including any children. Typically called
+	 * after a field name that is not needed.
+	 * 
+	 * @throws JSONException
+	 */
+	public void skipValue() throws JSONException {
+		this.next();
+		this.skipChildren();
+	}
+
+	/**
+	 * Method to materialize the current value. Objects and arrays are read with
+	 * all of their children into a <code>JSONObject</code> or
+	 * <code>JSONArray</code>.
+	 * 
+	 * @return Value object.
+	 * @throws JSONException
+	 */
+	public Object readValue() throws JSONException {
+		if (this.event == null) {
+			this.next();
+		}
+
+		switch (this.event) {
+		case START_OBJECT:
+			JSONObject jo = new JSONObject();
+			String key;
+			while ((key = this.nextField()) != null) {
+				this.next();
+				jo.put(key, this.readValue());
+			}
+			return jo;
+		case START_ARRAY:
+			JSONArray ja = new JSONArray();
+			while (this.next() != JSONEvent.END_ARRAY) {
+				ja.put(this.readValue());
+			}
+			return ja;
+		case VALUE_STRING:
+			return this.text;
+		case VALUE_NUMBER:
+			return JSONObject.stringToValue(this.text);
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NULL:
+			return JSONObject.NULL;
+		default:
+			throw this.syntaxError(String.format("Event %s is not a value", this.event));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	/**
+	 * Method to read a value starting with the specified character.
+	 * 
+	 * @param c First character of the value.
+	 * @return Value event.
+	 * @throws JSONException
+	 */
+	private JSONEvent readValue(int c) throws JSONException {
+		switch (c) {
+		case '{':
+			this.push(OBJECT);
+			return JSONEvent.START_OBJECT;
+		case '[':
+			this.push(ARRAY);
+			return JSONEvent.START_ARRAY;
+		case '"':
+			this.text = this.readString(false);
+			return JSONEvent.VALUE_STRING;
+		case 't':
+			this.readLiteral("rue");
+			return JSONEvent.VALUE_TRUE;
+		case 'f':
+			this.readLiteral("alse");
+			return JSONEvent.VALUE_FALSE;
+		case 'n':
+			this.readLiteral("ull");
+			return JSONEvent.VALUE_NULL;
+		default:
+			if ((c == '-') || ((c >= '0') && (c <= '9'))) {
+				this.text = this.readNumber(c);
+				return JSONEvent.VALUE_NUMBER;
+			}
+			throw this.syntaxError(String.format("Unexpected character '%s'", (char) c));
+		}
+	}
+
+	/**
+	 * Method to push a container context.
+	 * 
+	 * @param context Container context.
+	 */
+	private void push(byte context) {
+		if (this.depth == this.stack.length) {
+			byte[] s = new byte[this.stack.length * 2];
+			System.arraycopy(this.stack, 0, s, 0, this.depth);
+			this.stack = s;
+		}
+		this.stack[this.depth++] = context;
+	}
+
+	/**
+	 * Method to read the remainder of a quoted string. Runs of unescaped
+	 * characters within the buffer are copied in bulk, and field names are
+	 * interned through the symbol table.
+	 * 
+	 * @param intern Whether to intern the string.
+	 * @return String.
+	 * @throws JSONException
+	 */
+	private String readString(boolean intern) throws JSONException {
+		// Fast path for a string entirely within the buffer without escapes.
+		for (int i = this.position; i < this.limit; i++) {
+			char c = this.buffer[i];
+			if (c == '"') {
+				String s = intern ? JSONSymbolTable.intern(this.buffer, this.position, i - this.position) : new String(this.buffer, this.position, i - this.position);
+				this.position = i + 1;
+				return s;
+			} else if (c == '\\') {
+				break;
+			}
+		}
+
+		StringBuilder sb = this.builder;
+		sb.setLength(0);
+
+		while (true) {
+			if ((this.position == this.limit) && !this.fill()) {
+				throw this.syntaxError("Unterminated string");
+			}
+
+			int start = this.position;
+			while ((this.position < this.limit) && (this.buffer[this.position] != '"') && (this.buffer[this.position] != '\\')) {
+				this.position++;
+			}
+			sb.append(this.buffer, start, this.position - start);
+
+			if (this.position < this.limit) {
+				char c = this.buffer[this.position++];
+				if (c == '"') {
+					return sb.toString();
+				}
+				sb.append(this.readEscape());
+			}
+		}
+	}
+
+	/**
+	 * Method to read the character of a backslash escape sequence.
+	 * 
+	 * @return Escaped character.
+	 * @throws JSONException
+	 */
+	private char readEscape() throws JSONException {
+		int c = this.read();
+		switch (c) {
+		case 'b':
+			return '\b';
+		case 't':
+			return '\t';
+		case 'n':
+			return '\n';
+		case 'f':
+			return '\f';
+		case 'r':
+			return '\r';
+		case 'u':
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int h = this.read();
+				int d = (h < 0) ? -1 : JSONTokener.dehexchar((char) h);
+				if (d < 0) {
+					throw this.syntaxError("Illegal escape");
+				}
+				value = (value << 4) | d;
+			}
+			return (char) value;
+		case '"':
+		case '\'':
+		case '\\':
+		case '/':
+			return (char) c;
+		default:
+			throw this.syntaxError("Illegal escape");
+		}
+	}
+
+	/**
+	 * Method to skip the remainder of a quoted string.
+	 * 
+	 * @throws JSONException
+	 */
+	private void skipString() throws JSONException {
+		while (true) {
+			int c = this.read();
+			if (c < 0) {
+				throw this.syntaxError("Unterminated string");
+			} else if (c == '"') {
+				return;
+			} else if (c == '\\') {
+				this.read();
+			}
+		}
+	}
+
+	/**
+	 * Method to read the remainder of a number.
+	 * 
+	 * @param c First character of the number.
+	 * @return Number text.
+	 * @throws JSONException
+	 */
+	private String readNumber(int c) throws JSONException {
+		StringBuilder sb = this.builder;
+		sb.setLength(0);
+		sb.append((char) c);
+
+		while (true) {
+			if ((this.position == this.limit) && !this.fill()) {
+				break;
+			}
+			char n = this.buffer[this.position];
+			if (((n >= '0') && (n <= '9')) || (n == '.') || (n == 'e') || (n == 'E') || (n == '-') || (n == '+')) {
+				sb.append(n);
+				this.position++;
+			} else {
+				break;
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Method to read the remainder of a literal.
+	 * 
+	 * @param remainder Expected remaining characters.
+	 * @throws JSONException
+	 */
+	private void readLiteral(String remainder) throws JSONException {
+		for (int i = 0; i < remainder.length(); i++) {
+			if (this.read() != remainder.charAt(i)) {
+				throw this.syntaxError("Invalid literal");
+			}
+		}
+	}
+
+	/**
+	 * Method to read the next character that is not whitespace.
+	 * 
+	 * @return Character, or -1 at the end of the source.
+	 * @throws JSONException
+	 */
+	private int nextClean() throws JSONException {
+		while (true) {
+			int c = this.read();
+			if ((c < 0) || (c > ' ')) {
+				return c;
+			}
+		}
+	}
+
+	/**
+	 * Method to read the next character.
+	 * 
+	 * @return Character, or -1 at the end of the source.
+	 * @throws JSONException
+	 */
+	private int read() throws JSONException {
+		if ((this.position == this.limit) && !this.fill()) {
+			return -1;
+		}
+		return this.buffer[this.position++];
+	}
+
+	/**
+	 * Method to refill the buffer from the source reader.
+	 * 
+	 * @return <code>true</code> if characters were read, <code>false</code> at the
+	 *         end of the source.
+	 * @throws JSONException
+	 */
+	private boolean fill() throws JSONException {
+		try {
+			this.offset += this.limit;
+			this.position = 0;
+			this.limit = 0;
+			int n;
+			while ((n = this.reader.read(this.buffer, 0, this.buffer.length)) == 0) {
+				// Keep reading until characters or the end of the source.
+			}
+			if (n > 0) {
+				this.limit = n;
+				return true;
+			}
+			return false;
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	/**
+	 * Method to create a syntax error at the current position.
+	 * 
+	 * @param message Error message.
+	 * @return JSON exception.
+	 */
+	private JSONException syntaxError(String message) {
+		return new JSONException(String.format("%s at character %s.", message, this.offset + this.position));
+	}
+}
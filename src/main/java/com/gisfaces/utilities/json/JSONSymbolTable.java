@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013-2023 Chris Duncan (cduncan@gisfaces.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.gisfaces.utilities.json;
+
+/**
+ * JSON symbol table class. Object keys are interned through a bounded,
+ * direct-mapped table shared by all parsers, so repeated keys of parsed
+ * documents share a single string instance. A colliding key replaces the
+ * previous occupant of its slot, which keeps the table size fixed.
+ * <p>
+ * The slots are read and written without locking. Strings are immutable, so a
+ * racing thread can only miss a symbol and create an equal string of its own.
+ * 
+ * @author Chris Duncan (cduncan@gisfaces.com)
+ */
+final class JSONSymbolTable {
+	/** Number of slots, which must be a power of two. */
+	private static final int SIZE = 2048;
+
+	/** Longest interned key, in characters. */
+	private static final int MAX_LENGTH = 64;
+
+	/** Symbol slots. */
+	private static final String[] SYMBOLS = new String[SIZE];
+
+	/**
+	 * Constructor.
+	 */
+	private JSONSymbolTable() {
+		super();
+	}
+
+	/**
+	 * Method to get the interned string of a range of characters. Ranges longer
+	 * than the maximum key length are returned as new strings.
+	 * 
+	 * @param buffer Character buffer.
+	 * @param offset Offset of the first character.
+	 * @param length Number of characters.
+	 * @return String
+	 */
+	static String intern(char[] buffer, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return new String(buffer, offset, length);
+		}
+
+		int hash = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			hash = (31 * hash) + buffer[i];
+		}
+		int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+
+		String symbol = SYMBOLS[slot];
+		if ((symbol != null) && matches(symbol, buffer, offset, length)) {
+			return symbol;
+		}
+
+		symbol = new String(buffer, offset, length);
+		SYMBOLS[slot] = symbol;
+		return symbol;
+	}
+
+	/**
+	 * Method to determine if a string equals a range of characters.
+	 * 
+	 * @param symbol String.
+	 * @param buffer Character buffer.
+	 * @param offset Offset of the first character.
+	 * @param length Number of characters.
+	 * @return boolean
+	 */
+	private static boolean matches(String symbol, char[] buffer, int offset, int length) {
+		if (symbol.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (symbol.charAt(i) != buffer[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
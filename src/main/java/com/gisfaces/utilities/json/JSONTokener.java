@@ -24,10 +24,9 @@
 
 package com.gisfaces.utilities.json;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
+import java.util.Arrays;
 
 /*
 Copyright (c) 2002 JSON.org
@@ -57,26 +56,45 @@ SOFTWARE.
  * A JSONTokener takes a source string and extracts characters and tokens from
  * it. It is used by the JSONObject and JSONArray constructors to parse JSON
  * source strings.
+ * <p>
+ * Characters are scanned from a <code>char[]</code> window over the source.
+ * Unescaped runs of strings are copied in bulk, and plain integers and decimals
+ * are parsed directly from the window without building intermediate strings.
  * 
  * @author JSON.org
  * @version 2008-09-18
  */
 public class JSONTokener {
 
-	private int index;
+	/** Window size, in characters. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Characters which end an unquoted value. */
+	private static final String DELIMITERS = ",:]}/\\\"[{;=#";
+
+	/** Exact powers of ten for decimal parsing. */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
 	private Reader reader;
-	private char lastChar;
-	private boolean useLastChar;
+	private char[] buffer;
+	private int position;
+	private int limit;
+	private long offset;
+	private int mark;
+	private boolean backedUp;
+	private boolean end;
+	private final StringBuilder builder;
 
 	/**
-	 * Construct a JSONTokener from a string.
+	 * Construct a JSONTokener from a reader.
 	 *
 	 * @param reader A reader.
 	 */
 	public JSONTokener(Reader reader) {
-		this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
-		this.useLastChar = false;
-		this.index = 0;
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+		this.mark = -1;
+		this.builder = new StringBuilder();
 	}
 
 	/**
@@ -85,7 +103,11 @@ public class JSONTokener {
 	 * @param s A source string.
 	 */
 	public JSONTokener(String s) {
-		this(new StringReader(s));
+		this.reader = null;
+		this.buffer = s.toCharArray();
+		this.limit = this.buffer.length;
+		this.mark = -1;
+		this.builder = new StringBuilder();
 	}
 
 	/**
@@ -94,11 +116,13 @@ public class JSONTokener {
 	 * or identifier.
 	 */
 	public void back() throws JSONException {
-		if (useLastChar || index <= 0) {
+		if (this.backedUp || this.offset + this.position <= 0) {
 			throw new JSONException("Stepping back two steps is not supported");
 		}
-		index -= 1;
-		useLastChar = true;
+		if (!this.end) {
+			this.position -= 1;
+		}
+		this.backedUp = true;
 	}
 
 	/**
@@ -142,27 +166,13 @@ public class JSONTokener {
 	 * @return The next character, or 0 if past the end of the source string.
 	 */
 	public char next() throws JSONException {
-		if (this.useLastChar) {
-			this.useLastChar = false;
-			if (this.lastChar != 0) {
-				this.index += 1;
-			}
-			return this.lastChar;
-		}
-		int c;
-		try {
-			c = this.reader.read();
-		} catch (IOException exc) {
-			throw new JSONException(exc);
-		}
-
-		if (c <= 0) { // End of stream
-			this.lastChar = 0;
+		this.backedUp = false;
+		if (this.position == this.limit && !fill()) {
+			this.end = true;
 			return 0;
 		}
-		this.index += 1;
-		this.lastChar = (char) c;
-		return this.lastChar;
+		this.end = false;
+		return this.buffer[this.position++];
 	}
 
 	/**
@@ -193,31 +203,23 @@ public class JSONTokener {
 			return "";
 		}
 
-		char[] buffer = new char[n];
+		char[] chars = new char[n];
 		int pos = 0;
 
-		if (this.useLastChar) {
-			this.useLastChar = false;
-			buffer[0] = this.lastChar;
-			pos = 1;
-		}
-
-		try {
-			int len;
-			while ((pos < n) && ((len = reader.read(buffer, pos, n - pos)) != -1)) {
-				pos += len;
+		this.backedUp = false;
+		while (pos < n) {
+			if (this.position == this.limit && !fill()) {
+				this.end = true;
+				throw syntaxError("Substring bounds error");
 			}
-		} catch (IOException exc) {
-			throw new JSONException(exc);
+			int len = Math.min(n - pos, this.limit - this.position);
+			System.arraycopy(this.buffer, this.position, chars, pos, len);
+			this.position += len;
+			pos += len;
 		}
-		this.index += pos;
+		this.end = false;
 
-		if (pos < n) {
-			throw syntaxError("Substring bounds error");
-		}
-
-		this.lastChar = buffer[n - 1];
-		return new String(buffer);
+		return new String(chars);
 	}
 
 	/**
@@ -228,6 +230,14 @@ public class JSONTokener {
 	 */
 	public char nextClean() throws JSONException {
 		for (;;) {
+			while (this.position < this.limit) {
+				char c = this.buffer[this.position++];
+				if (c > ' ') {
+					this.backedUp = false;
+					this.end = false;
+					return c;
+				}
+			}
 			char c = next();
 			if (c == 0 || c > ' ') {
 				return c;
@@ -247,10 +257,50 @@ public class JSONTokener {
 	 * @throws JSONException Unterminated string.
 	 */
 	public String nextString(char quote) throws JSONException {
-		char c;
-		StringBuffer sb = new StringBuffer();
+		return nextString(quote, false);
+	}
+
+	/**
+	 * Return the characters up to the next close quote character, optionally
+	 * interning an unescaped result through the symbol table.
+	 * 
+	 * @param quote  The quoting character.
+	 * @param intern Whether to intern the result.
+	 * @return A String.
+	 * @throws JSONException Unterminated string.
+	 */
+	private String nextString(char quote, boolean intern) throws JSONException {
+		StringBuilder sb = null;
+		this.backedUp = false;
+
 		for (;;) {
-			c = next();
+			// Scan a run of unescaped characters within the window.
+			int start = this.position;
+			while (this.position < this.limit) {
+				char c = this.buffer[this.position];
+				if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+					break;
+				}
+				this.position++;
+			}
+
+			if (this.position < this.limit && this.buffer[this.position] == quote) {
+				this.position++;
+				this.end = false;
+				if (sb == null) {
+					int length = this.position - start - 1;
+					return intern ? JSONSymbolTable.intern(this.buffer, start, length) : new String(this.buffer, start, length);
+				}
+				return sb.append(this.buffer, start, this.position - start - 1).toString();
+			}
+
+			if (sb == null) {
+				sb = this.builder;
+				sb.setLength(0);
+			}
+			sb.append(this.buffer, start, this.position - start);
+
+			char c = next();
 			switch (c) {
 			case 0:
 			case '\n':
@@ -275,7 +325,15 @@ public class JSONTokener {
 					sb.append('\r');
 					break;
 				case 'u':
-					sb.append((char) Integer.parseInt(next(4), 16));
+					int value = 0;
+					for (int i = 0; i < 4; i += 1) {
+						int h = dehexchar(next());
+						if (h < 0) {
+							throw syntaxError("Illegal escape.");
+						}
+						value = (value << 4) | h;
+					}
+					sb.append((char) value);
 					break;
 				case '"':
 				case '\'':
@@ -288,10 +346,9 @@ public class JSONTokener {
 				}
 				break;
 			default:
-				if (c == quote) {
-					return sb.toString();
-				}
-				sb.append(c);
+				// The end of the window, so continue with the refilled window.
+				back();
+				this.backedUp = false;
 			}
 		}
 	}
@@ -304,7 +361,7 @@ public class JSONTokener {
 	 * @return A string.
 	 */
 	public String nextTo(char d) throws JSONException {
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
 		for (;;) {
 			char c = next();
 			if (c == d || c == 0 || c == '\n' || c == '\r') {
@@ -326,7 +383,7 @@ public class JSONTokener {
 	 */
 	public String nextTo(String delimiters) throws JSONException {
 		char c;
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
 		for (;;) {
 			c = next();
 			if (delimiters.indexOf(c) >= 0 || c == 0 || c == '\n' || c == '\r') {
@@ -339,6 +396,22 @@ public class JSONTokener {
 		}
 	}
 
+	/**
+	 * Get the next object key. Quoted keys are interned through the symbol table,
+	 * so repeated keys share a single string.
+	 * 
+	 * @return A key string.
+	 * @throws JSONException If syntax error.
+	 */
+	String nextKey() throws JSONException {
+		char c = nextClean();
+		if (c == '"' || c == '\'') {
+			return nextString(c, true);
+		}
+		back();
+		return nextValue().toString();
+	}
+
 	/**
 	 * Get the next value. The value can be a Boolean, Double, Integer, JSONArray,
 	 * JSONObject, Long, or String, or the JSONObject.NULL object.
@@ -349,7 +422,6 @@ public class JSONTokener {
 	 */
 	public Object nextValue() throws JSONException {
 		char c = nextClean();
-		String s;
 
 		switch (c) {
 		case '"':
@@ -373,18 +445,96 @@ public class JSONTokener {
 		 * character.
 		 */
 
-		StringBuffer sb = new StringBuffer();
-		while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
-			sb.append(c);
-			c = next();
+		if (c < ' ' || DELIMITERS.indexOf(c) >= 0) {
+			if (c != 0) {
+				back();
+			}
+			throw syntaxError("Missing value");
 		}
-		back();
 
-		s = sb.toString().trim();
-		if (s.equals("")) {
-			throw syntaxError("Missing value");
+		// Keep the value within the window while scanning.
+		this.mark = this.position - 1;
+		for (;;) {
+			if (this.position == this.limit && !fill()) {
+				break;
+			}
+			char n = this.buffer[this.position];
+			if (n < ' ' || DELIMITERS.indexOf(n) >= 0) {
+				break;
+			}
+			this.position++;
+		}
+		int start = this.mark;
+		int stop = this.position;
+		this.mark = -1;
+
+		while (stop > start && this.buffer[stop - 1] == ' ') {
+			stop--;
+		}
+
+		Object value = parseNumber(this.buffer, start, stop);
+		if (value != null) {
+			return value;
+		}
+		return JSONObject.stringToValue(new String(this.buffer, start, stop - start));
+	}
+
+	/**
+	 * Parse a plain integer or decimal directly from characters. Integers of up
+	 * to 18 digits are parsed exactly, and decimals of up to 15 significant digits
+	 * are exact as the correctly rounded quotient of two exact doubles. Other
+	 * forms, including exponents and the 0- and 0x- conventions, are left to
+	 * JSONObject.stringToValue.
+	 * 
+	 * @param chars Characters.
+	 * @param start Start index, inclusive.
+	 * @param stop  End index, exclusive.
+	 * @return An Integer, Long or Double, or null if not a plain number.
+	 */
+	private static Object parseNumber(char[] chars, int start, int stop) {
+		int i = start;
+		boolean negative = false;
+		if (i < stop && chars[i] == '-') {
+			negative = true;
+			i += 1;
+		}
+		if (i == stop || (chars[i] == '0' && !negative && stop - i > 1)) {
+			return null;
+		}
+
+		long m = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean point = false;
+		for (; i < stop; i += 1) {
+			char c = chars[i];
+			if (c >= '0' && c <= '9') {
+				if (++digits > 18) {
+					return null;
+				}
+				m = m * 10 + (c - '0');
+				if (point) {
+					decimals += 1;
+				}
+			} else if (c == '.' && !point && digits > 0) {
+				point = true;
+			} else {
+				return null;
+			}
+		}
+		if (digits == 0) {
+			return null;
+		}
+
+		if (!point) {
+			long v = negative ? -m : m;
+			return (v == (int) v) ? (Object) Integer.valueOf((int) v) : (Object) Long.valueOf(v);
+		}
+		if (digits > 15) {
+			return null;
 		}
-		return JSONObject.stringToValue(s);
+		double d = m / POW10[decimals];
+		return Double.valueOf(negative ? -d : d);
 	}
 
 	/**
@@ -397,23 +547,60 @@ public class JSONTokener {
 	 */
 	public char skipTo(char to) throws JSONException {
 		char c;
+		this.mark = this.position;
+		do {
+			c = next();
+			if (c == 0) {
+				this.position = this.mark;
+				this.mark = -1;
+				this.end = false;
+				return c;
+			}
+		} while (c != to);
+		this.mark = -1;
+
+		back();
+		return c;
+	}
+
+	/**
+	 * Refill the window from the reader. Characters from the mark, or else the
+	 * last character for back(), are kept at the start of the window.
+	 * 
+	 * @return true if characters were read, false at the end of the source.
+	 */
+	private boolean fill() throws JSONException {
+		if (this.reader == null) {
+			return false;
+		}
+
+		int keep = (this.mark >= 0) ? this.mark : Math.max(this.position - 1, 0);
+		if (keep > 0) {
+			System.arraycopy(this.buffer, keep, this.buffer, 0, this.limit - keep);
+			this.offset += keep;
+			this.position -= keep;
+			this.limit -= keep;
+			if (this.mark >= 0) {
+				this.mark = 0;
+			}
+		}
+		if (this.limit == this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+		}
+
 		try {
-			int startIndex = this.index;
-			reader.mark(Integer.MAX_VALUE);
+			int n;
 			do {
-				c = next();
-				if (c == 0) {
-					reader.reset();
-					this.index = startIndex;
-					return c;
-				}
-			} while (c != to);
+				n = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			} while (n == 0);
+			if (n < 0) {
+				return false;
+			}
+			this.limit += n;
+			return true;
 		} catch (IOException exc) {
 			throw new JSONException(exc);
 		}
-
-		back();
-		return c;
 	}
 
 	/**
@@ -432,6 +619,6 @@ public class JSONTokener {
 	 * @return " at character [this.index]"
 	 */
 	public String toString() {
-		return " at character " + index;
+		return " at character " + (this.offset + this.position);
 	}
-}
\ No newline at end of file
+}
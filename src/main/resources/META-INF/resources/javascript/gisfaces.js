@@ -974,8 +974,9 @@ require([
 	 * @param properties JSON properties defining layer.
 	 * @param index Layer index.
 	 * @param reset Hard reset indicator since some layer properties cannot be easily updated.
+	 * @param cleared Optional array of property names which are no longer specified.
 	 */
-	com.gisfaces.processLayer = function(type, properties, index, reset) {
+	com.gisfaces.processLayer = function(type, properties, index, reset, cleared) {
 		console.log("Processing layer of type '%s' with properties '%s' at index '%s'.", type, JSON.stringify(properties), index);
 
 		if (reset) {
@@ -988,7 +989,7 @@ require([
 
 		if (layer) {
 			// Update an existing layer.
-			com.gisfaces.updateLayer(layer, properties, index);
+			com.gisfaces.updateLayer(layer, properties, index, cleared);
 		} else {
 			// Add a new layer.
 			com.gisfaces.addLayer(type, properties, index);
@@ -1510,8 +1511,9 @@ require([
 	 * @param layer Layer object.
 	 * @param properties JSON properties defining layer.
 	 * @param index Layer index.
+	 * @param cleared Optional array of property names which are no longer specified.
 	 */
-	com.gisfaces.updateLayer = function(layer, properties, index) {
+	com.gisfaces.updateLayer = function(layer, properties, index, cleared) {
 		console.log("Updating layer with properties '%s'.", JSON.stringify(properties));
 
 		if (layer && properties && properties.id) {
@@ -1521,8 +1523,18 @@ require([
 				layer.set(key, properties[key]);
 			}
 
+			// Reset cleared properties to the defaults of a new layer of the same type.
+			if (cleared && (cleared.length > 0)) {
+				var defaults = new layer.constructor();
+				cleared.forEach(function(key) {
+					console.log("Resetting layer '%s' property '%s' to default value '%s'.", properties.id, key, JSON.stringify(defaults.get(key)));
+					layer.set(key, defaults.get(key));
+				});
+				defaults.destroy();
+			}
+
 			// Set the layer index for possible reorder.
-			if (index) {
+			if ((index != null) && (com.gisfaces.map.layers.indexOf(layer) != index)) {
 				console.log("Reordering layer '%s' to index '%s'.", properties.id, index);
 				com.gisfaces.map.reorder(layer, index);
 			}
@@ -1858,6 +1870,254 @@ require([
 		}
 	}
 
+	/**
+	 * Function to expand a graphic row of values into JSON properties.
+	 * @param keys Property names shared by all rows.
+	 * @param row Property values aligned to the keys.
+	 */
+	com.gisfaces.expandGraphic = function(keys, row) {
+		var properties = {};
+		for (var i = 0; i < row.length; i++) {
+			if (row[i] != null) {
+				properties[keys[i]] = row[i];
+			}
+		}
+		if (properties.geometry && properties.geometry.q) {
+			properties.geometry = com.gisfaces.decodeQuantizedGeometry(properties.geometry);
+		}
+		return properties;
+	}
+
+	/**
+	 * Function to decode a quantized geometry into JSON geometry properties.
+	 * The first quantized value is the power of ten factor, followed by the point X/Y-integers,
+	 * or one array of X/Y-deltas per path or ring.
+	 * @param geometry Quantized geometry.
+	 */
+	com.gisfaces.decodeQuantizedGeometry = function(geometry) {
+		var q = geometry.q;
+		var factor = q[0];
+
+		if (geometry.type == "point") {
+			return { type: geometry.type, longitude: q[1] / factor, latitude: q[2] / factor };
+		}
+
+		var parts = new Array(q.length - 1);
+		for (var p = 1; p < q.length; p++) {
+			var deltas = q[p];
+			var part = new Array(deltas.length / 2);
+			var x = 0;
+			var y = 0;
+			for (var i = 0, j = 0; i < deltas.length; i += 2, j++) {
+				x += deltas[i];
+				y += deltas[i + 1];
+				part[j] = [x / factor, y / factor];
+			}
+			parts[p - 1] = part;
+		}
+
+		var result = { type: geometry.type };
+		result[(geometry.type == "polygon") ? "rings" : "paths"] = parts;
+		return result;
+	}
+
+	/**
+	 * Function to add many graphics to the specified graphics layer with a single call.
+	 * @param layerId Layer ID.
+	 * @param keys Property names shared by all rows.
+	 * @param rows Graphic rows of property values aligned to the keys.
+	 */
+	com.gisfaces.addGraphics = function(layerId, keys, rows) {
+		console.log("Adding '%s' graphics to layer id '%s'.", rows.length, layerId);
+
+		// Get the layer.
+		var layer = com.gisfaces.findLayer(layerId);
+		if (layer && (rows.length > 0)) {
+			var graphics = new Array(rows.length);
+			for (var i = 0; i < rows.length; i++) {
+				graphics[i] = com.gisfaces.createGraphic(com.gisfaces.expandGraphic(keys, rows[i]));
+			}
+
+			// Add the graphics to the layer.
+			layer.addMany(graphics);
+		}
+	}
+
+	/**
+	 * Function to apply a batch of keyed graphic changes to the specified graphics layer.
+	 * Graphics not referenced by the batch are left untouched, except graphics without an ID.
+	 * @param layerId Layer ID.
+	 * @param keys Property names shared by all rows.
+	 * @param adds Rows of the graphics to add.
+	 * @param updates Rows of the graphics to update, matched by graphic ID.
+	 * @param removes IDs of the graphics to remove.
+	 * @param reset Remove all existing graphics before applying the batch.
+	 */
+	com.gisfaces.updateGraphics = function(layerId, keys, adds, updates, removes, reset) {
+		console.log("Updating graphics in layer id '%s' with '%s' adds, '%s' updates and '%s' removes.", layerId, adds.length, updates.length, removes.length);
+
+		// Get the layer.
+		var layer = com.gisfaces.findLayer(layerId);
+		if (layer) {
+			if (reset) {
+				// Remove all existing graphics, discarding any pending remote pages.
+				layer.gisfacesGraphicsVersion = null;
+				layer.removeAll();
+			} else {
+				// Remove graphics without an ID, such as those drawn by the sketch widget, which are replaced by the encoded graphics.
+				var unkeyed = layer.graphics.filter(function(g) {
+					return (g.id == null);
+				});
+				if (unkeyed.length > 0) {
+					layer.removeMany(unkeyed);
+				}
+			}
+
+			if (!reset && ((updates.length > 0) || (removes.length > 0))) {
+				// Index the existing graphics by ID.
+				var graphics = {};
+				layer.graphics.forEach(function(g) {
+					graphics[g.id] = g;
+				});
+
+				// Remove graphics.
+				var removed = [];
+				for (var i = 0; i < removes.length; i++) {
+					if (graphics[removes[i]]) {
+						removed.push(graphics[removes[i]]);
+					}
+				}
+				if (removed.length > 0) {
+					layer.removeMany(removed);
+				}
+
+				// Update graphics in place.
+				for (var i = 0; i < updates.length; i++) {
+					var graphic = com.gisfaces.createGraphic(com.gisfaces.expandGraphic(keys, updates[i]));
+					var existing = graphics[graphic.id];
+					if (existing) {
+						existing.geometry = graphic.geometry;
+						existing.symbol = graphic.symbol;
+						existing.attributes = graphic.attributes;
+						existing.visible = graphic.visible;
+						existing.popupTemplate = graphic.popupTemplate;
+					} else {
+						adds.push(updates[i]);
+					}
+				}
+			}
+
+			// Add graphics.
+			com.gisfaces.addGraphics(layerId, keys, adds);
+		}
+	}
+
+	/**
+	 * Function to load the graphics of a graphics layer in pages from the graphics endpoint.
+	 * Pending pages of a superseded version are discarded.
+	 * @param layerId Layer ID.
+	 * @param url Graphics endpoint URL.
+	 * @param version Graphics version token.
+	 * @param pageSize Number of graphics per page.
+	 */
+	com.gisfaces.loadGraphics = function(layerId, url, version, pageSize) {
+		console.log("Loading graphics for layer id '%s' version '%s' from '%s'.", layerId, version, url);
+
+		// Get the layer.
+		var layer = com.gisfaces.findLayer(layerId);
+		if (layer) {
+			layer.gisfacesGraphicsVersion = version;
+			layer.removeAll();
+			com.gisfaces.loadGraphicsPage(layerId, url, version, pageSize, 0);
+		}
+	}
+
+	/**
+	 * Function to load a single page of graphics from the graphics endpoint.
+	 * @param layerId Layer ID.
+	 * @param url Graphics endpoint URL.
+	 * @param version Graphics version token.
+	 * @param pageSize Number of graphics per page.
+	 * @param offset Index of the first graphic in the page.
+	 */
+	com.gisfaces.loadGraphicsPage = function(layerId, url, version, pageSize, offset) {
+		var pageUrl = url + ((url.indexOf("?") < 0) ? "?" : "&") + "version=" + encodeURIComponent(version) + "&offset=" + offset + "&limit=" + pageSize;
+
+		fetch(pageUrl, { credentials: "same-origin" }).then(function(response) {
+			if (!response.ok) {
+				throw new Error("HTTP status " + response.status);
+			}
+			return response.json();
+		}).then(function(collection) {
+			// Discard pages of a superseded version.
+			var layer = com.gisfaces.findLayer(layerId);
+			if (layer && (layer.gisfacesGraphicsVersion == version)) {
+				var graphics = new Array(collection.features.length);
+				for (var i = 0; i < collection.features.length; i++) {
+					graphics[i] = com.gisfaces.createGraphic(com.gisfaces.expandFeature(collection.features[i]));
+				}
+				layer.addMany(graphics);
+
+				// Load the next page.
+				var next = collection.offset + collection.features.length;
+				if ((collection.features.length > 0) && (next < collection.total)) {
+					com.gisfaces.loadGraphicsPage(layerId, url, version, pageSize, next);
+				}
+			}
+		}).then(null, function(e) {
+			console.log("Error loading graphics for layer id '%s': %s", layerId, e);
+		});
+	}
+
+	/**
+	 * Function to convert a GeoJSON feature with graphic foreign members into graphic JSON properties.
+	 * @param feature GeoJSON feature.
+	 */
+	com.gisfaces.expandFeature = function(feature) {
+		var properties = {};
+		for (var key in feature) {
+			if ((key != "type") && (key != "geometry") && (key != "properties")) {
+				properties[key] = feature[key];
+			}
+		}
+		properties.attributes = feature.properties;
+
+		var geometry = feature.geometry;
+		if (geometry) {
+			switch (geometry.type) {
+				case "Point":
+					// Projected points carry X/Y-coordinates rather than longitude and latitude.
+					if (geometry.spatialReference) {
+						properties.geometry = { type: "point", x: geometry.coordinates[0], y: geometry.coordinates[1] };
+					} else {
+						properties.geometry = { type: "point", longitude: geometry.coordinates[0], latitude: geometry.coordinates[1] };
+					}
+					break;
+				case "MultiLineString":
+					properties.geometry = { type: "polyline", paths: geometry.coordinates };
+					break;
+				case "Polygon":
+					properties.geometry = { type: "polygon", rings: geometry.coordinates };
+					break;
+				case "MultiPolygon":
+					// Outer rings and holes keep their orientation, so the rings of all polygons are combined.
+					var rings = [];
+					geometry.coordinates.forEach(function(polygon) {
+						rings = rings.concat(polygon);
+					});
+					properties.geometry = { type: "polygon", rings: rings };
+					break;
+			}
+
+			// Keep the spatial reference of projected geometries.
+			if (properties.geometry && geometry.spatialReference) {
+				properties.geometry.spatialReference = geometry.spatialReference;
+			}
+		}
+
+		return properties;
+	}
+
 	/**
 	 * Function to show a graphic popup dialog.
 	 * @param graphic
@@ -2128,6 +2388,52 @@ require([
 		return webMercatorUtils.webMercatorToGeographic(geometry);
 	}
 
+	/**
+	 * Function to encode the paths or rings of a geographic geometry in the compact encoded polyline format.
+	 * Each part is encoded with the polyline algorithm as latitude/longitude deltas at six decimal places,
+	 * and parts are separated by commas.
+	 * @param geometry Polyline or polygon geometry in geographic units.
+	 * @return Encoded parts, or null if the geometry cannot be encoded.
+	 */
+	com.gisfaces.encodeGeometry = function(geometry) {
+		var parts = (geometry.type == "polygon") ? geometry.rings : ((geometry.type == "polyline") ? geometry.paths : null);
+		if (!parts || geometry.hasZ) {
+			return null;
+		}
+
+		var encoded = [];
+		for (var p = 0; p < parts.length; p++) {
+			var chars = [];
+			var px = 0;
+			var py = 0;
+			for (var i = 0; i < parts[p].length; i++) {
+				var x = Math.round(parts[p][i][0] * 1e6);
+				var y = Math.round(parts[p][i][1] * 1e6);
+				com.gisfaces.encodePolylineValue(y - py, chars);
+				com.gisfaces.encodePolylineValue(x - px, chars);
+				px = x;
+				py = y;
+			}
+			encoded.push(chars.join(""));
+		}
+
+		return encoded.join(",");
+	}
+
+	/**
+	 * Function to append a signed value as a zigzag encoded base 64 varint of the polyline algorithm.
+	 * @param value Signed integer value.
+	 * @param chars Array of encoded characters.
+	 */
+	com.gisfaces.encodePolylineValue = function(value, chars) {
+		var v = (value < 0) ? ~(value << 1) : (value << 1);
+		while (v >= 0x20) {
+			chars.push(String.fromCharCode((0x20 | (v & 0x1f)) + 63));
+			v >>>= 5;
+		}
+		chars.push(String.fromCharCode(v + 63));
+	}
+
 	/**
 	 * Function to handle sketch widget create events.
 	 * @param event Sketch event.